@@ -12,6 +12,8 @@ import types.Grid;
 import types.Location;
 import types.MutableGrid;
 import types.configuration.CellConfiguration;
+import types.configuration.NodeId;
+import types.configuration.NodeIds;
 import types.configuration.cells.*;
 
 import java.io.*;
@@ -26,6 +28,20 @@ public class CellConfigurationParser implements Parser<CellConfiguration>, Write
     public static final ImmutableBiMap<CellType, String> ENCODING = getEncoding();
     public static final ImmutableBiMap<Direction, String> WIRING = getWiringSymbols();
 
+    private final NodeIds ids;
+
+    public CellConfigurationParser() {
+        this(null);
+    }
+
+    /**
+     * Creates a parser that interns the node ids it reads into the given table, such as that of the configuration the
+     * layout was made from. If null, each layout gets a table of its own.
+     */
+    public CellConfigurationParser(NodeIds ids) {
+        this.ids = ids;
+    }
+
     @Override
     public void write(CellConfiguration cellConfig, OutputStream stream) {
         PrintWriter out = new PrintWriter(stream);
@@ -101,6 +117,7 @@ public class CellConfigurationParser implements Parser<CellConfiguration>, Write
             int numMacros = Integer.parseInt(in.readLine());
 
             HashMap<String, Macro> macros = new HashMap<>();
+            NodeIds ids = this.ids == null ? new NodeIds() : this.ids;
             Splitter splitter = Splitter.on(CharMatcher.BREAKING_WHITESPACE).omitEmptyStrings().trimResults();
 
             for (int i = 0; i < numMacros; i++) {
@@ -114,7 +131,7 @@ public class CellConfigurationParser implements Parser<CellConfiguration>, Write
                         return Integer.parseInt(input);
                     }
                 });
-                macros.put(list.get(1), new Macro(list.get(2), id));
+                macros.put(list.get(1), new Macro(list.get(2), ids.intern(id)));
             }
 
             List<String> dims = splitter.splitToList(in.readLine());
@@ -415,9 +432,9 @@ public class CellConfigurationParser implements Parser<CellConfiguration>, Write
 
     private static class Macro {
         private String name;
-        private List<Integer> id;
+        private NodeId id;
 
-        public Macro(String name, List<Integer> id) {
+        public Macro(String name, NodeId id) {
             this.name = name;
             this.id = id;
         }
@@ -426,7 +443,7 @@ public class CellConfigurationParser implements Parser<CellConfiguration>, Write
             return name;
         }
 
-        public List<Integer> getId() {
+        public NodeId getId() {
             return id;
         }
 
@@ -437,14 +454,14 @@ public class CellConfigurationParser implements Parser<CellConfiguration>, Write
 
             Macro macro = (Macro) o;
 
-            return name.equals(macro.name) && id.equals(macro.id);
+            return name.equals(macro.name) && id.getPath().equals(macro.id.getPath());
 
         }
 
         @Override
         public int hashCode() {
             int result = name.hashCode();
-            result = 31 * result + id.hashCode();
+            result = 31 * result + id.getPath().hashCode();
             return result;
         }
     }
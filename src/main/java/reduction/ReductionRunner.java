@@ -191,6 +191,8 @@ public class ReductionRunner {
                 input = parse(m, mx.getInput(), cwd);
             }
 
+            m.configure(mx.getOptions());
+
             Object output = m.process(input);
             input = output;
 
@@ -11,6 +11,7 @@ import types.configuration.Configuration;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Map;
 
 import static org.apache.log4j.Level.ERROR;
 
@@ -33,6 +34,11 @@ public class ConfigurationSubstitution implements Module<Configuration, AtomicCo
         resolver = new ConfigurationResolver(data.getConfigs(), GadgetUtils.getNames(data.getGadgets()));
     }
 
+    @Override
+    public void configure(Map<String, String> options) {
+        ModuleUtils.warnUnknownOptions(this, options);
+    }
+
     @Override
     public void write(AtomicConfiguration atomicConfiguration, OutputStream stream) {
         UnsupportedOperationException e = new UnsupportedOperationException();
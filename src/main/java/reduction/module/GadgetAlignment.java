@@ -4,6 +4,10 @@ import org.apache.log4j.Logger;
 import parser.CellConfigurationParser;
 import reduction.ReductionData;
 import transform.LPGadgetPlacer;
+import transform.lp.DifferenceConstraintSolver;
+import transform.lp.JOptimizerSolver;
+import transform.lp.LPSolver;
+import transform.lp.SimplexSolver;
 import types.Gadget;
 import types.configuration.CellConfiguration;
 import types.configuration.GadgetConfiguration;
@@ -38,6 +42,46 @@ public class GadgetAlignment implements Module<CellConfiguration, GadgetConfigur
         placer = new LPGadgetPlacer(wires, turns, crossovers, empty, gadgets);
     }
 
+    /**
+     * Options are solver, which is interiorPoint or simplex, and differenceConstraints, which is whether to solve
+     * difference constraints with longest paths first
+     */
+    @Override
+    public void configure(Map<String, String> options) {
+        String solver = "interiorPoint";
+        boolean differenceConstraints = true;
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            switch (option.getKey()) {
+                case "solver":
+                    solver = option.getValue().trim();
+                    break;
+                case "differenceConstraints":
+                    differenceConstraints = Boolean.parseBoolean(option.getValue().trim());
+                    break;
+                default:
+                    ModuleUtils.warnUnknownOption(this, option.getKey());
+            }
+        }
+
+        try {
+            LPSolver lpSolver = getSolver(solver);
+            placer.setSolver(differenceConstraints ? new DifferenceConstraintSolver(lpSolver) : lpSolver);
+        } catch (IllegalArgumentException e) {
+            logger.log(ERROR, "Bad option for " + name() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static LPSolver getSolver(String name) {
+        switch (name) {
+            case "interiorPoint":
+                return new JOptimizerSolver();
+            case "simplex":
+                return new SimplexSolver();
+            default:
+                throw new IllegalArgumentException("Unknown solver: " + name);
+        }
+    }
+
     @Override
     public void write(GadgetConfiguration gadgetConfiguration, OutputStream stream) {
         UnsupportedOperationException e = new UnsupportedOperationException();
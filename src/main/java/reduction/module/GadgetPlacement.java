@@ -31,6 +31,11 @@ public class GadgetPlacement implements Module<GadgetConfiguration, Grid<String>
         empty = typed.get("empty").iterator().next();
     }
 
+    @Override
+    public void configure(Map<String, String> options) {
+        ModuleUtils.warnUnknownOptions(this, options);
+    }
+
     @Override
     public void write(Grid<String> stringGrid, OutputStream stream) {
         parser.write(stringGrid, stream);
@@ -41,6 +41,17 @@ public class GraphPlanarization implements Module<AtomicConfiguration, CellConfi
         planarizer = new GadgetPlanarizer(wires, turns, crossovers, empty, gadgets);
     }
 
+    @Override
+    public void configure(Map<String, String> options) {
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            try {
+                planarizer.getOptions().set(option.getKey(), option.getValue());
+            } catch (IllegalArgumentException e) {
+                logger.log(ERROR, "Bad option for " + name() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
     @Override
     public void write(CellConfiguration cellConfig, OutputStream stream) {
         parser.write(cellConfig, stream);
@@ -10,6 +10,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Map;
 
 import static org.apache.log4j.Level.ERROR;
 
@@ -29,6 +30,11 @@ public class ImagePostProcessing implements Module<Grid<String>, BufferedImage>
         this.postprocessor = new ImagePostProcessor(data.getImages(), data.getImageSizeX(), data.getImageSizeY());
     }
 
+    @Override
+    public void configure(Map<String, String> options) {
+        ModuleUtils.warnUnknownOptions(this, options);
+    }
+
     @Override
     public void write(BufferedImage image, OutputStream stream) {
         postprocessor.write(image, stream);
@@ -6,8 +6,14 @@ import reduction.ReductionData;
 import transform.Processor;
 
 import java.io.OutputStream;
+import java.util.Map;
 
 public interface Module<Input, Output> extends Parser<Input>, Processor<Input, Output>, Writer<Output> {
     String name();
     void init(ReductionData data);
+
+    /**
+     * Applies the options given to the module in the reduction xml, before it processes anything
+     */
+    void configure(Map<String, String> options);
 }
@@ -0,0 +1,26 @@
+package reduction.module;
+
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+
+import static org.apache.log4j.Level.WARN;
+
+public class ModuleUtils {
+    /**
+     * Warns that the module doesn't know the option, which is then ignored
+     */
+    public static void warnUnknownOption(Module<?, ?> module, String option) {
+        Logger logger = Logger.getLogger(module.getClass().getName());
+        logger.log(WARN, "Unknown option for " + module.name() + ": " + option);
+    }
+
+    /**
+     * Warns about every option, for a module that has none
+     */
+    public static void warnUnknownOptions(Module<?, ?> module, Map<String, String> options) {
+        for (String option : options.keySet()) {
+            warnUnknownOption(module, option);
+        }
+    }
+}
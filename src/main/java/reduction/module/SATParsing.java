@@ -9,6 +9,7 @@ import types.configuration.Configuration;
 
 import java.io.*;
 import java.nio.charset.Charset;
+import java.util.Map;
 
 import static org.apache.log4j.Level.ERROR;
 
@@ -31,6 +32,11 @@ public class SATParsing implements Module<String, Configuration> {
         // do nothing
     }
 
+    @Override
+    public void configure(Map<String, String> options) {
+        ModuleUtils.warnUnknownOptions(this, options);
+    }
+
     @Override
     public Configuration process(String s) {
         return parser.parseSAT(s);
@@ -1,6 +1,11 @@
 package reduction.xml;
 
+import com.google.common.collect.ImmutableMap;
+
 import javax.xml.bind.annotation.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @XmlAccessorType(XmlAccessType.FIELD)
 public class ModuleXml {
@@ -8,6 +13,10 @@ public class ModuleXml {
     private InputXml input;
     private OutputXml output;
 
+    @XmlElementWrapper
+    @XmlElement(name="option")
+    private List<OptionXml> options;
+
     public String getName() {
         return name;
     }
@@ -20,12 +29,28 @@ public class ModuleXml {
         return output;
     }
 
+    /**
+     * The options of the module, by name. Later options override earlier ones with the same name.
+     */
+    public Map<String, String> getOptions() {
+        if (options == null) {
+            return ImmutableMap.of();
+        }
+
+        Map<String, String> map = new LinkedHashMap<>();
+        for (OptionXml option : options) {
+            map.put(option.getName(), option.getValue());
+        }
+        return map;
+    }
+
     @Override
     public String toString() {
         return "ModuleXml{" +
             "name='" + name + '\'' +
             ", input=" + input +
             ", output=" + output +
+            ", options=" + options +
             '}';
     }
 }
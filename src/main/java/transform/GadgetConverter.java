@@ -5,12 +5,11 @@ import types.Gadget;
 import types.Location;
 import types.Side;
 import types.configuration.CellConfiguration;
+import types.configuration.NodeId;
 import types.configuration.cells.NodeCell;
 
-import java.util.List;
-
 public class GadgetConverter {
-    public CellConfiguration toGridConfiguration(Gadget g, List<Integer> id) {
+    public CellConfiguration toGridConfiguration(Gadget g, NodeId id) {
         int sizeX = 1;
         int sizeY = 1;
         for (Direction d : Direction.values()) {
@@ -2,9 +2,11 @@ package transform;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.*;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import transform.lp.*;
 import transform.placer.LargeNode;
 import transform.placer.LocationID;
+import transform.placer.PlacerVariables;
 import transform.planar.AbstractCostFunction;
 import transform.planar.GadgetSet;
 import transform.wiring.FrobeniusWirer;
@@ -21,9 +23,11 @@ import types.configuration.cells.Cell;
 import types.configuration.cells.CellType;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static transform.lp.ConstraintFactory.*;
-import static transform.placer.PlacerUtils.*;
+import static transform.placer.PlacerUtils.roundAndCheck;
 
 // TODO write a test
 public class LPGadgetPlacer {
@@ -39,6 +43,10 @@ public class LPGadgetPlacer {
     private final Wirer wirer;
     private final Shifter shifter;
     private final GadgetSet gadgetSet;
+    private LPSolver solver;
+
+    // solves the independent parts of each program, kept for every placement. Its threads don't keep the JVM alive.
+    private final ExecutorService executor;
 
     public LPGadgetPlacer(
         Iterable<Gadget> wires,
@@ -59,18 +67,34 @@ public class LPGadgetPlacer {
         this.wirer = new FrobeniusWirer(wires);
         this.shifter = new TurnShifter(turns, wires, wirer);
         this.gadgetSet = new GadgetSet(wires, turns, crossovers, empty, gadgets);
+        this.solver = new DifferenceConstraintSolver(new JOptimizerSolver());
+        this.executor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder().setNameFormat("lp-placer-%d").setDaemon(true).build()
+        );
+    }
+
+    public LPSolver getSolver() {
+        return solver;
     }
 
-    private void addBasicConstraints(CellConfiguration config, LinearProgram.Builder lp) {
+    /**
+     * Sets the solver for the placement program. It is kept between placements, so it can reuse what it learned.
+     */
+    public void setSolver(LPSolver solver) {
+        this.solver = Preconditions.checkNotNull(solver);
+    }
+
+    private void addBasicConstraints(CellConfiguration config, LinearProgram.Builder lp, PlacerVariables vars) {
         // slices are increasing, slice0 is 0
-        lp.addConstraint(equalTo(getSlice(0).x, 0));
+        lp.addConstraint(equalTo(vars.getSlice(0, true), 0));
         for (int x = 0; x < config.getSizeX(); x++) {
-            lp.addConstraint(atMost(getSlice(x).x, getSlice(x + 1).x));
+            lp.addConstraint(atMost(vars.getSlice(x, true), vars.getSlice(x + 1, true)));
         }
 
-        lp.addConstraint(equalTo(getSlice(0).y, 0));
+        lp.addConstraint(equalTo(vars.getSlice(0, false), 0));
         for (int y = 0; y < config.getSizeY(); y++) {
-            lp.addConstraint(atMost(getSlice(y).y, getSlice(y + 1).y));
+            lp.addConstraint(atMost(vars.getSlice(y, false), vars.getSlice(y + 1, false)));
         }
 
         for (int x = 0; x < config.getSizeX(); x++) {
@@ -93,8 +117,8 @@ public class LPGadgetPlacer {
                             continue;
                         }
 
-                        LocationID side1 = getSide(side);
-                        LocationID side2 = getSide(opp);
+                        LocationID side1 = vars.getSide(side);
+                        LocationID side2 = vars.getSide(opp);
                         lp.addConstraint(equalTo(side1.x, d.getX(), side2.x));
                         lp.addConstraint(equalTo(side1.y, d.getY(), side2.y));
                     }
@@ -127,7 +151,7 @@ public class LPGadgetPlacer {
                 return loc;
             case NODE:
             case PORT:
-                List<Integer> id = cell.getId();
+                int id = cell.getIntId();
                 String name = cell.getName();
 
                 int x;
@@ -144,7 +168,7 @@ public class LPGadgetPlacer {
                         break;
                     }
 
-                    if (!(edgeCell.getName().equals(name) && edgeCell.getId().equals(id))) {
+                    if (!(edgeCell.getName().equals(name) && edgeCell.getIntId() == id)) {
                         x = edge.getX();
                         break;
                     }
@@ -164,7 +188,7 @@ public class LPGadgetPlacer {
                         break;
                     }
 
-                    if (!(edgeCell.getName().equals(name) && edgeCell.getId().equals(id))) {
+                    if (!(edgeCell.getName().equals(name) && edgeCell.getIntId() == id)) {
                         y = edge.getY();
                         break;
                     }
@@ -182,9 +206,11 @@ public class LPGadgetPlacer {
         }
     }
 
-    private void addWireConstraints(LinearProgram.Builder lp, Location start, Location end, Direction d, Wirer wirer) {
-        LocationID startID = getSide(new Side(start, d.opposite()));
-        LocationID endID = getSide(new Side(end, d));
+    private void addWireConstraints(
+        LinearProgram.Builder lp, PlacerVariables vars, Location start, Location end, Direction d, Wirer wirer
+    ) {
+        LocationID startID = vars.getSide(new Side(start, d.opposite()));
+        LocationID endID = vars.getSide(new Side(end, d));
 
         Preconditions.checkArgument(wirer.canWire(d), d);
         // TODO replace thick with better choice, also require thick <= maxThickness, else this just adds padding
@@ -197,75 +223,87 @@ public class LPGadgetPlacer {
                 lp.addConstraint(equalTo(endID.x, startID.x));
                 lp.addConstraint(atMost(endID.y, minLength, startID.y));
 
-                lp.addConstraint(atLeast(ImmutableMap.of(endID.x, 1, getSlice(end.getX()).x, -1), thick));
-                lp.addConstraint(atLeast(ImmutableMap.of(getSlice(end.getX() + 1).x, 1, endID.x, -1), thick + 1));
+                lp.addConstraint(atLeast(ImmutableMap.of(endID.x, 1, vars.getSlice(end.getX(), true), -1), thick));
+                lp.addConstraint(atLeast(
+                    ImmutableMap.of(vars.getSlice(end.getX() + 1, true), 1, endID.x, -1), thick + 1
+                ));
                 break;
             case SOUTH:
                 lp.addConstraint(equalTo(startID.x, endID.x));
                 lp.addConstraint(atMost(startID.y, minLength, endID.y));
 
-                lp.addConstraint(atLeast(ImmutableMap.of(startID.x, 1, getSlice(start.getX()).x, -1), thick));
-                lp.addConstraint(atLeast(ImmutableMap.of(getSlice(start.getX() + 1).x, 1, startID.x, -1), thick + 1));
+                lp.addConstraint(atLeast(ImmutableMap.of(startID.x, 1, vars.getSlice(start.getX(), true), -1), thick));
+                lp.addConstraint(atLeast(
+                    ImmutableMap.of(vars.getSlice(start.getX() + 1, true), 1, startID.x, -1), thick + 1
+                ));
                 break;
             case EAST:
                 lp.addConstraint(equalTo(startID.y, endID.y));
                 lp.addConstraint(atMost(startID.x, minLength, endID.x));
 
-                lp.addConstraint(atLeast(ImmutableMap.of(startID.y, 1, getSlice(start.getY()).y, -1), thick));
-                lp.addConstraint(atLeast(ImmutableMap.of(getSlice(start.getY() + 1).y, 1, startID.y, -1), thick + 1));
+                lp.addConstraint(atLeast(ImmutableMap.of(startID.y, 1, vars.getSlice(start.getY(), false), -1), thick));
+                lp.addConstraint(atLeast(
+                    ImmutableMap.of(vars.getSlice(start.getY() + 1, false), 1, startID.y, -1), thick + 1
+                ));
                 break;
             case WEST:
                 lp.addConstraint(equalTo(endID.y, startID.y));
                 lp.addConstraint(atMost(endID.x, minLength, startID.x));
 
-                lp.addConstraint(atLeast(ImmutableMap.of(endID.y, 1, getSlice(end.getY()).y, -1), thick));
-                lp.addConstraint(atLeast(ImmutableMap.of(getSlice(end.getY() + 1).y, 1, endID.y, -1), thick + 1));
+                lp.addConstraint(atLeast(ImmutableMap.of(endID.y, 1, vars.getSlice(end.getY(), false), -1), thick));
+                lp.addConstraint(atLeast(
+                    ImmutableMap.of(vars.getSlice(end.getY() + 1, false), 1, endID.y, -1), thick + 1
+                ));
                 break;
         }
     }
 
-    private void addSmallNodeConstraints(LinearProgram.Builder lp, Location start, Location end, Gadget g) {
+    private void addSmallNodeConstraints(
+        LinearProgram.Builder lp, PlacerVariables vars, Location start, Location end, Gadget g
+    ) {
         // ports are correctly offset from gadget offset
-        LocationID id = getGadget(start.getX(), start.getY());
+        LocationID id = vars.getGadget(start.getX(), start.getY());
         for (int i = 0; i < g.getInputSize(); i++) {
             Side side = g.getInput(i);
-            LocationID sideID = getSide(new Side(start, side.getDirection()));
+            LocationID sideID = vars.getSide(new Side(start, side.getDirection()));
             lp.addConstraint(equalTo(id.x, side.getX(), sideID.x));
             lp.addConstraint(equalTo(id.y,  side.getY(), sideID.y));
         }
 
         for (int i = 0; i < g.getOutputSize(); i++) {
             Side side = g.getOutput(i);
-            LocationID sideID = getSide(new Side(start, side.getDirection()));
+            LocationID sideID = vars.getSide(new Side(start, side.getDirection()));
             lp.addConstraint(equalTo(id.x, side.getX(), sideID.x));
             lp.addConstraint(equalTo(id.y, side.getY(), sideID.y));
         }
 
 
         // gadgets within slice boundaries.
-        lp.addConstraint(atLeast(id.x, getSlice(start.getX()).x));
-        lp.addConstraint(atLeast(id.y, getSlice(start.getY()).y));
-        lp.addConstraint(atMost(id.x, g.getSizeX(), getSlice(end.getX() + 1).x));
-        lp.addConstraint(atMost(id.y, g.getSizeY(), getSlice(end.getY() + 1).y));
+        lp.addConstraint(atLeast(id.x, vars.getSlice(start.getX(), true)));
+        lp.addConstraint(atLeast(id.y, vars.getSlice(start.getY(), false)));
+        lp.addConstraint(atMost(id.x, g.getSizeX(), vars.getSlice(end.getX() + 1, true)));
+        lp.addConstraint(atMost(id.y, g.getSizeY(), vars.getSlice(end.getY() + 1, false)));
     }
 
     private void addLargeNodeConstraints(
-        CellConfiguration config, LinearProgram.Builder lp, Location start, Location end, Gadget g
+        CellConfiguration config, LinearProgram.Builder lp, PlacerVariables vars, Location start, Location end, Gadget g
     ) {
-        LargeNode.addConstraint(wirer, shifter, config, lp, start, end, g);
+        LargeNode.addConstraint(wirer, shifter, config, lp, vars, start, end, g);
     }
 
     private void addNodeConstraints(
-        CellConfiguration config, LinearProgram.Builder lp, Location start, Location end, Gadget g
+        CellConfiguration config, LinearProgram.Builder lp, PlacerVariables vars, Location start, Location end, Gadget g
     ) {
         if (!start.equals(end)) {
-            addLargeNodeConstraints(config, lp, start, end, g);
+            addLargeNodeConstraints(config, lp, vars, start, end, g);
         } else {
-            addSmallNodeConstraints(lp, start, end, g);
+            addSmallNodeConstraints(lp, vars, start, end, g);
         }
     }
 
-    private void addConstraints(CellConfiguration config, LinearProgram.Builder lp, Location start, Location end) {
+    private void addConstraints(
+        CellConfiguration config, LinearProgram.Builder lp, PlacerVariables vars, Location start, Location end
+    ) {
         Cell cell = config.getCell(start);
 
         if (cell.getCellType() != CellType.EMPTY) {
@@ -278,50 +316,49 @@ public class LPGadgetPlacer {
                 break;
             case WIRE:
                 if (start.equals(end)) {
-                    addWireConstraints(lp, start, end, cell.getOutputDirection(0), wirer);
+                    addWireConstraints(lp, vars, start, end, cell.getOutputDirection(0), wirer);
                 } else if (Direction.getScalarDirection(end.subtract(start)) == cell.getOutputDirection(0)) {
-                    addWireConstraints(lp, start, end, cell.getOutputDirection(0), wirer);
+                    addWireConstraints(lp, vars, start, end, cell.getOutputDirection(0), wirer);
                 } else {
-                    addWireConstraints(lp, end, start, cell.getOutputDirection(0), wirer);
+                    addWireConstraints(lp, vars, end, start, cell.getOutputDirection(0), wirer);
                 }
                 break;
             case TURN:
                 List<Direction> dirs = ImmutableList.of(cell.getInputDirection(0), cell.getOutputDirection(0));
-                addNodeConstraints(config, lp, start, end, turns.get(dirs));
+                addNodeConstraints(config, lp, vars, start, end, turns.get(dirs));
                 break;
             case CROSSOVER:
-                addNodeConstraints(config, lp, start, end, crossovers.get(ImmutableSet.copyOf(cell.getInputDirections())));
+                Gadget crossover = crossovers.get(ImmutableSet.copyOf(cell.getInputDirections()));
+                addNodeConstraints(config, lp, vars, start, end, crossover);
                 break;
             case NODE:
             case PORT:
-                addNodeConstraints(config, lp, start, end, gadgets.get(cell.getName()));
+                addNodeConstraints(config, lp, vars, start, end, gadgets.get(cell.getName()));
                 break;
         }
     }
 
-    private Map<String, Double> runLP(CellConfiguration config) throws Exception {
-        LinearProgram.Builder lp = LinearProgram.builder();
-
+    private LinearProgram buildLP(CellConfiguration config, LinearProgram.Builder lp, PlacerVariables vars) {
 //        ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
 //        for (int i = 1; i <= config.getSizeX(); i++) {
-//            builder.put(getSlice(i).x, 1);
+//            builder.put(vars.getSlice(i, true), 1);
 //        }
 //
 //        for (int i = 1; i <= config.getSizeY(); i++) {
-//            builder.put(getSlice(i).y, 1);
+//            builder.put(vars.getSlice(i, false), 1);
 //        }
-//        builder.put(getSlice(0).x, -config.getSizeX());
-//        builder.put(getSlice(0).y, -config.getSizeY());
+//        builder.put(vars.getSlice(0, true), -config.getSizeX());
+//        builder.put(vars.getSlice(0, false), -config.getSizeY());
 //
 //        lp.setObjective(builder.build());
 //        System.out.println(equalTo(builder.build(), 1));
 
         lp.setObjective(ImmutableMap.of(
-            getSlice(0).x, -1, getSlice(config.getSizeX()).x, 1,
-            getSlice(0).y, -1, getSlice(config.getSizeY()).y, 1
+            vars.getSlice(0, true), -1, vars.getSlice(config.getSizeX(), true), 1,
+            vars.getSlice(0, false), -1, vars.getSlice(config.getSizeY(), false), 1
         ));
 
-        addBasicConstraints(config, lp);
+        addBasicConstraints(config, lp, vars);
 
         // ports match gadget offsets, and gadget boundaries match up to the slices
         HashSet<Location> seen = new HashSet<>();
@@ -334,18 +371,24 @@ public class LPGadgetPlacer {
 
                 seen.add(loc);
                 Location end = findEndpoint(config, loc, seen);
-                addConstraints(config, lp, loc, end);
+                addConstraints(config, lp, vars, loc, end);
             }
         }
 
-        return lp.build().getSolution(new JOptimizerSolver());
+        return lp.build();
     }
 
     private void placeWire(
-        GadgetConfiguration config, Map<String, Double> sol, Location start, Location end, Direction d, Wirer wirer
+        GadgetConfiguration config,
+        PlacerVariables vars,
+        Solution sol,
+        Location start,
+        Location end,
+        Direction d,
+        Wirer wirer
     ) {
-        LocationID startID = getSide(new Side(start, d.opposite()));
-        LocationID endID = getSide(new Side(end, d));
+        LocationID startID = vars.getSide(new Side(start, d.opposite()));
+        LocationID endID = vars.getSide(new Side(end, d));
 
         Preconditions.checkArgument(wirer.canWire(d), d);
         int thick = wirer.minThickness(d) * 2; // TODO replace this with better inequalities
@@ -364,18 +407,19 @@ public class LPGadgetPlacer {
     private void placeNode(
         CellConfiguration cellConfig,
         GadgetConfiguration gadgetConfig,
-        Map<String, Double> sol,
+        PlacerVariables vars,
+        Solution sol,
         Location start,
         Location end,
         Gadget g
     ) {
         if (!start.equals(end)) {
-            LargeNode.place(wirer, shifter, cellConfig, gadgetConfig, sol, start, end, g);
+            LargeNode.place(wirer, shifter, cellConfig, gadgetConfig, vars, sol, start, end, g);
             return;
         }
 
         // ports are correctly offset from gadget offset
-        LocationID id = getGadget(start.getX(), start.getY());
+        LocationID id = vars.getGadget(start.getX(), start.getY());
         int x = roundAndCheck(sol.get(id.x));
         int y = roundAndCheck(sol.get(id.y));
         gadgetConfig.connect(new Location(x, y), g);
@@ -384,7 +428,8 @@ public class LPGadgetPlacer {
     private void placeGadget(
         CellConfiguration cellConfig,
         GadgetConfiguration gadgetConfig,
-        Map<String, Double> sol,
+        PlacerVariables vars,
+        Solution sol,
         Location start,
         Location end
     ) {
@@ -396,29 +441,29 @@ public class LPGadgetPlacer {
                 break;
             case WIRE:
                 if (start.equals(end)) {
-                    placeWire(gadgetConfig, sol, start, end, cell.getOutputDirection(0), wirer);
+                    placeWire(gadgetConfig, vars, sol, start, end, cell.getOutputDirection(0), wirer);
                 } else if (Direction.getScalarDirection(end.subtract(start)) == cell.getOutputDirection(0)) {
-                    placeWire(gadgetConfig, sol, start, end, cell.getOutputDirection(0), wirer);
+                    placeWire(gadgetConfig, vars, sol, start, end, cell.getOutputDirection(0), wirer);
                 } else {
-                    placeWire(gadgetConfig, sol, end, start, cell.getOutputDirection(0), wirer);
+                    placeWire(gadgetConfig, vars, sol, end, start, cell.getOutputDirection(0), wirer);
                 }
                 break;
             case TURN:
                 List<Direction> dirs = ImmutableList.of(cell.getInputDirection(0), cell.getOutputDirection(0));
-                placeNode(cellConfig, gadgetConfig, sol, start, end, turns.get(dirs));
+                placeNode(cellConfig, gadgetConfig, vars, sol, start, end, turns.get(dirs));
                 break;
             case CROSSOVER:
                 Set inputDirs = ImmutableSet.copyOf(cell.getInputDirections());
-                placeNode(cellConfig, gadgetConfig, sol, start, end, crossovers.get(inputDirs));
+                placeNode(cellConfig, gadgetConfig, vars, sol, start, end, crossovers.get(inputDirs));
                 break;
             case NODE:
             case PORT:
-                placeNode(cellConfig, gadgetConfig, sol, start, end, gadgets.get(cell.getName()));
+                placeNode(cellConfig, gadgetConfig, vars, sol, start, end, gadgets.get(cell.getName()));
                 break;
         }
     }
 
-    private GadgetConfiguration placeGadgets(CellConfiguration cellConfig, Map<String, Double> sol) {
+    private GadgetConfiguration placeGadgets(CellConfiguration cellConfig, PlacerVariables vars, Solution sol) {
         GadgetConfiguration gadgetConfig = new GadgetConfiguration();
 
         // ports match gadget offsets, and gadget boundaries match up to the slices
@@ -432,44 +477,54 @@ public class LPGadgetPlacer {
 
                 seen.add(loc);
                 Location end = findEndpoint(cellConfig, loc, seen);
-                placeGadget(cellConfig, gadgetConfig, sol, loc, end);
+                placeGadget(cellConfig, gadgetConfig, vars, sol, loc, end);
             }
         }
 
         return gadgetConfig;
     }
 
-    private void print(CellConfiguration config, Map<String, Double> sol) {
-        List<Map.Entry<String, Double>> entries = ImmutableList.copyOf(sol.entrySet());
-
-        entries = Ordering.from(new Comparator<Map.Entry<String, Double>>() {
+    private void print(LinearProgram lp, final Solution sol) {
+        List<Variable> vars = Ordering.from(new Comparator<Variable>() {
             @Override
-            public int compare(Map.Entry<String, Double> o1, Map.Entry<String, Double> o2) {
-                return o1.getValue().compareTo(o2.getValue());
+            public int compare(Variable o1, Variable o2) {
+                return Double.compare(sol.get(o1), sol.get(o2));
             }
-        }).sortedCopy(entries);
+        }).sortedCopy(lp.getVariables());
 
-        for (Map.Entry<String, Double> entry : entries) {
-            if (entry.getKey().contains("x")) {
-                System.out.println(entry);
+        for (Variable var : vars) {
+            if (var.toString().contains("x")) {
+                System.out.println(var + "=" + sol.get(var));
             }
         }
 
-        for (Map.Entry<String, Double> entry : entries) {
-            if (entry.getKey().contains("y")) {
-                System.out.println(entry);
+        for (Variable var : vars) {
+            if (var.toString().contains("y")) {
+                System.out.println(var + "=" + sol.get(var));
             }
         }
     }
 
+    /**
+     * Solves the program in parts, since the x and y offsets are usually independent of each other
+     */
+    private Solution solve(LinearProgram lp) throws Exception {
+        return lp.getSolution(solver, executor);
+    }
+
     public GadgetConfiguration place(CellConfiguration cellConfig) throws Exception {
         System.out.println("cost: " + new AbstractCostFunction(cellConfig, gadgetSet).getTotalCost());
 
-        Map<String, Double> sol = runLP(cellConfig);
-        System.out.println(sol.get(getSlice(0).x) + "," + sol.get(getSlice(cellConfig.getSizeX()).x) +
-            "," +  sol.get(getSlice(0).y) + "," + sol.get(getSlice(cellConfig.getSizeY()).y));
-        print(cellConfig, sol);
+        LinearProgram.Builder builder = LinearProgram.builder();
+        PlacerVariables vars = new PlacerVariables(builder, cellConfig.getSizeX(), cellConfig.getSizeY());
+        LinearProgram lp = buildLP(cellConfig, builder, vars);
+        Solution sol = solve(lp);
+        System.out.println(
+            sol.get(vars.getSlice(0, true)) + "," + sol.get(vars.getSlice(cellConfig.getSizeX(), true)) + "," +
+            sol.get(vars.getSlice(0, false)) + "," + sol.get(vars.getSlice(cellConfig.getSizeY(), false))
+        );
+        print(lp, sol);
 
-        return placeGadgets(cellConfig, sol);
+        return placeGadgets(cellConfig, vars, sol);
     }
 }
@@ -1,12 +1,20 @@
 package transform.lp;
 
-import java.util.Map;
-
 /**
  * A linear program constraint, that represents A x <= b or Ax = b
  */
 public interface Constraint {
     boolean isEquality();
-    Map<String, Double> getA();
+
+    /**
+     * The indices of the variables of the row of A, which are all different
+     */
+    int[] getVariables();
+
+    /**
+     * The coefficients of the variables of the row of A, in the same order
+     */
+    double[] getCoefficients();
+
     double getB();
 }
@@ -0,0 +1,216 @@
+package transform.lp;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Solves programs whose constraints are all of the form x_j - x_i <= w, x_j <= w or x_j >= w exactly, by finding the
+ * least solution with longest paths. The least solution is optimal when the objective only decreases with variables
+ * that can't be any larger. Any other program is handed to the fallback solver.
+ */
+public class DifferenceConstraintSolver implements LPSolver {
+    private static final double EPSILON = 1e-9;
+
+    private final LPSolver fallback;
+
+    public DifferenceConstraintSolver(LPSolver fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public double[] minimize(double[] c, double[][] G, double[] h, double[][] A, double[] b) throws Exception {
+        return minimize(c, SparseMatrix.fromDense(G, c.length), h, SparseMatrix.fromDense(A, c.length), b);
+    }
+
+    @Override
+    public double[] minimize(double[] c, SparseMatrix G, double[] h, SparseMatrix A, double[] b) throws Exception {
+        return minimize(c, G, h, A, b, null);
+    }
+
+    @Override
+    public double[] minimize(double[] c, SparseMatrix G, double[] h, SparseMatrix A, double[] b, List<?> keys)
+        throws Exception {
+        double[] solution = solve(c, G, h, A, b);
+        if (solution == null) {
+            return keys == null ? fallback.minimize(c, G, h, A, b) : fallback.minimize(c, G, h, A, b, keys);
+        }
+
+        return solution;
+    }
+
+    /**
+     * Gets the optimal solution, or null if the program isn't a system of difference constraints that this can solve
+     */
+    static double[] solve(double[] c, SparseMatrix G, double[] h, SparseMatrix A, double[] b) {
+        DifferenceSystem system = new DifferenceSystem(c.length);
+        for (int i = 0; i < G.getRows(); i++) {
+            if (!system.add(G, i, h[i], 1)) {
+                return null;
+            }
+        }
+
+        for (int i = 0; i < A.getRows(); i++) {
+            if (!system.add(A, i, b[i], 1) || !system.add(A, i, -b[i], -1)) {
+                return null;
+            }
+        }
+
+        return system.solve(c);
+    }
+
+    /**
+     * The constraints as edges, where an edge from i to j with weight w means x_j >= x_i + w, along with bounds on
+     * each variable. Since x >= 0, every lower bound starts at 0.
+     */
+    private static class DifferenceSystem {
+        private final int n;
+        private final double[] lower;
+        private final double[] upper;
+        private int edges;
+        private int[] from;
+        private int[] to;
+        private double[] weights;
+
+        private DifferenceSystem(int n) {
+            this.n = n;
+            this.lower = new double[n];
+            this.upper = new double[n];
+            Arrays.fill(upper, Double.POSITIVE_INFINITY);
+            this.from = new int[16];
+            this.to = new int[16];
+            this.weights = new double[16];
+        }
+
+        /**
+         * Adds the row times the sign, which must be at most rhs, and returns false if it isn't a difference
+         */
+        private boolean add(SparseMatrix m, int row, double rhs, int sign) {
+            int start = m.rowStart(row);
+            switch (m.rowEnd(row) - start) {
+                case 0:
+                    return rhs >= -EPSILON;
+                case 1:
+                    int j = m.getColumn(start);
+                    double a = sign * m.getValue(start);
+                    if (a > 0) {
+                        upper[j] = Math.min(upper[j], rhs / a);
+                    } else {
+                        lower[j] = Math.max(lower[j], rhs / a);
+                    }
+                    return true;
+                case 2:
+                    double a1 = sign * m.getValue(start);
+                    double a2 = sign * m.getValue(start + 1);
+                    int j1 = m.getColumn(start);
+                    int j2 = m.getColumn(start + 1);
+                    if (a1 != -a2 || j1 == j2) {
+                        return false;
+                    }
+
+                    // x_pos - x_neg <= rhs / a is x_neg >= x_pos - rhs / a
+                    double scale = Math.abs(a1);
+                    addEdge(a1 > 0 ? j1 : j2, a1 > 0 ? j2 : j1, -rhs / scale);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private void addEdge(int i, int j, double w) {
+            if (edges == weights.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+                weights = Arrays.copyOf(weights, edges * 2);
+            }
+            from[edges] = i;
+            to[edges] = j;
+            weights[edges] = w;
+            edges++;
+        }
+
+        private double[] solve(double[] c) {
+            double[] least = lower.clone();
+            if (!relax(least, from, to, weights, 1)) {
+                return null;
+            }
+
+            for (int j = 0; j < n; j++) {
+                if (least[j] > upper[j] + EPSILON) {
+                    return null;
+                }
+            }
+
+            // the least solution is only optimal if every variable that the objective wants larger can't be
+            boolean increasing = true;
+            for (double cj : c) {
+                increasing &= cj >= 0;
+            }
+
+            if (!increasing) {
+                double[] greatest = upper.clone();
+                if (!relax(greatest, to, from, weights, -1)) {
+                    return null;
+                }
+
+                for (int j = 0; j < n; j++) {
+                    if (c[j] < 0 && greatest[j] > least[j] + EPSILON) {
+                        return null;
+                    }
+                }
+            }
+
+            return least;
+        }
+
+        /**
+         * Raises (sign 1) or lowers (sign -1) the bounds along the edges until every edge holds, with Bellman-Ford on
+         * a queue. Returns false if the bounds would never settle, because of a cycle.
+         */
+        private boolean relax(double[] bounds, int[] tails, int[] heads, double[] w, int sign) {
+            int[] starts = new int[n + 1];
+            for (int e = 0; e < edges; e++) {
+                starts[tails[e] + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                starts[i + 1] += starts[i];
+            }
+
+            int[] out = new int[edges];
+            int[] next = Arrays.copyOf(starts, n);
+            for (int e = 0; e < edges; e++) {
+                out[next[tails[e]]++] = e;
+            }
+
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            boolean[] queued = new boolean[n];
+            int[] updates = new int[n];
+            for (int i = 0; i < n; i++) {
+                queue.add(i);
+                queued[i] = true;
+            }
+
+            while (!queue.isEmpty()) {
+                int i = queue.poll();
+                queued[i] = false;
+                for (int k = starts[i]; k < starts[i + 1]; k++) {
+                    int e = out[k];
+                    int j = heads[e];
+                    double bound = bounds[i] + sign * w[e];
+                    if (sign * (bound - bounds[j]) > EPSILON) {
+                        bounds[j] = bound;
+                        if (++updates[j] > n) {
+                            return false;
+                        }
+                        if (!queued[j]) {
+                            queue.add(j);
+                            queued[j] = true;
+                        }
+                    }
+                }
+            }
+
+            return true;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package transform.lp;
 
+import cern.colt.matrix.DoubleMatrix2D;
+import cern.colt.matrix.impl.SparseDoubleMatrix2D;
 import com.joptimizer.optimizers.LPOptimizationRequest;
 import com.joptimizer.optimizers.LPPrimalDualMethod;
 import com.joptimizer.optimizers.OptimizationResponse;
 
+import java.util.List;
+
 public class JOptimizerSolver implements LPSolver {
     @Override
     public double[] minimize(double[] c, double[][] G, double[] h, double[][] A, double[] b) throws Exception {
@@ -20,8 +24,53 @@ public class JOptimizerSolver implements LPSolver {
         or.setA(A);
         or.setB(b);
         or.setLb(lb);
-        or.setDumpProblem(true);
 
+        return optimize(or);
+    }
+
+    /**
+     * Hands the matrices to JOptimizer as colt sparse matrices, so that they are never stored densely
+     */
+    @Override
+    public double[] minimize(double[] c, SparseMatrix G, double[] h, SparseMatrix A, double[] b) throws Exception {
+        int n = c.length;
+
+        LPOptimizationRequest or = new LPOptimizationRequest();
+        or.setC(c);
+        if (G.getRows() > 0) {
+            or.setG(toColt(G));
+            or.setH(h);
+        }
+        if (A.getRows() > 0) {
+            or.setA(toColt(A));
+            or.setB(b);
+        }
+        or.setLb(new double[n]);
+
+        return optimize(or);
+    }
+
+    /**
+     * Interior point methods don't start from earlier solutions, so the keys aren't used
+     */
+    @Override
+    public double[] minimize(double[] c, SparseMatrix G, double[] h, SparseMatrix A, double[] b, List<?> keys)
+        throws Exception {
+        return minimize(c, G, h, A, b);
+    }
+
+    private static DoubleMatrix2D toColt(SparseMatrix m) {
+        DoubleMatrix2D colt = new SparseDoubleMatrix2D(m.getRows(), m.getColumns());
+        for (int i = 0; i < m.getRows(); i++) {
+            for (int k = m.rowStart(i); k < m.rowEnd(i); k++) {
+                colt.setQuick(i, m.getColumn(k), colt.getQuick(i, m.getColumn(k)) + m.getValue(k));
+            }
+        }
+
+        return colt;
+    }
+
+    private static double[] optimize(LPOptimizationRequest or) throws Exception {
         // optimizer
         LPPrimalDualMethod opt = new LPPrimalDualMethod();
 
@@ -1,5 +1,7 @@
 package transform.lp;
 
+import java.util.List;
+
 public interface LPSolver {
     /**
      * Solves the minimization problem c^T x, G x <= h, Ax = b, x >= 0
@@ -11,4 +13,17 @@ public interface LPSolver {
      * @return a minimal vector x satisfying the constraints
      */
     double[] minimize(double[] c, double[][] G, double[] h, double[][] A, double[] b) throws Exception;
+
+    /**
+     * Solves the same problem as the dense minimize, with the constraint matrices stored sparsely
+     */
+    double[] minimize(double[] c, SparseMatrix G, double[] h, SparseMatrix A, double[] b) throws Exception;
+
+    /**
+     * Solves the same problem as the sparse minimize, where each variable also has a key that is equal to the key of
+     * the same variable in other programs, so that a solver can start from what it found for earlier programs
+     * @param keys the key of each variable, or null if they have none
+     */
+    double[] minimize(double[] c, SparseMatrix G, double[] h, SparseMatrix A, double[] b, List<?> keys)
+        throws Exception;
 }
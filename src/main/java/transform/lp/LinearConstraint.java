@@ -0,0 +1,89 @@
+package transform.lp;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A constraint between two linear expressions, stored as the variables and coefficients of lhs - rhs
+ */
+abstract class LinearConstraint implements Constraint {
+    private final int[] variables;
+    private final double[] coefficients;
+    private final double b;
+
+    LinearConstraint(
+        Map<Variable, ? extends Number> lhs, double lhsC, Map<Variable, ? extends Number> rhs, double rhsC
+    ) {
+        b = rhsC - lhsC;
+        int[] vars = new int[lhs.size() + rhs.size()];
+        double[] coeffs = new double[vars.length];
+        int size = 0;
+        for (Map.Entry<Variable, ? extends Number> entry : lhs.entrySet()) {
+            size = add(vars, coeffs, size, entry.getKey().getIndex(), entry.getValue().doubleValue());
+        }
+
+        for (Map.Entry<Variable, ? extends Number> entry : rhs.entrySet()) {
+            size = add(vars, coeffs, size, entry.getKey().getIndex(), -entry.getValue().doubleValue());
+        }
+
+        variables = Arrays.copyOf(vars, size);
+        coefficients = Arrays.copyOf(coeffs, size);
+    }
+
+    /**
+     * Adds the coefficient to the variable's, if it is already there, and returns the new size
+     */
+    private static int add(int[] vars, double[] coeffs, int size, int var, double coeff) {
+        for (int i = 0; i < size; i++) {
+            if (vars[i] == var) {
+                coeffs[i] += coeff;
+                return size;
+            }
+        }
+
+        vars[size] = var;
+        coeffs[size] = coeff;
+        return size + 1;
+    }
+
+    @Override
+    public int[] getVariables() {
+        return variables.clone();
+    }
+
+    @Override
+    public double[] getCoefficients() {
+        return coefficients.clone();
+    }
+
+    @Override
+    public double getB() {
+        return b;
+    }
+
+    /**
+     * The symbol between the two sides of the constraint
+     */
+    abstract String getRelation();
+
+    /**
+     * Renders the constraint with the names of the given variables, indexed by their indices
+     */
+    String toString(Variable[] names) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < variables.length; i++) {
+            if (i > 0) {
+                builder.append(" + ");
+            }
+            builder.append(coefficients[i]).append(" * ");
+            builder.append(names == null ? "v" + variables[i] : names[variables[i]].toString());
+        }
+        builder.append(" ").append(getRelation()).append(" ").append(b);
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toString(null);
+    }
+}
@@ -1,77 +1,86 @@
 package transform.lp;
 
-import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.*;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
- * A linear program with variables names
+ * A linear program over variables numbered by its builder
  */
 public class LinearProgram {
-    private final BiMap<String, Integer> vars;
-    private final Map<String, Double> objective;
+    private static final double EPSILON = 1e-9;
+
+    private final List<Variable> vars;
     private final List<Constraint> equal;
     private final List<Constraint> unequal;
     private final double[] c;
     private final double[] b;
-    private final double[][] a;
+    private final SparseMatrix a;
     private final double[] h;
-    private final double[][] g;
+    private final SparseMatrix g;
+
+    // the groups of variables joined by constraints, found when the program is first solved in parts
+    private List<Block> blocks;
 
     private LinearProgram(
-        BiMap<String, Integer> vars, Map<String, Double> objective, List<Constraint> equal, List<Constraint> unequal
+        List<Variable> vars, Map<Variable, ? extends Number> objective, List<Constraint> equal,
+        List<Constraint> unequal
     ) {
         this.vars = vars;
-        this.objective = objective;
         this.equal = equal;
         this.unequal = unequal;
         this.c = new double[vars.size()];
         this.b = new double[equal.size()];
-        this.a = new double[equal.size()][];
         this.h = new double[unequal.size()];
-        this.g = new double[unequal.size()][];
 
         // make objective
-        for (String key : objective.keySet()) {
-            c[vars.get(key)] = objective.get(key);
+        for (Map.Entry<Variable, ? extends Number> entry : objective.entrySet()) {
+            c[entry.getKey().getIndex()] = entry.getValue().doubleValue();
         }
 
-        // make equalities
-        for (int i = 0; i < equal.size(); i++) {
-            Constraint c = equal.get(i);
-            b[i] = c.getB();
-            a[i] = new double[vars.size()];
+        // make equalities and inequalities, which only touch a few variables each
+        this.a = getMatrix(equal, b);
+        this.g = getMatrix(unequal, h);
+    }
 
-            Map<String, Double> A = c.getA();
-            for (String key : A.keySet()) {
-                a[i][vars.get(key)] = A.get(key);
+    private SparseMatrix getMatrix(List<Constraint> constraints, double[] rhs) {
+        SparseMatrix.Builder builder = SparseMatrix.builder(vars.size());
+        for (int i = 0; i < constraints.size(); i++) {
+            Constraint c = constraints.get(i);
+            rhs[i] = c.getB();
+            int[] variables = c.getVariables();
+            double[] coefficients = c.getCoefficients();
+            for (int k = 0; k < variables.length; k++) {
+                builder.add(variables[k], coefficients[k]);
             }
+            builder.endRow();
         }
 
-        // make inequalities
-        for (int i = 0; i < unequal.size(); i++) {
-            Constraint c = unequal.get(i);
-            h[i] = c.getB();
-            g[i] = new double[vars.size()];
-
-            Map<String, Double> A = c.getA();
-            for (String key : A.keySet()) {
-                g[i][vars.get(key)] = A.get(key);
-            }
-        }
+        return builder.build();
     }
 
     public static Builder builder() {
         return new Builder();
     }
 
+    public List<Variable> getVariables() {
+        return vars;
+    }
+
     public double[] getC() {
         return c;
     }
 
-    public double[][] getA() {
+    public SparseMatrix getA() {
         return a;
     }
 
@@ -79,7 +88,7 @@ public class LinearProgram {
         return b;
     }
 
-    public double[][] getG() {
+    public SparseMatrix getG() {
         return g;
     }
 
@@ -87,75 +96,296 @@ public class LinearProgram {
         return h;
     }
 
-    public Map<String, Double> getSolution(double[] solution) {
-        BiMap<Integer, String> inverse = vars.inverse();
+    public Solution getSolution(double[] solution) {
+        Preconditions.checkArgument(solution.length == vars.size(), "Expected %s values", vars.size());
+        return new Solution(solution);
+    }
+
+    public Solution getSolution(LPSolver solver) throws Exception {
+        return getSolution(solver.minimize(c, g, h, a, b, getKeys(vars)));
+    }
+
+    /**
+     * Solves each group of variables joined by constraints as its own program, concurrently on the executor. Since
+     * the objective is a sum over the variables, the solutions together are a solution of the whole program.
+     */
+    public Solution getSolution(final LPSolver solver, ExecutorService executor) throws Exception {
+        checkEmptyRows(g, h, false);
+        checkEmptyRows(a, b, true);
+        List<Block> blocks = getBlocks();
+        List<Future<double[]>> futures = new ArrayList<>();
+        for (final Block block : blocks) {
+            futures.add(executor.submit(new Callable<double[]>() {
+                @Override
+                public double[] call() throws Exception {
+                    return block.solve(solver);
+                }
+            }));
+        }
+
+        double[] solution = new double[vars.size()];
+        try {
+            for (int i = 0; i < blocks.size(); i++) {
+                int[] columns = blocks.get(i).columns;
+                double[] values = futures.get(i).get();
+                for (int k = 0; k < columns.length; k++) {
+                    solution[columns[k]] = values[k];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving", e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), Exception.class);
+            throw Throwables.propagate(e.getCause());
+        } finally {
+            for (Future<double[]> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        return getSolution(solution);
+    }
+
+    /**
+     * The number of groups of variables that can be solved on their own
+     */
+    public int getBlockCount() {
+        return getBlocks().size();
+    }
 
-        ImmutableMap.Builder<String, Double> builder = ImmutableMap.builder();
-        for (int i = 0; i < solution.length; i++) {
-            builder.put(inverse.get(i), solution[i]);
+    private synchronized List<Block> getBlocks() {
+        if (blocks == null) {
+            blocks = findBlocks();
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Groups the variables joined by constraints, in the order of their first variables. Constraints without any
+     * variables are left out, and checked on their own by checkEmptyRows.
+     */
+    private List<Block> findBlocks() {
+        int n = vars.size();
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+        join(parent, a);
+        join(parent, g);
+
+        // the index of each variable within its block
+        int[] local = new int[n];
+        int[] blockOf = new int[n];
+        int[] sizes = new int[n];
+        int count = 0;
+        Arrays.fill(blockOf, -1);
+        for (int i = 0; i < n; i++) {
+            int root = find(parent, i);
+            if (blockOf[root] == -1) {
+                blockOf[root] = count++;
+            }
+            blockOf[i] = blockOf[root];
+            local[i] = sizes[blockOf[i]]++;
+        }
+
+        int[][] columns = new int[count][];
+        for (int k = 0; k < count; k++) {
+            columns[k] = new int[sizes[k]];
+        }
+        for (int i = 0; i < n; i++) {
+            columns[blockOf[i]][local[i]] = i;
+        }
+
+        int[][] aRows = getRows(a, blockOf, count);
+        int[][] gRows = getRows(g, blockOf, count);
+        ImmutableList.Builder<Block> builder = ImmutableList.builder();
+        for (int k = 0; k < count; k++) {
+            builder.add(new Block(columns[k], local, aRows[k], gRows[k]));
         }
 
         return builder.build();
     }
 
-    public Map<String, Double> getSolution(LPSolver solver) throws Exception {
-        return getSolution(solver.minimize(c, g, h, a, b));
+    /**
+     * Constraints without any variables aren't in any block, so they have to hold on their own, 0 <= h or 0 = b
+     */
+    private static void checkEmptyRows(SparseMatrix m, double[] rhs, boolean isEquality) throws Exception {
+        for (int i = 0; i < m.getRows(); i++) {
+            if (m.rowStart(i) == m.rowEnd(i) && (isEquality ? Math.abs(rhs[i]) > EPSILON : rhs[i] < -EPSILON)) {
+                throw new Exception("Infeasible problem");
+            }
+        }
+    }
+
+    private static void join(int[] parent, SparseMatrix m) {
+        for (int i = 0; i < m.getRows(); i++) {
+            for (int k = m.rowStart(i) + 1; k < m.rowEnd(i); k++) {
+                int x = find(parent, m.getColumn(m.rowStart(i)));
+                int y = find(parent, m.getColumn(k));
+                parent[Math.max(x, y)] = Math.min(x, y);
+            }
+        }
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+
+        return i;
+    }
+
+    /**
+     * The rows of the matrix in each block, by the block of their first entry
+     */
+    private static int[][] getRows(SparseMatrix m, int[] blockOf, int count) {
+        int[] sizes = new int[count];
+        for (int i = 0; i < m.getRows(); i++) {
+            if (m.rowStart(i) < m.rowEnd(i)) {
+                sizes[blockOf[m.getColumn(m.rowStart(i))]]++;
+            }
+        }
+
+        int[][] rows = new int[count][];
+        for (int k = 0; k < count; k++) {
+            rows[k] = new int[sizes[k]];
+            sizes[k] = 0;
+        }
+        for (int i = 0; i < m.getRows(); i++) {
+            if (m.rowStart(i) < m.rowEnd(i)) {
+                int k = blockOf[m.getColumn(m.rowStart(i))];
+                rows[k][sizes[k]++] = i;
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * The descriptions of the variables, which stay the same from one program to the next
+     */
+    private static List<Object> getKeys(List<Variable> variables) {
+        List<Object> keys = new ArrayList<>();
+        for (Variable var : variables) {
+            keys.add(var.getDescription());
+        }
+
+        return keys;
+    }
+
+    private static double[] select(double[] v, int[] rows) {
+        double[] selected = new double[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            selected[i] = v[rows[i]];
+        }
+
+        return selected;
+    }
+
+    /**
+     * The program restricted to a group of variables, and the constraints on them
+     */
+    private class Block {
+        private final int[] columns;
+        private final int[] local;
+        private final int[] aRows;
+        private final int[] gRows;
+
+        private Block(int[] columns, int[] local, int[] aRows, int[] gRows) {
+            this.columns = columns;
+            this.local = local;
+            this.aRows = aRows;
+            this.gRows = gRows;
+        }
+
+        private double[] solve(LPSolver solver) throws Exception {
+            double[] blockC = new double[columns.length];
+            List<Variable> blockVars = new ArrayList<>();
+            for (int k = 0; k < columns.length; k++) {
+                blockC[k] = c[columns[k]];
+                blockVars.add(vars.get(columns[k]));
+            }
+
+            // a variable without constraints is as small as it can be
+            if (aRows.length == 0 && gRows.length == 0) {
+                for (int k = 0; k < columns.length; k++) {
+                    Preconditions.checkState(blockC[k] >= 0, "Unbounded variable %s", vars.get(columns[k]));
+                }
+                return new double[columns.length];
+            }
+
+            return solver.minimize(
+                blockC,
+                g.select(gRows, local, columns.length),
+                select(h, gRows),
+                a.select(aRows, local, columns.length),
+                select(b, aRows),
+                getKeys(blockVars)
+            );
+        }
+    }
+
+    /**
+     * Renders every constraint with the names of its variables, for debugging
+     */
+    @Override
+    public String toString() {
+        Variable[] names = vars.toArray(new Variable[vars.size()]);
+        StringBuilder builder = new StringBuilder();
+        for (Constraint constraint : ImmutableList.<Constraint>builder().addAll(equal).addAll(unequal).build()) {
+            String line = constraint instanceof LinearConstraint ?
+                ((LinearConstraint) constraint).toString(names) : constraint.toString();
+            builder.append(line).append("\n");
+        }
+
+        return builder.toString();
     }
 
     public static class Builder {
         private final ArrayList<Constraint> equality;
         private final ArrayList<Constraint> inequality;
-        private Map<String, ? extends Number> objective;
-        private final Set<String> vars;
+        private final ArrayList<Variable> vars;
+        private Map<Variable, ? extends Number> objective;
 
         private Builder() {
             equality = new ArrayList<>();
             inequality = new ArrayList<>();
-            vars = new HashSet<>();
+            vars = new ArrayList<>();
         }
 
-        public void setObjective(Map<String, ? extends Number> objective) {
+        /**
+         * Adds a variable with the next index, whose description is only turned into a name when it is printed
+         */
+        public Variable addVariable(Object description) {
+            Variable var = new Variable(vars.size(), description);
+            vars.add(var);
+            return var;
+        }
+
+        public int getVariableCount() {
+            return vars.size();
+        }
+
+        public void setObjective(Map<Variable, ? extends Number> objective) {
             Preconditions.checkState(this.objective == null);
             this.objective = objective;
         }
 
         public void addConstraint(Constraint c) {
-            System.out.println(c);
             if (c.isEquality()) {
                 equality.add(c);
             } else {
                 inequality.add(c);
             }
-
-            for (String key : c.getA().keySet()) {
-                vars.add(key);
-            }
         }
 
         public LinearProgram build() {
-            for (String key : objective.keySet()) {
-                vars.add(key);
-            }
-
-            ImmutableBiMap.Builder<String, Integer> index = ImmutableBiMap.builder();
-
-            int i = 0;
-            for (String s : vars) {
-                index.put(s, i);
-                i++;
-            }
-
-            Map<String, Double> obj = Maps.transformValues(ImmutableMap.copyOf(objective),
-                new Function<Number, Double>() {
-                    @Override
-                    public Double apply(Number input) {
-                        return input.doubleValue();
-                    }
-                }
-            );
-
+            Preconditions.checkState(objective != null, "No objective was set");
             return new LinearProgram(
-                index.build(), obj, ImmutableList.copyOf(equality), ImmutableList.copyOf(inequality)
+                ImmutableList.copyOf(vars), objective, ImmutableList.copyOf(equality), ImmutableList.copyOf(inequality)
             );
         }
     }
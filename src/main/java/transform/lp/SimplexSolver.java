@@ -0,0 +1,658 @@
+package transform.lp;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The revised simplex method on the sparse columns of a program, with the inverse of the basis kept as a product of
+ * sparse eta matrices, one per pivot, and refactored from the columns of the basis every so often. Solutions are
+ * vertices, so they are integral when the constraints are totally unimodular.
+ *
+ * When the variables have keys, whether each variable and each inequality's slack was basic in the last optimal basis
+ * it was part of is kept by key, so a later program starts from the same basis even if its variables are numbered
+ * differently or some have come or gone. Slacks are keyed by the keys and coefficients of their rows, and the slacks
+ * of new rows start out basic. If only the right hand side changed enough to make the basis infeasible, the dual
+ * simplex method repairs it. Only so many keys are kept, and the least recently used are forgotten first.
+ */
+public class SimplexSolver implements LPSolver {
+    private static final double EPSILON = 1e-9;
+    private static final int DEFAULT_MAX_KEYS = 1 << 20;
+
+    private final ConcurrentMap<Object, Boolean> basic;
+    private final AtomicInteger warmStarts = new AtomicInteger();
+    private final AtomicLong iterations = new AtomicLong();
+
+    public SimplexSolver() {
+        this(DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * @param maxKeys the number of variables and slacks whose last basis is kept
+     */
+    public SimplexSolver(int maxKeys) {
+        Preconditions.checkArgument(maxKeys >= 0, "The number of kept keys can't be negative");
+        this.basic = CacheBuilder.newBuilder().maximumSize(maxKeys).<Object, Boolean>build().asMap();
+    }
+
+    @Override
+    public double[] minimize(double[] c, double[][] G, double[] h, double[][] A, double[] b) throws Exception {
+        return minimize(c, SparseMatrix.fromDense(G, c.length), h, SparseMatrix.fromDense(A, c.length), b);
+    }
+
+    @Override
+    public double[] minimize(double[] c, SparseMatrix G, double[] h, SparseMatrix A, double[] b) throws Exception {
+        return minimize(c, G, h, A, b, null);
+    }
+
+    @Override
+    public double[] minimize(double[] c, SparseMatrix G, double[] h, SparseMatrix A, double[] b, List<?> keys)
+        throws Exception {
+        Simplex simplex = new Simplex(c, G, h, A, b);
+        Object[] columnKeys = keys == null ? null : getColumnKeys(keys, G);
+        int[] start = columnKeys == null ? null : getStart(columnKeys, c.length, simplex.m);
+        try {
+            if (start != null && simplex.warmStart(start)) {
+                warmStarts.incrementAndGet();
+            } else {
+                simplex.coldStart();
+            }
+
+            simplex.primal(simplex.cost);
+        } finally {
+            iterations.addAndGet(simplex.iterations);
+        }
+
+        if (columnKeys != null && simplex.getBasis() != null) {
+            for (int j = 0; j < columnKeys.length; j++) {
+                basic.put(columnKeys[j], simplex.isBasic[j]);
+            }
+        }
+
+        return simplex.getSolution();
+    }
+
+    /**
+     * The keys of the variables, followed by the keys of the slacks of G
+     */
+    private static Object[] getColumnKeys(List<?> keys, SparseMatrix G) {
+        Object[] columnKeys = new Object[keys.size() + G.getRows()];
+        keys.toArray(columnKeys);
+        for (int i = 0; i < G.getRows(); i++) {
+            Map<Object, Double> row = new HashMap<>();
+            for (int k = G.rowStart(i); k < G.rowEnd(i); k++) {
+                Object key = keys.get(G.getColumn(k));
+                Double old = row.get(key);
+                row.put(key, old == null ? G.getValue(k) : old + G.getValue(k));
+            }
+            columnKeys[keys.size() + i] = new Slack(ImmutableMap.copyOf(row));
+        }
+
+        return columnKeys;
+    }
+
+    /**
+     * The columns that were basic before, along with the slacks of new rows, or null if they aren't a whole basis
+     */
+    private int[] getStart(Object[] columnKeys, int n, int m) {
+        int[] start = new int[m];
+        int size = 0;
+        for (int j = 0; j < columnKeys.length; j++) {
+            if (Boolean.TRUE.equals(basic.get(columnKeys[j]))) {
+                if (size == m) {
+                    return null;
+                }
+                start[size++] = j;
+            }
+        }
+
+        for (int j = n; j < columnKeys.length && size < m; j++) {
+            if (!basic.containsKey(columnKeys[j])) {
+                start[size++] = j;
+            }
+        }
+
+        return size == m ? start : null;
+    }
+
+    /**
+     * Forgets the kept bases, so that the next programs are solved from scratch
+     */
+    public void clear() {
+        basic.clear();
+    }
+
+    /**
+     * The number of programs that started from a kept basis
+     */
+    public int getWarmStartCount() {
+        return warmStarts.get();
+    }
+
+    /**
+     * The number of pivots over every program solved
+     */
+    public long getIterationCount() {
+        return iterations.get();
+    }
+
+    /**
+     * The slack of an inequality, known by the keys and coefficients of its row
+     */
+    private static final class Slack {
+        private final ImmutableMap<Object, Double> row;
+
+        private Slack(ImmutableMap<Object, Double> row) {
+            this.row = row;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Slack && row.equals(((Slack) o).row);
+        }
+
+        @Override
+        public int hashCode() {
+            return row.hashCode();
+        }
+    }
+
+    /**
+     * The program c^T x, G x + s = h, A x = b, x, s >= 0, with each row negated if needed so its right hand side
+     * isn't negative. The columns are the variables x, then the slacks s, then an artificial variable for each row
+     * that only the first phase uses.
+     */
+    private static class Simplex {
+        // the pivots between refactorizations, and how small an entry of an eta has to be to be dropped
+        private static final int REFACTOR_INTERVAL = 100;
+        private static final double DROP = 1e-13;
+
+        private final int n;
+        private final int m;
+        private final int slacks;
+        private final int columns;
+        private final int[] starts;
+        private final int[] rows;
+        private final double[] values;
+        private final double[] signs;
+        private final double[] rhs;
+        private final double[] cost;
+        private final int maxIterations;
+
+        private int[] basis;
+        private boolean[] isBasic;
+        private double[] xB;
+        // B^-1 is the product of the inverses of these, last to first
+        private final List<Eta> etas = new ArrayList<>();
+        private int pivots;
+        private int iterations;
+
+        private Simplex(double[] c, SparseMatrix G, double[] h, SparseMatrix A, double[] b) {
+            n = c.length;
+            slacks = G.getRows();
+            m = slacks + A.getRows();
+            columns = n + slacks + m;
+
+            rhs = new double[m];
+            signs = new double[m];
+            for (int i = 0; i < m; i++) {
+                double r = i < slacks ? h[i] : b[i - slacks];
+                signs[i] = r < 0 ? -1 : 1;
+                rhs[i] = signs[i] * r;
+            }
+
+            // store the variables' columns of G and A stacked, with the signs of their rows
+            starts = new int[n + 1];
+            for (int k = 0; k < G.size(); k++) {
+                starts[G.getColumn(k) + 1]++;
+            }
+            for (int k = 0; k < A.size(); k++) {
+                starts[A.getColumn(k) + 1]++;
+            }
+            for (int j = 0; j < n; j++) {
+                starts[j + 1] += starts[j];
+            }
+
+            rows = new int[starts[n]];
+            values = new double[starts[n]];
+            int[] next = starts.clone();
+            for (int i = 0; i < m; i++) {
+                SparseMatrix matrix = i < slacks ? G : A;
+                int row = i < slacks ? i : i - slacks;
+                for (int k = matrix.rowStart(row); k < matrix.rowEnd(row); k++) {
+                    int pos = next[matrix.getColumn(k)]++;
+                    rows[pos] = i;
+                    values[pos] = signs[i] * matrix.getValue(k);
+                }
+            }
+
+            cost = new double[columns];
+            System.arraycopy(c, 0, cost, 0, n);
+            maxIterations = 50 * (m + columns) + 1000;
+        }
+
+        private boolean isArtificial(int j) {
+            return j >= n + slacks;
+        }
+
+        /**
+         * Starts from the slacks where they can be basic, and artificial variables elsewhere, and then finds a
+         * feasible basis by minimizing the sum of the artificial variables
+         */
+        private void coldStart() throws Exception {
+            // the columns of the starting basis are the columns of the identity, so it needs no etas
+            basis = new int[m];
+            isBasic = new boolean[columns];
+            xB = rhs.clone();
+            for (int i = 0; i < m; i++) {
+                basis[i] = i < slacks && signs[i] > 0 ? n + i : n + slacks + i;
+                isBasic[basis[i]] = true;
+            }
+
+            double[] phaseOne = new double[columns];
+            for (int j = n + slacks; j < columns; j++) {
+                phaseOne[j] = 1;
+            }
+            primal(phaseOne);
+
+            double infeasibility = 0;
+            for (int i = 0; i < m; i++) {
+                if (isArtificial(basis[i])) {
+                    infeasibility += xB[i];
+                }
+            }
+            if (infeasibility > EPSILON * Math.max(1, m)) {
+                throw new Exception("Infeasible problem");
+            }
+
+            // pivot out the artificial variables left at 0, unless their rows are redundant
+            for (int r = 0; r < m; r++) {
+                if (!isArtificial(basis[r])) {
+                    continue;
+                }
+
+                double[] row = getInverseRow(r);
+                for (int j = 0; j < n + slacks; j++) {
+                    if (!isBasic[j] && Math.abs(dot(row, j)) > EPSILON) {
+                        pivot(r, j, ftran(j));
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Starts from the given basis, and returns false if it can't be used
+         */
+        private boolean warmStart(int[] start) throws Exception {
+            if (start.length != m) {
+                return false;
+            }
+
+            isBasic = new boolean[columns];
+            for (int j : start) {
+                if (j < 0 || isArtificial(j) || isBasic[j]) {
+                    return false;
+                }
+                isBasic[j] = true;
+            }
+
+            if (!factor(start)) {
+                return false;
+            }
+
+            boolean feasible = true;
+            for (int i = 0; i < m; i++) {
+                feasible &= xB[i] >= -EPSILON;
+            }
+            if (feasible) {
+                return true;
+            }
+
+            double[] y = getDuals(cost);
+            for (int j = 0; j < n + slacks; j++) {
+                if (!isBasic[j] && cost[j] - dot(y, j) < -EPSILON) {
+                    return false;
+                }
+            }
+
+            return dual();
+        }
+
+        /**
+         * Pivots until no variable lowers the cost. Uses the most negative reduced cost, or Bland's rule once the
+         * pivots have been degenerate for a while, so that it can't cycle.
+         */
+        private void primal(double[] costs) throws Exception {
+            int degenerate = 0;
+            while (true) {
+                double[] y = getDuals(costs);
+                int entering = -1;
+                double best = -EPSILON;
+                for (int j = 0; j < n + slacks; j++) {
+                    if (isBasic[j]) {
+                        continue;
+                    }
+
+                    double d = costs[j] - dot(y, j);
+                    if (d < best) {
+                        entering = j;
+                        best = d;
+                        if (degenerate > m) {
+                            break;
+                        }
+                    }
+                }
+
+                if (entering == -1) {
+                    return;
+                }
+
+                double[] u = ftran(entering);
+                int leaving = -1;
+                double ratio = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < m; i++) {
+                    if (u[i] > EPSILON) {
+                        double r = Math.max(xB[i], 0) / u[i];
+                        if (r < ratio - EPSILON || (r <= ratio + EPSILON && basis[i] < basis[leaving])) {
+                            leaving = i;
+                            ratio = r;
+                        }
+                    }
+                }
+
+                if (leaving == -1) {
+                    throw new Exception("Unbounded problem");
+                }
+
+                degenerate = ratio <= EPSILON ? degenerate + 1 : 0;
+                pivot(leaving, entering, u);
+            }
+        }
+
+        /**
+         * Pivots out negative basic variables while keeping every reduced cost non-negative, and returns false if the
+         * program turns out to be infeasible
+         */
+        private boolean dual() throws Exception {
+            while (true) {
+                int leaving = -1;
+                for (int i = 0; i < m; i++) {
+                    if (xB[i] < -EPSILON && (leaving == -1 || xB[i] < xB[leaving])) {
+                        leaving = i;
+                    }
+                }
+
+                if (leaving == -1) {
+                    return true;
+                }
+
+                double[] y = getDuals(cost);
+                double[] row = getInverseRow(leaving);
+                int entering = -1;
+                double ratio = Double.POSITIVE_INFINITY;
+                for (int j = 0; j < n + slacks; j++) {
+                    if (isBasic[j]) {
+                        continue;
+                    }
+
+                    double alpha = dot(row, j);
+                    if (alpha < -EPSILON) {
+                        double r = Math.max(cost[j] - dot(y, j), 0) / -alpha;
+                        if (r < ratio - EPSILON) {
+                            entering = j;
+                            ratio = r;
+                        }
+                    }
+                }
+
+                if (entering == -1) {
+                    return false;
+                }
+
+                pivot(leaving, entering, ftran(entering));
+            }
+        }
+
+        private void pivot(int r, int j, double[] u) throws Exception {
+            if (++iterations > maxIterations) {
+                throw new Exception("Too many simplex iterations");
+            }
+
+            Eta eta = new Eta(r, u);
+            etas.add(eta);
+            eta.apply(xB);
+
+            isBasic[basis[r]] = false;
+            basis[r] = j;
+            isBasic[j] = true;
+
+            if (++pivots >= REFACTOR_INTERVAL && !factor(basis)) {
+                throw new Exception("Singular basis");
+            }
+        }
+
+        /**
+         * Factors the basis with the given columns from scratch, as one eta for each column, and solves for the basic
+         * variables. Returns false if the columns are singular. The logical columns go first, since they're unit
+         * vectors and their etas have nothing in them, and then each column goes in the free row where its entry is
+         * largest.
+         */
+        private boolean factor(int[] start) {
+            etas.clear();
+            pivots = 0;
+
+            int[] order = new int[m];
+            int size = 0;
+            for (int j : start) {
+                if (j >= n) {
+                    order[size++] = j;
+                }
+            }
+            for (int j : start) {
+                if (j < n) {
+                    order[size++] = j;
+                }
+            }
+
+            int[] factored = new int[m];
+            boolean[] used = new boolean[m];
+            for (int j : order) {
+                double[] u = ftran(j);
+                int r = -1;
+                for (int i = 0; i < m; i++) {
+                    if (!used[i] && Math.abs(u[i]) > EPSILON && (r == -1 || Math.abs(u[i]) > Math.abs(u[r]))) {
+                        r = i;
+                    }
+                }
+
+                if (r == -1) {
+                    return false;
+                }
+
+                used[r] = true;
+                factored[r] = j;
+                Eta eta = new Eta(r, u);
+                if (!eta.isIdentity()) {
+                    etas.add(eta);
+                }
+            }
+
+            basis = factored;
+            xB = rhs.clone();
+            for (Eta eta : etas) {
+                eta.apply(xB);
+            }
+
+            return true;
+        }
+
+        /**
+         * The dual values y = c_B B^-1
+         */
+        private double[] getDuals(double[] costs) {
+            double[] y = new double[m];
+            for (int i = 0; i < m; i++) {
+                y[i] = costs[basis[i]];
+            }
+
+            return btran(y);
+        }
+
+        /**
+         * The row r of B^-1
+         */
+        private double[] getInverseRow(int r) {
+            double[] row = new double[m];
+            row[r] = 1;
+            return btran(row);
+        }
+
+        /**
+         * The dot product of the vector with column j
+         */
+        private double dot(double[] y, int j) {
+            if (j >= n + slacks) {
+                return y[j - n - slacks];
+            }
+            if (j >= n) {
+                return signs[j - n] * y[j - n];
+            }
+
+            double sum = 0;
+            for (int k = starts[j]; k < starts[j + 1]; k++) {
+                sum += y[rows[k]] * values[k];
+            }
+
+            return sum;
+        }
+
+        /**
+         * The column j in terms of the basis, B^-1 a_j
+         */
+        private double[] ftran(int j) {
+            double[] u = new double[m];
+            if (j >= n + slacks) {
+                u[j - n - slacks] = 1;
+            } else if (j >= n) {
+                u[j - n] = signs[j - n];
+            } else {
+                for (int k = starts[j]; k < starts[j + 1]; k++) {
+                    u[rows[k]] = values[k];
+                }
+            }
+
+            for (Eta eta : etas) {
+                eta.apply(u);
+            }
+
+            return u;
+        }
+
+        /**
+         * The row vector in terms of the basis, y B^-1, in place
+         */
+        private double[] btran(double[] y) {
+            for (int e = etas.size() - 1; e >= 0; e--) {
+                etas.get(e).applyTransposed(y);
+            }
+
+            return y;
+        }
+
+        /**
+         * The basis, or null if it still has artificial variables
+         */
+        private int[] getBasis() {
+            for (int j : basis) {
+                if (isArtificial(j)) {
+                    return null;
+                }
+            }
+
+            return basis.clone();
+        }
+
+        private double[] getSolution() {
+            double[] x = new double[n];
+            for (int i = 0; i < m; i++) {
+                if (basis[i] < n) {
+                    x[basis[i]] = Math.max(xB[i], 0);
+                }
+            }
+
+            return x;
+        }
+    }
+
+    /**
+     * The identity with column r replaced by u, the entering column in terms of the basis before it entered. Only the
+     * entries of u off of row r are kept, sparsely.
+     */
+    private static final class Eta {
+        private final int row;
+        private final double pivot;
+        private final int[] index;
+        private final double[] value;
+
+        private Eta(int row, double[] u) {
+            this.row = row;
+            this.pivot = u[row];
+
+            int size = 0;
+            for (int i = 0; i < u.length; i++) {
+                if (i != row && Math.abs(u[i]) > Simplex.DROP) {
+                    size++;
+                }
+            }
+
+            index = new int[size];
+            value = new double[size];
+            size = 0;
+            for (int i = 0; i < u.length; i++) {
+                if (i != row && Math.abs(u[i]) > Simplex.DROP) {
+                    index[size] = i;
+                    value[size++] = u[i];
+                }
+            }
+        }
+
+        private boolean isIdentity() {
+            return pivot == 1 && index.length == 0;
+        }
+
+        /**
+         * Multiplies the column vector by the inverse of the eta, in place
+         */
+        private void apply(double[] v) {
+            double vr = v[row] / pivot;
+            v[row] = vr;
+            if (vr == 0) {
+                return;
+            }
+
+            for (int k = 0; k < index.length; k++) {
+                v[index[k]] -= value[k] * vr;
+            }
+        }
+
+        /**
+         * Multiplies the row vector by the inverse of the eta, in place
+         */
+        private void applyTransposed(double[] y) {
+            double sum = y[row];
+            for (int k = 0; k < index.length; k++) {
+                sum -= y[index[k]] * value[k];
+            }
+            y[row] = sum / pivot;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package transform.lp;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The values of the variables of a solved linear program
+ */
+public class Solution {
+    private final double[] values;
+
+    public Solution(double[] values) {
+        this.values = values;
+    }
+
+    public double get(Variable var) {
+        Preconditions.checkElementIndex(var.getIndex(), values.length, "variable");
+        return values[var.getIndex()];
+    }
+
+    public int size() {
+        return values.length;
+    }
+}
@@ -0,0 +1,197 @@
+package transform.lp;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * An immutable matrix in compressed sparse row form. The entries of row i are at positions rowStart(i) up to
+ * rowEnd(i), in the order they were added, and only nonzero entries are stored.
+ */
+public class SparseMatrix {
+    private final int rows;
+    private final int columns;
+    private final int[] rowStarts;
+    private final int[] columnIndices;
+    private final double[] values;
+
+    private SparseMatrix(int rows, int columns, int[] rowStarts, int[] columnIndices, double[] values) {
+        this.rows = rows;
+        this.columns = columns;
+        this.rowStarts = rowStarts;
+        this.columnIndices = columnIndices;
+        this.values = values;
+    }
+
+    public static Builder builder(int columns) {
+        return new Builder(columns);
+    }
+
+    public static SparseMatrix fromDense(double[][] dense, int columns) {
+        Builder builder = builder(columns);
+        for (double[] row : dense) {
+            Preconditions.checkArgument(row.length == columns, "Rows must have %s columns", columns);
+            for (int j = 0; j < columns; j++) {
+                builder.add(j, row[j]);
+            }
+            builder.endRow();
+        }
+
+        return builder.build();
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * The number of entries stored
+     */
+    public int size() {
+        return values.length;
+    }
+
+    public int rowStart(int row) {
+        return rowStarts[row];
+    }
+
+    public int rowEnd(int row) {
+        return rowStarts[row + 1];
+    }
+
+    /**
+     * The column of the entry at the given position
+     */
+    public int getColumn(int k) {
+        return columnIndices[k];
+    }
+
+    /**
+     * The value of the entry at the given position
+     */
+    public double getValue(int k) {
+        return values[k];
+    }
+
+    public double get(int row, int column) {
+        double sum = 0;
+        for (int k = rowStart(row); k < rowEnd(row); k++) {
+            if (columnIndices[k] == column) {
+                sum += values[k];
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Multiplies the matrix by the vector x
+     */
+    public double[] multiply(double[] x) {
+        Preconditions.checkArgument(x.length == columns, "Vector must have %s entries", columns);
+        double[] result = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            double sum = 0;
+            for (int k = rowStarts[i]; k < rowStarts[i + 1]; k++) {
+                sum += values[k] * x[columnIndices[k]];
+            }
+            result[i] = sum;
+        }
+
+        return result;
+    }
+
+    /**
+     * The matrix of the given rows, in that order, with each column j moved to columnMap[j]. Columns mapped to -1 must
+     * not have entries in those rows.
+     */
+    public SparseMatrix select(int[] rows, int[] columnMap, int columns) {
+        Preconditions.checkArgument(columnMap.length == this.columns, "Column map must have %s entries", this.columns);
+        Builder builder = builder(columns);
+        for (int i : rows) {
+            for (int k = rowStarts[i]; k < rowStarts[i + 1]; k++) {
+                builder.add(columnMap[columnIndices[k]], values[k]);
+            }
+            builder.endRow();
+        }
+
+        return builder.build();
+    }
+
+    public double[][] toDense() {
+        double[][] dense = new double[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int k = rowStarts[i]; k < rowStarts[i + 1]; k++) {
+                dense[i][columnIndices[k]] += values[k];
+            }
+        }
+
+        return dense;
+    }
+
+    /**
+     * Builds a matrix one row at a time
+     */
+    public static class Builder {
+        private final int columns;
+        private int rows;
+        private int size;
+        private int[] rowStarts;
+        private int[] columnIndices;
+        private double[] values;
+
+        private Builder(int columns) {
+            Preconditions.checkArgument(columns >= 0, "Columns must not be negative");
+            this.columns = columns;
+            this.rowStarts = new int[16];
+            this.columnIndices = new int[16];
+            this.values = new double[16];
+        }
+
+        /**
+         * Adds an entry to the current row. Zeros are skipped.
+         */
+        public Builder add(int column, double value) {
+            Preconditions.checkElementIndex(column, columns);
+            if (value == 0) {
+                return this;
+            }
+
+            if (size == values.length) {
+                columnIndices = Arrays.copyOf(columnIndices, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            columnIndices[size] = column;
+            values[size] = value;
+            size++;
+            return this;
+        }
+
+        /**
+         * Ends the current row, and starts the next one
+         */
+        public Builder endRow() {
+            rows++;
+            if (rows + 1 > rowStarts.length) {
+                rowStarts = Arrays.copyOf(rowStarts, rowStarts.length * 2);
+            }
+            rowStarts[rows] = size;
+            return this;
+        }
+
+        public SparseMatrix build() {
+            Preconditions.checkState(rowStarts[rows] == size, "The last row must be ended");
+            return new SparseMatrix(
+                rows,
+                columns,
+                Arrays.copyOf(rowStarts, rows + 1),
+                Arrays.copyOf(columnIndices, size),
+                Arrays.copyOf(values, size)
+            );
+        }
+    }
+}
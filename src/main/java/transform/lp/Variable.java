@@ -0,0 +1,33 @@
+package transform.lp;
+
+/**
+ * A variable of a linear program, numbered densely in the order variables are added to the program
+ */
+public final class Variable {
+    private final int index;
+    private final Object description;
+
+    Variable(int index, Object description) {
+        this.index = index;
+        this.description = description;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * What the variable stands for, which is equal for the same variable in different programs
+     */
+    public Object getDescription() {
+        return description;
+    }
+
+    /**
+     * The name of the variable, which is only rendered from its description when needed
+     */
+    @Override
+    public String toString() {
+        return String.valueOf(description);
+    }
+}
@@ -7,6 +7,8 @@ import com.google.common.collect.Ordering;
 import transform.GadgetUtils;
 import transform.GridUtils;
 import transform.lp.LinearProgram;
+import transform.lp.Solution;
+import transform.lp.Variable;
 import transform.wiring.Shifter;
 import transform.wiring.Wirer;
 import types.Direction;
@@ -30,11 +32,12 @@ public class LargeNode {
         Shifter shifter,
         CellConfiguration config,
         LinearProgram.Builder lp,
+        PlacerVariables vars,
         Location start,
         Location end,
         Gadget g
     ) {
-        new LargeNodeConstraint(wirer, shifter, config, lp, start, end, g).add();
+        new LargeNodeConstraint(wirer, shifter, config, lp, vars, start, end, g).add();
     }
 
     public static void place(
@@ -42,12 +45,13 @@ public class LargeNode {
         Shifter shifter,
         CellConfiguration cellConfig,
         GadgetConfiguration config,
-        Map<String, Double> sol,
+        PlacerVariables vars,
+        Solution sol,
         Location start,
         Location end,
         Gadget g
     ) {
-        new LargeNodePlacer(wirer, shifter, cellConfig, config, sol, start, end, g).place();
+        new LargeNodePlacer(wirer, shifter, cellConfig, config, vars, sol, start, end, g).place();
     }
 
     public static List<Boolean> getIsInput(final Gadget g, final Direction d, List<Side> sides) {
@@ -79,14 +83,16 @@ public class LargeNode {
         private final Map<Direction, List<Side>> gridSides;
         private final Map<Direction, List<Side>> gadgetPorts;
         private final GadgetConfiguration config;
-        private final Map<String, Double> sol;
+        private final PlacerVariables vars;
+        private final Solution sol;
 
         private LargeNodePlacer (
             Wirer wirer,
             Shifter shifter,
             CellConfiguration cellConfig,
             GadgetConfiguration config,
-            Map<String, Double> sol,
+            PlacerVariables vars,
+            Solution sol,
             Location start,
             Location end,
             Gadget g
@@ -94,6 +100,7 @@ public class LargeNode {
             this.wirer = wirer;
             this.shifter = shifter;
             this.config = config;
+            this.vars = vars;
             this.sol = sol;
             this.start = start;
             this.g = g;
@@ -106,7 +113,7 @@ public class LargeNode {
 
         public void place() {
             // place gadget
-            LocationID id = getGadget(start.getX(), start.getY());
+            LocationID id = vars.getGadget(start.getX(), start.getY());
             Location offset = new Location(roundAndCheck(sol.get(id.x)), roundAndCheck(sol.get(id.y)));
 
             Preconditions.checkState(config.canConnect(offset, g));
@@ -128,7 +135,7 @@ public class LargeNode {
                 for (int i = 0; i < gridPorts.get(d).size(); i++) {
                     Side gadgetSide = gadgetPorts.get(d).get(i).add(offset);
 
-                    LocationID sideID = getSide(gridPorts.get(d).get(i));
+                    LocationID sideID = vars.getSide(gridPorts.get(d).get(i));
                     Location sideOffset = new Location(
                         roundAndCheck(sol.get(sideID.x)), roundAndCheck(sol.get(sideID.y))
                     );
@@ -171,6 +178,7 @@ public class LargeNode {
         private final Wirer wirer;
         private final Shifter shifter;
         private final LinearProgram.Builder lp;
+        private final PlacerVariables vars;
         private final Location start;
         private final Gadget g;
         private final Map<Direction, List<Side>> gridPorts;
@@ -182,6 +190,7 @@ public class LargeNode {
             Shifter shifter,
             CellConfiguration config,
             LinearProgram.Builder lp,
+            PlacerVariables vars,
             Location start,
             Location end,
             Gadget g
@@ -189,6 +198,7 @@ public class LargeNode {
             this.wirer = wirer;
             this.shifter = shifter;
             this.lp = lp;
+            this.vars = vars;
             this.start = start;
             this.g = g;
 
@@ -215,9 +225,9 @@ public class LargeNode {
 
             for (int i = 1; i < gridSideList.size(); i++) {
                 Side side = gridSideList.get(i);
-                LocationID sideID = getSide(side);
+                LocationID sideID = vars.getSide(side);
                 Side firstSide = gridSideList.get(0);
-                LocationID firstSideID = getSide(firstSide);
+                LocationID firstSideID = vars.getSide(firstSide);
 
                 if (side.getDirection().isY()) {
                     lp.addConstraint(equalTo(sideID.y, firstSideID.y));
@@ -231,8 +241,8 @@ public class LargeNode {
             // the primary side within slice boundaries
 
             Side s = gridSides.get(d).get(0);
-            LocationID sideID = getSide(s);
-            String slice = getSlice(s);
+            LocationID sideID = vars.getSide(s);
+            Variable slice = vars.getSlice(s);
             if (s.getDirection().isPositive()) {
                 if (s.getDirection().isY()) {
                     lp.addConstraint(atMost(sideID.y, 1, slice));
@@ -259,7 +269,7 @@ public class LargeNode {
             List<Side> portList = gridPorts.get(d);
             for (int i = 0; i < portList.size() - 1; i++) {
                 int sep = minSepOut.get(i);
-                lp.addConstraint(lengthAtLeast(portList.get(i), portList.get(i + 1), d.clockwise(), sep + 1));
+                lp.addConstraint(lengthAtLeast(vars, portList.get(i), portList.get(i + 1), d.clockwise(), sep + 1));
             }
         }
 
@@ -271,7 +281,8 @@ public class LargeNode {
             Direction acw = d.anticlockwise();
             int thickness = getShifterThickness(d);
             int length = (gadgetPorts.get(acw).size() == 0) ? 0 : getShifterLength(acw, getShifterThickness(acw));
-            lp.addConstraint(lengthAtLeast(gridSides.get(acw).get(0), gridPorts.get(d).get(0), acw, thickness + length));
+            Side first = gridPorts.get(d).get(0);
+            lp.addConstraint(lengthAtLeast(vars, gridSides.get(acw).get(0), first, acw, thickness + length));
         }
 
         private void addThicknessCW(Direction d) {
@@ -285,7 +296,7 @@ public class LargeNode {
 
             List<Side> gridPortList = gridPorts.get(d);
             Side last = gridPortList.get(gridPortList.size() - 1);
-            lp.addConstraint(lengthAtLeast(gridSides.get(cw).get(0), last, cw, thickness + length));
+            lp.addConstraint(lengthAtLeast(vars, gridSides.get(cw).get(0), last, cw, thickness + length));
         }
 
         private int getShifterThickness(Direction d) {
@@ -349,8 +360,8 @@ public class LargeNode {
         private void addOffset(Direction d) {
             // gadget offset far away from sides - thickness and frobenius
 
-            LocationID id = getGadget(start.getX(), start.getY());
-            LocationID sideID = getSide(gridSides.get(d).get(0));
+            LocationID id = vars.getGadget(start.getX(), start.getY());
+            LocationID sideID = vars.getSide(gridSides.get(d).get(0));
             int length = Ordering.natural().max(getOffsetLength(d), getOffsetACWThickness(d), getOffsetCWThickness(d));
 
             lp.addConstraint(lengthAtLeast(id, sideID, d, length));
@@ -1,13 +1,16 @@
 package transform.placer;
 
-import com.google.common.base.Joiner;
+import transform.lp.Variable;
 
+/**
+ * The pair of variables for the x and y offsets of something in the placement
+ */
 public class LocationID {
-    public final String x;
-    public final String y;
+    public final Variable x;
+    public final Variable y;
 
-    public LocationID(String s, Object... objects) {
-        this.x = s + "x:" + Joiner.on("-").join(objects);
-        this.y = s + "y:" + Joiner.on("-").join(objects);
+    public LocationID(Variable x, Variable y) {
+        this.x = x;
+        this.y = y;
     }
 }
@@ -3,7 +3,6 @@ package transform.placer;
 import com.google.common.base.Preconditions;
 import transform.lp.Constraint;
 import types.Direction;
-import types.Location;
 import types.Side;
 
 import static transform.lp.ConstraintFactory.atLeast;
@@ -31,16 +30,16 @@ public class PlacerUtils {
     /**
      * Returns a constraint that specifies that the sides are separated by at least length along the given axis.
      */
-    public static Constraint lengthAtLeast(Side s1, Side s2, Direction d, int length) {
+    public static Constraint lengthAtLeast(PlacerVariables vars, Side s1, Side s2, Direction d, int length) {
         Direction dir = d.isPositive() ? d : d.opposite();
         int compare = compareTo(s1, s2, dir);
         Preconditions.checkArgument(compare != 0, "Can't constrain equivalent sides in this direction");
         Side a = compare < 0 ? s1 : s2; // smaller
         Side b = compare < 0 ? s2 : s1; // larger
         if (dir.isX()) {
-            return atLeast(getSide(b).x, getSide(a).x, length);
+            return atLeast(vars.getSide(b).x, vars.getSide(a).x, length);
         } else {
-            return atLeast(getSide(b).y, getSide(a).y, length);
+            return atLeast(vars.getSide(b).y, vars.getSide(a).y, length);
         }
     }
 
@@ -66,39 +65,4 @@ public class PlacerUtils {
             }
         }
     }
-
-    /**
-     * formats:
-     * side [x] [y] [d]
-     * x [x]
-     * y [y]
-     * gadgetX [x] [y]
-     * gadgetY [x] [y]
-     */
-    public static LocationID getSide(Side side) {
-        Location loc = side.getLocation();
-        Direction dir = side.getDirection();
-        return new LocationID("side", loc.getX(), loc.getY(), dir.ordinal());
-    }
-
-    public static LocationID getSlice(int slice) {
-        return new LocationID("slice", slice);
-    }
-
-    public static String getSlice(Side side) {
-        Side s = side;
-        if (s.getDirection().isPositive()) {
-            s = s.opposite();
-        }
-
-        if (s.getDirection().isY()) {
-            return getSlice(s.getY()).y;
-        } else {
-            return getSlice(s.getX()).x;
-        }
-    }
-
-    public static LocationID getGadget(int x, int y) {
-        return new LocationID("gadget", x, y);
-    }
 }
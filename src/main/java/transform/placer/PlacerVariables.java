@@ -0,0 +1,132 @@
+package transform.placer;
+
+import com.google.common.base.Preconditions;
+import transform.lp.LinearProgram;
+import transform.lp.Variable;
+import types.Direction;
+import types.Location;
+import types.Side;
+
+import java.util.Arrays;
+
+/**
+ * The variables of the placement linear program of a grid, which are the offsets of the slices, the sides of each
+ * cell and the gadgets. Each is added to the program the first time it is asked for, and found again by computing its
+ * index in a table, so that no names are made unless the program is printed.
+ */
+public class PlacerVariables {
+    private static final int DIRECTIONS = Direction.values().length;
+
+    private final LinearProgram.Builder lp;
+    private final int sizeX;
+    private final int sizeY;
+    private final Variable[] slicesX;
+    private final Variable[] slicesY;
+    // sides also go one cell past the edges of the grid, for ports that face out of it
+    private final LocationID[] sides;
+    private final LocationID[] gadgets;
+
+    public PlacerVariables(LinearProgram.Builder lp, int sizeX, int sizeY) {
+        this.lp = lp;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.slicesX = new Variable[sizeX + 1];
+        this.slicesY = new Variable[sizeY + 1];
+        this.sides = new LocationID[(sizeX + 2) * (sizeY + 2) * DIRECTIONS];
+        this.gadgets = new LocationID[sizeX * sizeY];
+    }
+
+    public LocationID getSide(Side side) {
+        Location loc = side.getLocation();
+        Direction dir = side.getDirection();
+        Preconditions.checkElementIndex(loc.getX() + 1, sizeX + 2, "side x");
+        Preconditions.checkElementIndex(loc.getY() + 1, sizeY + 2, "side y");
+        int index = ((loc.getX() + 1) * (sizeY + 2) + loc.getY() + 1) * DIRECTIONS + dir.ordinal();
+        if (sides[index] == null) {
+            sides[index] = new LocationID(
+                lp.addVariable(new Key("side", true, loc.getX(), loc.getY(), dir.ordinal())),
+                lp.addVariable(new Key("side", false, loc.getX(), loc.getY(), dir.ordinal()))
+            );
+        }
+
+        return sides[index];
+    }
+
+    public Variable getSlice(int slice, boolean isX) {
+        Variable[] slices = isX ? slicesX : slicesY;
+        Preconditions.checkElementIndex(slice, slices.length, "slice");
+        if (slices[slice] == null) {
+            slices[slice] = lp.addVariable(new Key("slice", isX, slice));
+        }
+
+        return slices[slice];
+    }
+
+    /**
+     * The slice that the side is on the boundary of
+     */
+    public Variable getSlice(Side side) {
+        Side s = side;
+        if (s.getDirection().isPositive()) {
+            s = s.opposite();
+        }
+
+        if (s.getDirection().isY()) {
+            return getSlice(s.getY(), false);
+        } else {
+            return getSlice(s.getX(), true);
+        }
+    }
+
+    public LocationID getGadget(int x, int y) {
+        Preconditions.checkElementIndex(x, sizeX, "gadget x");
+        Preconditions.checkElementIndex(y, sizeY, "gadget y");
+        int index = x * sizeY + y;
+        if (gadgets[index] == null) {
+            gadgets[index] = new LocationID(
+                lp.addVariable(new Key("gadget", true, x, y)), lp.addVariable(new Key("gadget", false, x, y))
+            );
+        }
+
+        return gadgets[index];
+    }
+
+    /**
+     * Describes a variable, and renders as the kind and the axis followed by its coordinates, e.g. sidex:3-4-1
+     */
+    private static class Key {
+        private final String kind;
+        private final boolean isX;
+        private final int[] coords;
+
+        private Key(String kind, boolean isX, int... coords) {
+            this.kind = kind;
+            this.isX = isX;
+            this.coords = coords;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Key) {
+                Key that = (Key) o;
+                return kind.equals(that.kind) && isX == that.isX && Arrays.equals(coords, that.coords);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * kind.hashCode() + (isX ? 1 : 0)) + Arrays.hashCode(coords);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(kind).append(isX ? "x:" : "y:");
+            for (int i = 0; i < coords.length; i++) {
+                builder.append(i > 0 ? "-" : "").append(coords[i]);
+            }
+
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package transform.planar;
+
+import com.google.common.collect.ImmutableList;
+import types.Direction;
+import types.Side;
+import types.configuration.CellConfiguration;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Same paths as DijkstrasPather, but sides are encoded as ints over the bounds of the grid and all the search state
+ * is kept in flat arrays. If given an end, the search is guided towards it by the manhattan distance and stops once
+ * the end is settled. The heuristic assumes that the cost function charges at least 1 for every cell.
+ *
+ * A targeted search can also be pruned to the bounding box of the start and end, widened by some slack, in which case
+ * the path found is only the shortest path within that box.
+ */
+public class AStarPather {
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final SideGraph graph;
+    private final Side start;
+
+    private final int[] dist;
+    private final int[] prev;
+    private final boolean[] settled;
+    private int settledCount;
+
+    // target side and the cell it is in, or -1 if searching the whole grid
+    private final int target;
+    private final int targetX;
+    private final int targetY;
+
+    // cells outside of these bounds are never entered
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+
+    /**
+     * Finds the distance to every side of the grid
+     */
+    public AStarPather(CellConfiguration grid, Side start, CostFunction cost, boolean isInput) {
+        this(grid, start, cost, isInput, null);
+    }
+
+    /**
+     * Finds the distance to end, stopping as soon as it is known. Other distances are only valid if pathable.
+     */
+    public AStarPather(CellConfiguration grid, Side start, CostFunction cost, boolean isInput, Side end) {
+        this(grid, start, cost, isInput, end, -1);
+    }
+
+    /**
+     * Finds the distance to end, only going through cells at most slack away from the bounding box of start and end.
+     * A negative slack does not prune anything.
+     */
+    public AStarPather(CellConfiguration grid, Side start, CostFunction cost, boolean isInput, Side end, int slack) {
+        this.graph = new SideGraph(grid, cost, isInput);
+        this.start = start;
+
+        int size = graph.size();
+        this.dist = new int[size];
+        this.prev = new int[size];
+        this.settled = new boolean[size];
+        Arrays.fill(dist, INFINITY);
+        Arrays.fill(prev, -1);
+
+        if (end != null && graph.contains(end.opposite())) {
+            Side opp = end.opposite();
+            this.target = graph.encode(opp);
+            this.targetX = opp.getX();
+            this.targetY = opp.getY();
+        } else {
+            this.target = -1;
+            this.targetX = 0;
+            this.targetY = 0;
+        }
+
+        if (end != null && slack >= 0) {
+            this.minX = Math.min(start.getX(), end.getX()) - slack;
+            this.minY = Math.min(start.getY(), end.getY()) - slack;
+            this.maxX = Math.max(start.getX(), end.getX()) + slack;
+            this.maxY = Math.max(start.getY(), end.getY()) + slack;
+        } else {
+            this.minX = 0;
+            this.minY = 0;
+            this.maxX = graph.getSizeX() - 1;
+            this.maxY = graph.getSizeY() - 1;
+        }
+
+        if (!graph.contains(start)) {
+            throw new IllegalArgumentException(String.format("Start %s is not in the grid", start));
+        }
+        run();
+    }
+
+    private int heuristic(int x, int y) {
+        if (target == -1) {
+            return 0;
+        }
+        return Math.abs(x - targetX) + Math.abs(y - targetY);
+    }
+
+    private void run() {
+        IntHeap queue = new IntHeap();
+        int[] to = new int[3];
+        int[] weights = new int[3];
+
+        int s = graph.encode(start);
+        dist[s] = 0;
+        queue.push(s, heuristic(start.getX(), start.getY()));
+
+        while (!queue.isEmpty()) {
+            int u = queue.pop();
+            if (settled[u]) {
+                continue;
+            }
+
+            settled[u] = true;
+            settledCount++;
+            if (u == target) {
+                return;
+            }
+
+            Direction d = SideGraph.DIRECTIONS[u & 3];
+            int x = graph.getX(u) + d.getX();
+            int y = graph.getY(u) + d.getY();
+            if (x < minX || x > maxX || y < minY || y > maxY) {
+                continue;
+            }
+
+            int count = graph.getEdges(u, to, weights);
+            for (int i = 0; i < count; i++) {
+                int w = to[i];
+                if (settled[w]) {
+                    continue;
+                }
+
+                int alt = dist[u] + weights[i];
+                if (alt < dist[w]) {
+                    dist[w] = alt;
+                    prev[w] = u;
+                    queue.push(w, alt + heuristic(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * How many sides the search settled
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    private boolean isSettled(Side s) {
+        return graph.contains(s) && settled[graph.encode(s)];
+    }
+
+    public boolean isPathable(Side s) {
+        return isSettled(s);
+    }
+
+    public int distanceTo(Side end) {
+        if (!isSettled(end.opposite())) {
+            throw new IllegalArgumentException(String.format("Illegal input, no path from %s to %s", start, end));
+        }
+
+        return dist[graph.encode(end.opposite())];
+    }
+
+    public List<Side> getPath(Side end) {
+        if (!isSettled(end.opposite())) {
+            throw new IllegalArgumentException(String.format("Illegal input, no path from %s to %s", start, end));
+        }
+
+        int s = graph.encode(start);
+        ImmutableList.Builder<Side> builder = ImmutableList.builder();
+        builder.add(end);
+        int cur = graph.encode(end.opposite());
+        while (cur != s) {
+            builder.add(graph.decode(cur));
+            cur = prev[cur];
+            builder.add(graph.decode(cur).opposite());
+        }
+
+        builder.add(graph.decode(cur));
+        return builder.build().reverse();
+    }
+}
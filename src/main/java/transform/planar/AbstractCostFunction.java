@@ -1,162 +1,466 @@
 package transform.planar;
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
-import transform.GridUtils;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.TreeMultiset;
 import types.Direction;
 import types.Location;
 import types.configuration.CellConfiguration;
+import types.configuration.CellConfigurationListener;
 import types.configuration.cells.Cell;
 import types.configuration.cells.CellType;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
-public class AbstractCostFunction {
-    private CellConfiguration grid;
+/**
+ * Costs cells by how much they would widen the rows and columns of the grid. The widest cell of each row and column
+ * is tracked with a multiset of the cell widths, so that once the function is added as a listener to the grid, it
+ * stays up to date in time proportional to the cells changed, whether they are put, or in slices that are inserted,
+ * deleted or added by expanding.
+ */
+public class AbstractCostFunction implements CellConfigurationListener {
+    private static final int UNSEEN = -2;
+
+    private final CellConfiguration grid;
 
     private final GadgetSet gadgets;
-    private Set<List<Integer>> largeNodes;
 
-    private List<Integer> costX;
-    private List<Integer> costY;
+    // number of node cells with each id, and the port cells of each id
+    private final Multiset<Integer> largeNodes;
+    private final SetMultimap<Integer, Location> ports;
+
+    // the gadget number of each node id seen in the grid, or UNSEEN. Only written as the grid changes, so that costing
+    // cells in many threads at once just reads it.
+    private int[] gadgetIds;
+
+    private int sizeX;
+    private int sizeY;
+
+    // the cells as last seen, and the base cost of each, by x and then y
+    private Cell[][] cells;
+    private int[][] cellCostX;
+    private int[][] cellCostY;
+
+    // nonzero base costs of the cells in each column and row
+    private List<TreeMultiset<Integer>> columns;
+    private List<TreeMultiset<Integer>> rows;
+
+    private int[] costX;
+    private int[] costY;
     private int totalCost;
 
     public AbstractCostFunction(CellConfiguration grid, GadgetSet gadgets) {
         this.grid = grid;
         this.gadgets = gadgets;
-        largeNodes = getLargeNodes(grid);
+        this.largeNodes = HashMultiset.create();
+        this.ports = HashMultimap.create();
+        this.gadgetIds = new int[0];
         initCosts();
     }
 
-    private static Set<List<Integer>> getLargeNodes(CellConfiguration grid) {
-        HashSet<List<Integer>> set = new HashSet<>();
-        for (int i = 0; i < grid.getSizeX(); i++) {
-            for (int j = 0; j < grid.getSizeY(); j++) {
-                Cell c = grid.getCell(i, j);
-                if (c.getCellType() == CellType.NODE) {
-                    set.add(c.getId());
-                }
-            }
+    /**
+     * Used to determine initial cost
+     */
+    private int getBaseCost(Cell c, boolean isX) {
+        if (c.getCellType() == CellType.WIRE) {
+            Direction wire = c.getOutputDirection(0);
+            return wire.isX() == isX ? 0 : gadgets.getWireThickness(wire);
         }
 
-        return ImmutableSet.copyOf(set);
+        return getGadgetSize(c, isX);
+    }
+
+    private int getBaseCostX(Cell c) {
+        return getBaseCost(c, true);
+    }
+
+    private int getBaseCostY(Cell c) {
+        return getBaseCost(c, false);
     }
 
     /**
-     * Used to determine initial cost
+     * Used to determine incremental cost
      */
-    private int getBaseCost(Cell c, Direction dir) {
+    private int getIncrementalCost(Cell c, boolean isX) {
+        if (c.getCellType() == CellType.WIRE) {
+            return 0; // assume this is less than a turn/whatever gadget it is connected to.
+        }
+
+        return getGadgetSize(c, isX);
+    }
+
+    private int getIncrementalCostX(Cell c) {
+        return getIncrementalCost(c, true);
+    }
+
+    private int getIncrementalCostY(Cell c) {
+        return getIncrementalCost(c, false);
+    }
+
+    /**
+     * The size of the gadget a cell other than a wire becomes, from the tables in the gadget set
+     */
+    private int getGadgetSize(Cell c, boolean isX) {
         switch (c.getCellType()) {
-            case EMPTY:
-                return 0;
-            case WIRE:
-                return dir.parallel(c.getOutputDirection(0)) ? 0 : gadgets.wirer.minThickness(c.getOutputDirection(0));
             case TURN:
-                List<Direction> dirs = ImmutableList.of(c.getInputDirection(0), c.getOutputDirection(0));
-                return GridUtils.getSize(gadgets.turns.get(dirs), dir);
+                return gadgets.getTurnSize(c.getInputDirection(0), c.getOutputDirection(0), isX);
             case CROSSOVER:
-                Set inputDirs = ImmutableSet.copyOf(c.getInputDirections());
-                return GridUtils.getSize(gadgets.crossovers.get(inputDirs), dir);
-            case NODE:
-                return 0;
+                return gadgets.getCrossoverSize(c.getInputDirection(0), c.getInputDirection(1), isX);
             case PORT:
-                if (largeNodes.contains(c.getId())) {
+                int id = getGadgetId(c);
+                // blocks of substitution layouts have no gadget, and are always large
+                if (id == -1 || largeNodes.contains(c.getIntId())) {
                     // TODO
                     return 20;
                 }
 
-                return GridUtils.getSize(gadgets.gadgets.get(c.getName()), dir);
+                return gadgets.getGadgetSize(id, isX);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * The number of the gadget a port cell becomes, looked up by name only for nodes the grid hasn't had yet
+     */
+    private int getGadgetId(Cell c) {
+        int index = c.getIntId();
+        if (index < gadgetIds.length && gadgetIds[index] != UNSEEN) {
+            return gadgetIds[index];
         }
 
-        return 0;
+        return gadgets.getGadgetId(c.getName());
     }
 
-    private int getBaseCostX(Cell c) {
-        return getBaseCost(c, Direction.getDirection(1, 0));
+    private void putGadgetId(Cell c) {
+        int index = c.getIntId();
+        if (index >= gadgetIds.length) {
+            int length = gadgetIds.length;
+            gadgetIds = Arrays.copyOf(gadgetIds, Math.max(index + 1, 2 * length));
+            Arrays.fill(gadgetIds, length, gadgetIds.length, UNSEEN);
+        }
+
+        if (gadgetIds[index] == UNSEEN) {
+            gadgetIds[index] = gadgets.getGadgetId(c.getName());
+        }
     }
 
-    private int getBaseCostY(Cell c) {
-        return getBaseCost(c, Direction.getDirection(0, 1));
+    private void initCosts() {
+        sizeX = grid.getSizeX();
+        sizeY = grid.getSizeY();
+        largeNodes.clear();
+        ports.clear();
+        cells = new Cell[sizeX][sizeY];
+        for (int i = 0; i < sizeX; i++) {
+            for (int j = 0; j < sizeY; j++) {
+                cells[i][j] = grid.getCell(i, j);
+                addId(cells[i][j], i, j);
+            }
+        }
+
+        cellCostX = new int[sizeX][sizeY];
+        cellCostY = new int[sizeX][sizeY];
+        columns = new ArrayList<>();
+        rows = new ArrayList<>();
+        for (int i = 0; i < sizeX; i++) {
+            columns.add(TreeMultiset.<Integer>create());
+        }
+
+        for (int i = 0; i < sizeY; i++) {
+            rows.add(TreeMultiset.<Integer>create());
+        }
+
+        costX = new int[sizeX];
+        costY = new int[sizeY];
+        totalCost = 0;
+        for (int i = 0; i < sizeX; i++) {
+            for (int j = 0; j < sizeY; j++) {
+                updateCell(i, j);
+            }
+        }
+    }
+
+    @Override
+    public void cellChanged(int x, int y, Cell oldCell, Cell newCell) {
+        cells[x][y] = newCell;
+        int changed = removeId(oldCell, x, y);
+        int added = addId(newCell, x, y);
+        updateCell(x, y);
+        if (changed >= 0) {
+            updatePorts(changed);
+        }
+        if (added >= 0) {
+            updatePorts(added);
+        }
+    }
+
+    @Override
+    public void gridChanged() {
+        initCosts();
     }
 
     /**
-     * Used to determine incremental cost
+     * Moves the costs of the old cells along with them, and only costs the new cells on the sides
      */
-    private int getIncrementalCost(Cell c, Direction dir) {
-        switch (c.getCellType()) {
-            case EMPTY:
-                return 0;
-            case WIRE:
-                return 0; // assume this is less than a turn/whatever gadget it is connected to.
-            case TURN:
-                List<Direction> dirs = ImmutableList.of(c.getInputDirection(0), c.getOutputDirection(0));
-                return GridUtils.getSize(gadgets.turns.get(dirs), dir);
-            case CROSSOVER:
-                Set inputDirs = ImmutableSet.copyOf(c.getInputDirections());
-                return GridUtils.getSize(gadgets.crossovers.get(inputDirs), dir);
-            case NODE:
-                return 0;
-            case PORT:
-                if (largeNodes.contains(c.getId())) {
-                    // TODO
-                    return 20;
+    @Override
+    public void gridExpanded(int x, int y) {
+        if (sizeX + 2 * x != grid.getSizeX() || sizeY + 2 * y != grid.getSizeY()) {
+            initCosts();
+            return;
+        }
+
+        Set<Integer> changed = new HashSet<>();
+        boolean[] newX = moveSlices(true, CellConfiguration.getExpansionMap(sizeX, x), sizeX + 2 * x, changed);
+        boolean[] newY = moveSlices(false, CellConfiguration.getExpansionMap(sizeY, y), sizeY + 2 * y, changed);
+        addSlices(newX, newY, changed);
+    }
+
+    /**
+     * Moves the costs of the slices that are kept, takes out the cells of the deleted slices, and only costs the cells
+     * of the inserted slices
+     */
+    @Override
+    public void slicesMoved(boolean isX, int[] map) {
+        Set<Integer> changed = new HashSet<>();
+        boolean[] inserted = moveSlices(isX, map, isX ? grid.getSizeX() : grid.getSizeY(), changed);
+        addSlices(isX ? inserted : new boolean[sizeX], isX ? new boolean[sizeY] : inserted, changed);
+    }
+
+    /**
+     * Takes the cells of the deleted slices out of the slices they cross, moves the rest to their new indices, and
+     * leaves the inserted slices with no cells or costs. Adds the ids that stopped being large nodes to changed, and
+     * returns which slices were inserted.
+     */
+    private boolean[] moveSlices(boolean isX, int[] map, int size, Set<Integer> changed) {
+        int other = isX ? sizeY : sizeX;
+        for (int k = 0; k < map.length; k++) {
+            if (map[k] >= 0) {
+                continue;
+            }
+
+            for (int t = 0; t < other; t++) {
+                int x = isX ? k : t;
+                int y = isX ? t : k;
+                if (isX) {
+                    update(rows.get(y), costY, y, cellCostY[x][y], 0);
+                } else {
+                    update(columns.get(x), costX, x, cellCostX[x][y], 0);
                 }
 
-                return GridUtils.getSize(gadgets.gadgets.get(c.getName()), dir);
+                int id = removeId(cells[x][y], x, y);
+                if (id >= 0) {
+                    changed.add(id);
+                }
+            }
         }
 
-        return 0;
+        boolean[] inserted = new boolean[size];
+        Arrays.fill(inserted, true);
+        for (int k : map) {
+            if (k >= 0) {
+                inserted[k] = false;
+            }
+        }
+
+        if (isX) {
+            cells = moveArrays(cells, map, new Cell[size][]);
+            cellCostX = moveArrays(cellCostX, map, new int[size][]);
+            cellCostY = moveArrays(cellCostY, map, new int[size][]);
+            for (int i = 0; i < size; i++) {
+                if (inserted[i]) {
+                    cells[i] = new Cell[sizeY];
+                    cellCostX[i] = new int[sizeY];
+                    cellCostY[i] = new int[sizeY];
+                }
+            }
+            columns = moveSlices(columns, map, size);
+            costX = moveEntries(costX, map, size);
+            sizeX = size;
+        } else {
+            for (int i = 0; i < sizeX; i++) {
+                cells[i] = moveArrays(cells[i], map, new Cell[size]);
+                cellCostX[i] = moveEntries(cellCostX[i], map, size);
+                cellCostY[i] = moveEntries(cellCostY[i], map, size);
+            }
+            rows = moveSlices(rows, map, size);
+            costY = moveEntries(costY, map, size);
+            sizeY = size;
+        }
+
+        List<Map.Entry<Integer, Location>> entries = ImmutableList.copyOf(ports.entries());
+        ports.clear();
+        for (Map.Entry<Integer, Location> entry : entries) {
+            Location loc = entry.getValue();
+            Location moved = isX ? new Location(map[loc.getX()], loc.getY()) : new Location(loc.getX(), map[loc.getY()]);
+            ports.put(entry.getKey(), moved);
+        }
+
+        return inserted;
     }
 
-    private int getIncrementalCostX(Cell c) {
-        return getIncrementalCost(c, Direction.getDirection(1, 0));
+    /**
+     * Costs the cells of the inserted slices, and then the ports of the nodes that changed size
+     */
+    private void addSlices(boolean[] newX, boolean[] newY, Set<Integer> changed) {
+        for (int i = 0; i < sizeX; i++) {
+            for (int j = 0; j < sizeY; j++) {
+                if (!newX[i] && !newY[j]) {
+                    continue;
+                }
+
+                cells[i][j] = grid.getCell(i, j);
+                int id = addId(cells[i][j], i, j);
+                if (id >= 0) {
+                    changed.add(id);
+                }
+                updateCell(i, j);
+            }
+        }
+
+        for (int id : changed) {
+            updatePorts(id);
+        }
+
+        totalCost = 0;
+        for (int cost : costX) {
+            totalCost += cost;
+        }
+        for (int cost : costY) {
+            totalCost += cost;
+        }
     }
 
-    private int getIncrementalCostY(Cell c) {
-        return getIncrementalCost(c, Direction.getDirection(0, 1));
+    private static <T> T[] moveArrays(T[] arrays, int[] map, T[] moved) {
+        for (int k = 0; k < map.length; k++) {
+            if (map[k] >= 0) {
+                moved[map[k]] = arrays[k];
+            }
+        }
+
+        return moved;
     }
 
-    private void initCosts() {
-        costX = new ArrayList<>();
-        costY = new ArrayList<>();
-        totalCost = 0;
-        for (int i = 0; i < grid.getSizeX(); i++) {
-            costX.add(0);
+    private static int[] moveEntries(int[] entries, int[] map, int size) {
+        int[] moved = new int[size];
+        for (int k = 0; k < map.length; k++) {
+            if (map[k] >= 0) {
+                moved[map[k]] = entries[k];
+            }
         }
 
-        for (int i = 0; i < grid.getSizeY(); i++) {
-            costY.add(0);
+        return moved;
+    }
+
+    private static List<TreeMultiset<Integer>> moveSlices(List<TreeMultiset<Integer>> slices, int[] map, int size) {
+        List<TreeMultiset<Integer>> moved = new ArrayList<>(Collections.nCopies(size, (TreeMultiset<Integer>) null));
+        for (int k = 0; k < map.length; k++) {
+            if (map[k] >= 0) {
+                moved.set(map[k], slices.get(k));
+            }
         }
 
-        for (int i = 0; i < grid.getSizeX(); i++) {
-            for (int j = 0; j < grid.getSizeY(); j++) {
-                Cell c = grid.getCell(i, j);
-                costX.set(i, Math.max(costX.get(i), getBaseCostX(c)));
-                costY.set(j, Math.max(costY.get(j), getBaseCostY(c)));
+        for (int i = 0; i < size; i++) {
+            if (moved.get(i) == null) {
+                moved.set(i, TreeMultiset.<Integer>create());
             }
         }
 
-        for (int c : costX) {
-            totalCost += c;
+        return moved;
+    }
+
+    /**
+     * Indexes a node or port cell, and returns its id if it's the first cell of a large node, or -1 otherwise
+     */
+    private int addId(Cell c, int x, int y) {
+        if (c.getCellType() == CellType.NODE && largeNodes.add(c.getIntId(), 1) == 0) {
+            return c.getIntId();
+        } else if (c.getCellType() == CellType.PORT) {
+            ports.put(c.getIntId(), new Location(x, y));
+            putGadgetId(c);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Unindexes a node or port cell, and returns its id if it was the last cell of a large node, or -1 otherwise
+     */
+    private int removeId(Cell c, int x, int y) {
+        if (c.getCellType() == CellType.NODE && largeNodes.remove(c.getIntId(), 1) == 1) {
+            return c.getIntId();
+        } else if (c.getCellType() == CellType.PORT) {
+            ports.remove(c.getIntId(), new Location(x, y));
+        }
+
+        return -1;
+    }
+
+    /**
+     * The cost of ports depends on whether they're part of a large node
+     */
+    private void updatePorts(int id) {
+        for (Location loc : ports.get(id)) {
+            updateCell(loc.getX(), loc.getY());
+        }
+    }
+
+    private void updateCell(int x, int y) {
+        Cell c = cells[x][y];
+
+        int baseX = getBaseCostX(c);
+        if (baseX != cellCostX[x][y]) {
+            totalCost += update(columns.get(x), costX, x, cellCostX[x][y], baseX);
+            cellCostX[x][y] = baseX;
         }
 
-        for (int c : costY) {
-            totalCost += c;
+        int baseY = getBaseCostY(c);
+        if (baseY != cellCostY[x][y]) {
+            totalCost += update(rows.get(y), costY, y, cellCostY[x][y], baseY);
+            cellCostY[x][y] = baseY;
         }
     }
 
+    /**
+     * Replaces a cost in a slice, and returns how much the widest cost of the slice went up by
+     */
+    private static int update(TreeMultiset<Integer> slice, int[] costs, int i, int oldCost, int newCost) {
+        if (oldCost != 0) {
+            slice.remove(oldCost);
+        }
+
+        if (newCost != 0) {
+            slice.add(newCost);
+        }
+
+        int max = slice.isEmpty() ? 0 : slice.lastEntry().getElement();
+        int diff = max - costs[i];
+        costs[i] = max;
+        return diff;
+    }
+
     public int getTotalCost() {
         return totalCost;
     }
 
+    /**
+     * The cost without any increase to the slices the cell is in
+     */
+    public int getMinCost(Cell c) {
+        return getBaseCostX(c) + getBaseCostY(c) + 1;
+    }
+
     public int getCost(Cell c, Location loc, int incrWeight) {
+        return getCost(c, loc.getX(), loc.getY(), incrWeight);
+    }
+
+    public int getCost(Cell c, int locX, int locY, int incrWeight) {
         int x = getIncrementalCostX(c);
         int y = getIncrementalCostY(c);
-        int curX = costX.get(loc.getX());
-        int curY = costY.get(loc.getY());
+        int curX = costX[locX];
+        int curY = costY[locY];
 
         return (curX <= x ? x - curX : 0) * incrWeight + (curY <= y ? y - curY : 0) * incrWeight
             + getBaseCostX(c) + getBaseCostY(c) + 1;
@@ -0,0 +1,210 @@
+package transform.planar;
+
+import com.google.common.base.Preconditions;
+import types.configuration.CellConfiguration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs rounds until the total cost stops improving on the best cost so far. The probability of ignoring ports starts
+ * high and cools down every round. Once the cost has stalled for a few rounds, or the round budget is nearly used up,
+ * a last few rounds with incremental costs are run, which stop early if they stall too. The grid is expanded in
+ * proportion to its size.
+ *
+ * The schedule also stops as soon as the round or time budget is used up.
+ */
+public class AnnealingSchedule implements ReplacementSchedule {
+    private int maxRounds = 16;
+    private long timeBudgetMillis = 0;
+    private double threshold = 0.01;
+    private int patience = 2;
+    private int incrementalRounds = 4;
+    private double maxProbIgnore = 0.6;
+    private double cooling = 0.8;
+    private double expandFraction = 0.1;
+    private int minExpand = 2;
+    private int maxExpand = 10;
+
+    @Override
+    public Run start() {
+        return new AnnealingRun();
+    }
+
+    private int getExpand(int size) {
+        int expand = (int) Math.ceil(size * expandFraction);
+        return Math.max(minExpand, Math.min(maxExpand, expand));
+    }
+
+    /**
+     * The most rounds to run
+     */
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    public void setMaxRounds(int maxRounds) {
+        Preconditions.checkArgument(maxRounds >= 0, "Rounds must not be negative");
+        this.maxRounds = maxRounds;
+    }
+
+    /**
+     * How long to start new rounds for, or 0 for no limit. A round that is already running is not cut short.
+     */
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    public void setTimeBudgetMillis(long timeBudgetMillis) {
+        Preconditions.checkArgument(timeBudgetMillis >= 0, "Time budget must not be negative");
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    /**
+     * The fraction of the best cost so far that a round has to save to count as an improvement
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * How many rounds in a row may fail to improve before moving on to incremental costs, or stopping
+     */
+    public int getPatience() {
+        return patience;
+    }
+
+    public void setPatience(int patience) {
+        Preconditions.checkArgument(patience > 0, "Patience must be positive");
+        this.patience = patience;
+    }
+
+    /**
+     * The most rounds to run with incremental costs, at the end
+     */
+    public int getIncrementalRounds() {
+        return incrementalRounds;
+    }
+
+    public void setIncrementalRounds(int incrementalRounds) {
+        Preconditions.checkArgument(incrementalRounds >= 0, "Rounds must not be negative");
+        this.incrementalRounds = incrementalRounds;
+    }
+
+    /**
+     * The probability of ignoring each port in the first round
+     */
+    public double getMaxProbIgnore() {
+        return maxProbIgnore;
+    }
+
+    public void setMaxProbIgnore(double maxProbIgnore) {
+        Preconditions.checkArgument(maxProbIgnore >= 0 && maxProbIgnore <= 1, "Not a probability");
+        this.maxProbIgnore = maxProbIgnore;
+    }
+
+    /**
+     * How much the probability of ignoring ports is multiplied by after each round
+     */
+    public double getCooling() {
+        return cooling;
+    }
+
+    public void setCooling(double cooling) {
+        Preconditions.checkArgument(cooling >= 0 && cooling <= 1, "Cooling must be between 0 and 1");
+        this.cooling = cooling;
+    }
+
+    /**
+     * How much to expand each side of the grid by before each round, as a fraction of its size
+     */
+    public double getExpandFraction() {
+        return expandFraction;
+    }
+
+    public void setExpandFraction(double expandFraction) {
+        Preconditions.checkArgument(expandFraction >= 0, "Fraction must not be negative");
+        this.expandFraction = expandFraction;
+    }
+
+    public int getMinExpand() {
+        return minExpand;
+    }
+
+    public void setMinExpand(int minExpand) {
+        Preconditions.checkArgument(minExpand > 0, "Expansion must be positive");
+        this.minExpand = minExpand;
+    }
+
+    public int getMaxExpand() {
+        return maxExpand;
+    }
+
+    public void setMaxExpand(int maxExpand) {
+        Preconditions.checkArgument(maxExpand > 0, "Expansion must be positive");
+        this.maxExpand = maxExpand;
+    }
+
+    private class AnnealingRun implements Run {
+        private final long startTime = System.nanoTime();
+        private int round;
+        private int bestCost;
+        private int stalled;
+        private int incrementalDone;
+        private boolean incremental;
+        private double probIgnore = maxProbIgnore;
+
+        @Override
+        public ReplacementRound next(CellConfiguration grid, int cost) {
+            // compare against the best cost so far, since ignoring ports makes the cost noisy from round to round
+            if (round == 0) {
+                bestCost = cost;
+            } else {
+                double improvement = (bestCost - cost) / (double) Math.max(bestCost, 1);
+                stalled = improvement < threshold ? stalled + 1 : 0;
+                bestCost = Math.min(bestCost, cost);
+            }
+
+            if (round >= maxRounds || isOutOfTime()) {
+                return null;
+            }
+
+            // incremental costs move the grid towards a different optimum, so start comparing again from here
+            if (!incremental && (stalled >= patience || maxRounds - round <= incrementalRounds)) {
+                incremental = true;
+                stalled = 0;
+                bestCost = cost;
+            }
+
+            if (incremental) {
+                if (incrementalDone >= incrementalRounds || stalled >= patience) {
+                    return null;
+                }
+
+                // cool down to 0 by the last incremental round
+                int remaining = incrementalRounds - incrementalDone;
+                probIgnore = probIgnore * (remaining - 1) / remaining;
+                incrementalDone++;
+            } else if (round > 0) {
+                probIgnore *= cooling;
+            }
+
+            round++;
+            return new ReplacementRound(
+                maxRounds - round,
+                getExpand(grid.getSizeX()),
+                getExpand(grid.getSizeY()),
+                probIgnore,
+                incremental
+            );
+        }
+
+        private boolean isOutOfTime() {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            return timeBudgetMillis > 0 && elapsed >= timeBudgetMillis;
+        }
+    }
+}
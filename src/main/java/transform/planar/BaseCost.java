@@ -11,6 +11,11 @@ public class BaseCost extends AbstractCostFunction implements CostFunction {
 
     @Override
     public int getCost(Cell c, Location loc) {
-        return getCost(c, loc, 0);
+        return getCost(c, loc.getX(), loc.getY(), 0);
+    }
+
+    @Override
+    public int getCost(Cell c, int x, int y) {
+        return getCost(c, x, y, 0);
     }
 }
@@ -0,0 +1,151 @@
+package transform.planar;
+
+import transform.planar.expander.CellExpander;
+import types.Direction;
+import types.configuration.CellConfiguration;
+import types.configuration.CellConfigurationListener;
+import types.configuration.cells.Cell;
+
+/**
+ * Counts the conflicting pairs of adjacent cells between every two neighboring slices of a grid, as decided by a
+ * cell expander. Once added as a listener to the grid, the counts are kept up to date in time proportional to the
+ * cells changed, so finding the slices to expand doesn't need to look at every cell.
+ */
+public class ConflictIndex implements CellConfigurationListener {
+    private static final Direction X = Direction.getDirection(1, 0);
+    private static final Direction Y = Direction.getDirection(0, 1);
+
+    private final CellConfiguration grid;
+    private final CellExpander expander;
+
+    // conflicts between slice i and i + 1 of constant x, and of constant y
+    private int[] countX;
+    private int[] countY;
+
+    public ConflictIndex(CellConfiguration grid, CellExpander expander) {
+        this.grid = grid;
+        this.expander = expander;
+        gridChanged();
+    }
+
+    /**
+     * Whether any cell in slice i conflicts with its neighbor in slice i + 1
+     * @param isX whether the slices are of constant x, or of constant y
+     */
+    public boolean hasConflict(boolean isX, int i) {
+        return isX ? countX[i] > 0 : countY[i] > 0;
+    }
+
+    @Override
+    public void cellChanged(int x, int y, Cell oldCell, Cell newCell) {
+        if (x > 0) {
+            Cell left = grid.getCell(x - 1, y);
+            countX[x - 1] += conflict(X, left, newCell) - conflict(X, left, oldCell);
+        }
+
+        if (x + 1 < grid.getSizeX()) {
+            Cell right = grid.getCell(x + 1, y);
+            countX[x] += conflict(X, newCell, right) - conflict(X, oldCell, right);
+        }
+
+        if (y > 0) {
+            Cell up = grid.getCell(x, y - 1);
+            countY[y - 1] += conflict(Y, up, newCell) - conflict(Y, up, oldCell);
+        }
+
+        if (y + 1 < grid.getSizeY()) {
+            Cell down = grid.getCell(x, y + 1);
+            countY[y] += conflict(Y, newCell, down) - conflict(Y, oldCell, down);
+        }
+    }
+
+    @Override
+    public void gridChanged() {
+        countX = new int[Math.max(grid.getSizeX() - 1, 0)];
+        countY = new int[Math.max(grid.getSizeY() - 1, 0)];
+        for (int i = 0; i < countX.length; i++) {
+            countX[i] = countSlice(true, i);
+        }
+
+        for (int j = 0; j < countY.length; j++) {
+            countY[j] = countSlice(false, j);
+        }
+    }
+
+    @Override
+    public void gridExpanded(int x, int y) {
+        gridChanged();
+    }
+
+    /**
+     * Only counts again between slices that weren't neighbors before, and along the inserted slices
+     */
+    @Override
+    public void slicesMoved(boolean isX, int[] map) {
+        int size = isX ? grid.getSizeX() : grid.getSizeY();
+        boolean[] moved = new boolean[size];
+        for (int k : map) {
+            if (k < 0) {
+                // the deleted cells are gone, so their conflicts can't be taken back
+                gridChanged();
+                return;
+            }
+            moved[k] = true;
+        }
+
+        int[] counts = isX ? countX : countY;
+        int[] newCounts = new int[Math.max(size - 1, 0)];
+        boolean[] kept = new boolean[newCounts.length];
+        for (int k = 0; k + 1 < map.length; k++) {
+            if (map[k + 1] == map[k] + 1) {
+                newCounts[map[k]] = counts[k];
+                kept[map[k]] = true;
+            }
+        }
+
+        for (int i = 0; i < newCounts.length; i++) {
+            if (!kept[i]) {
+                newCounts[i] = countSlice(isX, i);
+            }
+        }
+
+        // the inserted cells also have neighbors along the other slices
+        int[] otherCounts = isX ? countY : countX;
+        for (int i = 0; i < size; i++) {
+            if (moved[i]) {
+                continue;
+            }
+
+            for (int j = 0; j < otherCounts.length; j++) {
+                otherCounts[j] += isX
+                    ? conflict(Y, grid.getCell(i, j), grid.getCell(i, j + 1))
+                    : conflict(X, grid.getCell(j, i), grid.getCell(j + 1, i));
+            }
+        }
+
+        if (isX) {
+            countX = newCounts;
+        } else {
+            countY = newCounts;
+        }
+    }
+
+    private int countSlice(boolean isX, int i) {
+        int count = 0;
+        if (isX) {
+            for (int j = 0; j < grid.getSizeY(); j++) {
+                count += conflict(X, grid.getCell(i, j), grid.getCell(i + 1, j));
+            }
+        } else {
+            for (int j = 0; j < grid.getSizeX(); j++) {
+                count += conflict(Y, grid.getCell(j, i), grid.getCell(j, i + 1));
+            }
+        }
+
+        return count;
+    }
+
+    private int conflict(Direction d, Cell c1, Cell c2) {
+        return expander.conflict(d, c1, c2) ? 1 : 0;
+    }
+}
@@ -6,4 +6,14 @@ import types.configuration.cells.Cell;
 public interface CostFunction {
     int getTotalCost();
     int getCost(Cell c, Location loc);
+
+    /**
+     * The same as getCost(c, new Location(x, y)), for routing without making a location for every edge
+     */
+    int getCost(Cell c, int x, int y);
+
+    /**
+     * A lower bound of the cost of the cell wherever it is put
+     */
+    int getMinCost(Cell c);
 }
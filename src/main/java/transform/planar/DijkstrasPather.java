@@ -107,16 +107,16 @@ public class DijkstrasPather {
         ImmutableList.Builder<DijkstrasNode> builder = ImmutableList.builder();
 
         if (c.getCellType() == CellType.WIRE) {
-            Cell next = new CrossoverCell(c.getOutputDirection(0), isInput ? d.opposite() : d);
+            Cell next = CrossoverCell.getCrossover(c.getOutputDirection(0), isInput ? d.opposite() : d);
             builder.add(new DijkstrasNode(v.clockwise().clockwise(), cost.getCost(next, loc)));
         } else if (c.getCellType() == CellType.EMPTY) {
             Cell wire = WireCell.getWire(isInput ? d.opposite() : d);
             builder.add(new DijkstrasNode(v.clockwise().clockwise(), cost.getCost(wire, loc)));
 
-            Cell turnCW = isInput ? new TurnCell(d.clockwise(), d) : new TurnCell(d, d.clockwise());
+            Cell turnCW = isInput ? TurnCell.getTurn(d.clockwise(), d) : TurnCell.getTurn(d, d.clockwise());
             builder.add(new DijkstrasNode(v.clockwise(), cost.getCost(turnCW, loc)));
 
-            Cell turnACW = isInput ? new TurnCell(d.anticlockwise(), d) : new TurnCell(d, d.anticlockwise());
+            Cell turnACW = isInput ? TurnCell.getTurn(d.anticlockwise(), d) : TurnCell.getTurn(d, d.anticlockwise());
             builder.add(new DijkstrasNode(v.anticlockwise(), cost.getCost(turnACW, loc)));
         }
 
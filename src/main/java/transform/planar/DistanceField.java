@@ -0,0 +1,209 @@
+package transform.planar;
+
+import types.Side;
+import types.configuration.CellConfiguration;
+
+import java.util.Arrays;
+
+/**
+ * The distance from a start side to every side of the grid, like a full search of AStarPather. The buffers are handed
+ * out by DistanceFields, and the field can be repaired in place after a few cells of the grid have changed.
+ */
+public class DistanceField {
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    // states of a side while repairing
+    private static final byte UNKNOWN = 0;
+    private static final byte VALID = 1;
+    private static final byte INVALID = 2;
+
+    private final CellConfiguration grid;
+    private final Side start;
+    private final boolean isInput;
+    private final int[] dist;
+    private final int[] prev;
+
+    private SideGraph graph;
+    private CostFunction cost;
+    private int settledCount;
+
+    /**
+     * Creates an empty field over the buffers, which must be computed before it is used
+     */
+    DistanceField(CellConfiguration grid, Side start, boolean isInput, int[] dist, int[] prev) {
+        this.grid = grid;
+        this.start = start;
+        this.isInput = isInput;
+        this.dist = dist;
+        this.prev = prev;
+    }
+
+    /**
+     * How many sides were settled by the last time the field was computed or repaired
+     */
+    int getSettledCount() {
+        return settledCount;
+    }
+
+    CostFunction getCost() {
+        return cost;
+    }
+
+    int[] getDistances() {
+        return dist;
+    }
+
+    int[] getPredecessors() {
+        return prev;
+    }
+
+    public boolean isPathable(Side s) {
+        return graph.contains(s) && dist[graph.encode(s)] != INFINITY;
+    }
+
+    public int distanceTo(Side end) {
+        if (!isPathable(end.opposite())) {
+            throw new IllegalArgumentException(String.format("Illegal input, no path from %s to %s", start, end));
+        }
+
+        return dist[graph.encode(end.opposite())];
+    }
+
+    /**
+     * Recomputes the whole field, with a possibly different cost function
+     */
+    void compute(CostFunction cost) {
+        this.cost = cost;
+        this.graph = new SideGraph(grid, cost, isInput);
+        compute();
+    }
+
+    private void compute() {
+        Arrays.fill(dist, INFINITY);
+        Arrays.fill(prev, -1);
+        if (!graph.contains(start)) {
+            throw new IllegalArgumentException(String.format("Start %s is not in the grid", start));
+        }
+
+        int s = graph.encode(start);
+        dist[s] = 0;
+        IntHeap queue = new IntHeap();
+        queue.push(s, 0);
+        search(queue);
+    }
+
+    /**
+     * Repairs the field after the given cells have changed, where cells are numbered x * sizeY + y.
+     * Only valid if the cost of every other cell is unchanged.
+     *
+     * Sides in changed cells, and every side whose shortest path goes through one, are invalidated and then searched
+     * again from their valid predecessors.
+     *
+     * @param invalid scratch space of at least graph.size() bytes, all 0, which is left all 0
+     */
+    void repair(int[] cells, int from, int to, byte[] invalid) {
+        int sizeY = graph.getSizeY();
+        int s = graph.encode(start);
+        for (int i = from; i < to; i++) {
+            int x = cells[i] / sizeY;
+            int y = cells[i] % sizeY;
+            if (x == start.getX() && y == start.getY()) {
+                Arrays.fill(invalid, (byte) 0);
+                compute();
+                return;
+            }
+
+            for (int d = 0; d < 4; d++) {
+                invalid[graph.encode(x, y, d)] = INVALID;
+            }
+        }
+
+        // everything downstream of an invalid side is invalid
+        int[] stack = new int[16];
+        for (int i = 0; i < dist.length; i++) {
+            if (dist[i] == INFINITY || invalid[i] != UNKNOWN) {
+                continue;
+            }
+
+            int size = 0;
+            int cur = i;
+            while (cur != s && invalid[cur] == UNKNOWN) {
+                if (size == stack.length) {
+                    stack = Arrays.copyOf(stack, size * 2);
+                }
+                stack[size++] = cur;
+                cur = prev[cur];
+            }
+
+            byte state = cur == s ? VALID : invalid[cur];
+            for (int j = 0; j < size; j++) {
+                invalid[stack[j]] = state;
+            }
+        }
+
+        int count = 0;
+        for (int i = 0; i < dist.length; i++) {
+            if (invalid[i] == INVALID) {
+                dist[i] = INFINITY;
+                prev[i] = -1;
+                if (count == stack.length) {
+                    stack = Arrays.copyOf(stack, count * 2);
+                }
+                stack[count++] = i;
+            }
+        }
+
+        // re-seed from the valid predecessors, the search then also finds paths that became shorter
+        IntHeap queue = new IntHeap();
+        int[] from3 = new int[3];
+        int[] weights = new int[3];
+        for (int i = 0; i < count; i++) {
+            int w = stack[i];
+            int n = graph.getReverseEdges(w, from3, weights);
+            for (int j = 0; j < n; j++) {
+                int u = from3[j];
+                if (invalid[u] == INVALID || dist[u] == INFINITY) {
+                    continue;
+                }
+
+                int alt = dist[u] + weights[j];
+                if (alt < dist[w]) {
+                    dist[w] = alt;
+                    prev[w] = u;
+                }
+            }
+
+            if (dist[w] != INFINITY) {
+                queue.push(w, dist[w]);
+            }
+        }
+
+        Arrays.fill(invalid, (byte) 0);
+        search(queue);
+    }
+
+    private void search(IntHeap queue) {
+        int[] to = new int[3];
+        int[] weights = new int[3];
+        settledCount = 0;
+        while (!queue.isEmpty()) {
+            int key = queue.peekKey();
+            int u = queue.pop();
+            if (key > dist[u]) {
+                continue;
+            }
+
+            settledCount++;
+            int count = graph.getEdges(u, to, weights);
+            for (int i = 0; i < count; i++) {
+                int w = to[i];
+                int alt = dist[u] + weights[i];
+                if (alt < dist[w]) {
+                    dist[w] = alt;
+                    prev[w] = u;
+                    queue.push(w, alt);
+                }
+            }
+        }
+    }
+}
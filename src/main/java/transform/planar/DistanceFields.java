@@ -0,0 +1,298 @@
+package transform.planar;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import types.Side;
+import types.configuration.CellConfiguration;
+import types.configuration.CellConfigurationListener;
+import types.configuration.cells.Cell;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Hands out distance fields from start sides on a grid, recycling their buffers. Fields are cached by start side, and
+ * when the same field is asked for again with the same cost function, it is repaired from the cells that changed in
+ * the meantime instead of being recomputed. Moving or resizing the grid drops every cached field.
+ *
+ * A cached field is only repaired if the cost function gives the same cost as before to every unchanged cell. The
+ * set itself is not thread safe, but getAll can compute the fields it hands out in parallel.
+ */
+public class DistanceFields implements CellConfigurationListener {
+    private static final int DEFAULT_CAPACITY = 32;
+
+    private final CellConfiguration grid;
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> fields;
+    private final ArrayDeque<int[]> pool;
+
+    // every cell changed since the oldest cached field was last brought up to date, numbered x * sizeY + y
+    private int[] changes;
+    private int changeCount;
+    private int changeOffset;
+
+    private byte[] scratch;
+    private int sizeX;
+    private int sizeY;
+    private long settledCount;
+
+    public DistanceFields(CellConfiguration grid) {
+        this(grid, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum number of fields to keep cached
+     */
+    public DistanceFields(CellConfiguration grid, int capacity) {
+        this.grid = grid;
+        this.capacity = capacity;
+        this.fields = new LinkedHashMap<>(16, 0.75f, true);
+        this.pool = new ArrayDeque<>();
+        this.changes = new int[16];
+        this.sizeX = grid.getSizeX();
+        this.sizeY = grid.getSizeY();
+        grid.addListener(this);
+    }
+
+    /**
+     * Gets the distance field from start. The field stays valid until it is asked for again, it is evicted to make
+     * room for other fields, or the grid changes.
+     */
+    public DistanceField get(Side start, boolean isInput, CostFunction cost) {
+        return getAll(ImmutableList.of(start), ImmutableList.of(isInput), cost, null).get(0);
+    }
+
+    /**
+     * Gets the distance fields from each of the starts, like get. None of them are evicted to make room for the others.
+     *
+     * @param pool the pool to compute the fields in, or null to compute them one at a time in this thread
+     */
+    public List<DistanceField> getAll(
+        List<Side> starts,
+        List<Boolean> isInput,
+        CostFunction cost,
+        ForkJoinPool pool
+    ) {
+        Preconditions.checkArgument(starts.size() == isInput.size());
+
+        ImmutableList.Builder<DistanceField> builder = ImmutableList.builder();
+        List<Update> updates = new ArrayList<>();
+        for (int i = 0; i < starts.size(); i++) {
+            Key key = new Key(starts.get(i), isInput.get(i));
+            Entry entry = fields.get(key);
+            if (entry == null) {
+                entry = new Entry(new DistanceField(grid, key.start, key.isInput, getBuffer(), getBuffer()));
+                fields.put(key, entry);
+                updates.add(new Update(entry.field, cost, 0, 0));
+            } else if (entry.field.getCost() != cost || changeCount - entry.synced > sizeX * sizeY / 4) {
+                updates.add(new Update(entry.field, cost, 0, 0));
+            } else if (entry.synced < changeCount) {
+                updates.add(new Update(entry.field, null, entry.synced - changeOffset, changeCount - changeOffset));
+            }
+
+            entry.synced = changeCount;
+            builder.add(entry.field);
+        }
+
+        if (pool == null || updates.size() < 2) {
+            if (scratch == null) {
+                scratch = new byte[sizeX * sizeY * 4];
+            }
+            for (Update update : updates) {
+                update.scratch = scratch;
+                update.invoke();
+            }
+        } else {
+            pool.invoke(new UpdateAll(updates));
+        }
+
+        for (Update update : updates) {
+            settledCount += update.field.getSettledCount();
+        }
+
+        evict(Math.max(capacity, starts.size()));
+        trimChanges();
+        return builder.build();
+    }
+
+    /**
+     * How many sides every field has settled while being computed or repaired, in total
+     */
+    public long getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Drops all the cached fields, and stops listening to the grid
+     */
+    public void release() {
+        clear();
+        pool.clear();
+        grid.removeListener(this);
+    }
+
+    public void clear() {
+        for (Entry entry : fields.values()) {
+            recycle(entry.field);
+        }
+        fields.clear();
+        changeCount = 0;
+        changeOffset = 0;
+    }
+
+    @Override
+    public void cellChanged(int x, int y, Cell oldCell, Cell newCell) {
+        if (fields.isEmpty()) {
+            return;
+        }
+
+        int index = changeCount - changeOffset;
+        if (index == changes.length) {
+            changes = Arrays.copyOf(changes, changes.length * 2);
+        }
+        changes[index] = x * sizeY + y;
+        changeCount++;
+    }
+
+    @Override
+    public void gridExpanded(int x, int y) {
+        gridChanged();
+    }
+
+    @Override
+    public void slicesMoved(boolean isX, int[] map) {
+        gridChanged();
+    }
+
+    @Override
+    public void gridChanged() {
+        clear();
+        if (grid.getSizeX() != sizeX || grid.getSizeY() != sizeY) {
+            sizeX = grid.getSizeX();
+            sizeY = grid.getSizeY();
+            pool.clear();
+            scratch = null;
+        }
+    }
+
+    private int[] getBuffer() {
+        int[] buffer = pool.poll();
+        return buffer != null ? buffer : new int[sizeX * sizeY * 4];
+    }
+
+    private void recycle(DistanceField field) {
+        pool.push(field.getDistances());
+        pool.push(field.getPredecessors());
+    }
+
+    private void evict(int capacity) {
+        Iterator<Map.Entry<Key, Entry>> it = fields.entrySet().iterator();
+        while (fields.size() > capacity && it.hasNext()) {
+            recycle(it.next().getValue().field);
+            it.remove();
+        }
+    }
+
+    /**
+     * Forgets the changes that every cached field has already seen
+     */
+    private void trimChanges() {
+        int min = changeCount;
+        for (Entry entry : fields.values()) {
+            min = Math.min(min, entry.synced);
+        }
+
+        int drop = min - changeOffset;
+        if (drop > 0) {
+            System.arraycopy(changes, drop, changes, 0, changeCount - min);
+            changeOffset = min;
+        }
+    }
+
+    /**
+     * Brings a field up to date, by recomputing it with a cost function, or else by repairing it from the change log
+     */
+    private class Update extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final DistanceField field;
+        private final CostFunction cost;
+        private final int from;
+        private final int to;
+        private byte[] scratch;
+
+        private Update(DistanceField field, CostFunction cost, int from, int to) {
+            this.field = field;
+            this.cost = cost;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (cost != null) {
+                field.compute(cost);
+            } else {
+                field.repair(changes, from, to, scratch != null ? scratch : new byte[sizeX * sizeY * 4]);
+            }
+        }
+    }
+
+    private static class UpdateAll extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Update> updates;
+
+        private UpdateAll(List<Update> updates) {
+            this.updates = updates;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(updates);
+        }
+    }
+
+    private static class Entry {
+        private final DistanceField field;
+        private int synced;
+
+        private Entry(DistanceField field) {
+            this.field = field;
+        }
+    }
+
+    private static class Key {
+        private final Side start;
+        private final boolean isInput;
+
+        private Key(Side start, boolean isInput) {
+            this.start = start;
+            this.isInput = isInput;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 71 * hash + start.hashCode();
+            hash = 71 * hash + (isInput ? 1 : 0);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Key) {
+                Key that = (Key) o;
+                return start.equals(that.start) && isInput == that.isInput;
+            }
+            return super.equals(o);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package transform.planar;
+
+import com.google.common.base.Preconditions;
+import types.configuration.CellConfiguration;
+
+/**
+ * A fixed number of rounds, counting the step down to 0. Each round expands the grid by the same amount, ignores
+ * ports with a probability proportional to the step, and the last few rounds use incremental costs.
+ */
+public class FixedSchedule implements ReplacementSchedule {
+    private final int rounds;
+    private final int incrementalRounds;
+    private final int expand;
+    private final double probIgnoreStep;
+
+    /**
+     * The original schedule, of 16 rounds, the last 4 of which are incremental
+     */
+    public FixedSchedule() {
+        this(16, 4, 5, 0.04);
+    }
+
+    public FixedSchedule(int rounds, int incrementalRounds, int expand, double probIgnoreStep) {
+        Preconditions.checkArgument(rounds >= 0 && incrementalRounds >= 0 && probIgnoreStep >= 0);
+        Preconditions.checkArgument(expand > 0, "Expansion must be positive");
+        this.rounds = rounds;
+        this.incrementalRounds = incrementalRounds;
+        this.expand = expand;
+        this.probIgnoreStep = probIgnoreStep;
+    }
+
+    @Override
+    public Run start() {
+        return new Run() {
+            private int step = rounds;
+
+            @Override
+            public ReplacementRound next(CellConfiguration grid, int cost) {
+                if (step <= 0) {
+                    return null;
+                }
+
+                step--;
+                return new ReplacementRound(step, expand, expand, step * probIgnoreStep, step < incrementalRounds);
+            }
+        };
+    }
+}
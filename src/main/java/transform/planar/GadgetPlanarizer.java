@@ -1,23 +1,28 @@
 package transform.planar;
 
-import com.google.common.base.Preconditions;
-import com.google.common.collect.Multimap;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
 import transform.GadgetUtils;
 import transform.Processor;
 import transform.wiring.FrobeniusWirer;
 import transform.wiring.TurnShifter;
-import types.Direction;
 import types.Gadget;
-import types.Grid;
 import types.configuration.AtomicConfiguration;
 import types.configuration.CellConfiguration;
+import utils.MathUtils;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Random;
+import java.util.concurrent.*;
 
 public class GadgetPlanarizer implements Processor<AtomicConfiguration, CellConfiguration> {
     private GadgetSet gadgets;
+    private final PlanarizerOptions options = new PlanarizerOptions();
+    private final List<PlanarizerListener> listeners = new CopyOnWriteArrayList<>();
+
     public GadgetPlanarizer(
         Iterable<Gadget> wires,
         Iterable<Gadget> turns,
@@ -34,10 +39,131 @@ public class GadgetPlanarizer implements Processor<AtomicConfiguration, CellConf
         );
     }
 
+    public PlanarizerOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Adds a listener to hear about the progress of every run, as well as the progress printed if the options say so
+     */
+    public void addListener(PlanarizerListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(PlanarizerListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * The listeners of a run, starting with a printer if the options ask for progress
+     */
+    private List<PlanarizerListener> getListeners() {
+        List<PlanarizerListener> all = new ArrayList<>();
+        if (options.isPrintProgress()) {
+            all.add(new ProgressPrinter(options.isPrintGrid(), options.getStarts() > 1));
+        }
+        all.addAll(listeners);
+        return all;
+    }
+
     @Override
     public CellConfiguration process(AtomicConfiguration atomicConfiguration) {
-        GadgetPlanarizerInstance instance = new GadgetPlanarizerInstance(atomicConfiguration, gadgets);
+        long seed = options.getSeed() == null ? new Random().nextLong() : options.getSeed();
+        for (PlanarizerListener listener : getListeners()) {
+            listener.started(seed);
+        }
+
+        Map<String, MacroBlock> macros = options.isHierarchical()
+            ? getMacros(atomicConfiguration, seed)
+            : ImmutableMap.<String, MacroBlock>of();
+        if (options.getStarts() == 1) {
+            return place(atomicConfiguration, seed, macros, 0);
+        }
+
+        return placeAll(atomicConfiguration, seed, macros);
+    }
+
+    /**
+     * Planarizes each substitution used by the top level once, by name
+     */
+    private Map<String, MacroBlock> getMacros(AtomicConfiguration atomicConfiguration, long seed) {
+        Map<String, MacroBlock> macros = new LinkedHashMap<>();
+        int k = 0;
+        for (String name : atomicConfiguration.getTopSubstitutions()) {
+            for (PlanarizerListener listener : getListeners()) {
+                listener.substitutionStarted(name);
+            }
+            AtomicConfiguration sub = atomicConfiguration.getSubstitution(name);
+            // negative keys, so the seeds differ from those of the starts
+            long subSeed = MathUtils.deriveSeed(seed, -1, k);
+            CellConfiguration layout = place(sub, subSeed, ImmutableMap.<String, MacroBlock>of(), 0);
+            macros.put(name, new MacroBlock(sub, layout));
+            k++;
+        }
+
+        return macros;
+    }
+
+    private CellConfiguration place(
+        AtomicConfiguration atomicConfiguration,
+        long seed,
+        Map<String, MacroBlock> macros,
+        int start
+    ) {
+        GadgetPlanarizerInstance instance = new GadgetPlanarizerInstance(
+            atomicConfiguration, gadgets, options, seed, macros, start
+        );
+        for (PlanarizerListener listener : getListeners()) {
+            instance.addListener(listener);
+        }
         instance.place();
         return instance.getGrid();
     }
+
+    /**
+     * Places the configuration once for each start, concurrently, and returns the placement that costs the least
+     */
+    private CellConfiguration placeAll(
+        final AtomicConfiguration atomicConfiguration,
+        long seed,
+        final Map<String, MacroBlock> macros
+    ) {
+        int starts = options.getStarts();
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(starts, Runtime.getRuntime().availableProcessors())
+        );
+        try {
+            List<Future<CellConfiguration>> futures = new ArrayList<>();
+            for (int i = 0; i < starts; i++) {
+                final long startSeed = MathUtils.deriveSeed(seed, i);
+                final int start = i;
+                futures.add(executor.submit(new Callable<CellConfiguration>() {
+                    @Override
+                    public CellConfiguration call() throws Exception {
+                        return place(atomicConfiguration, startSeed, macros, start);
+                    }
+                }));
+            }
+
+            CellConfiguration best = null;
+            int bestCost = Integer.MAX_VALUE;
+            for (Future<CellConfiguration> future : futures) {
+                CellConfiguration grid = future.get();
+                int cost = new AbstractCostFunction(grid, gadgets).getTotalCost();
+                if (cost < bestCost) {
+                    best = grid;
+                    bestCost = cost;
+                }
+            }
+
+            return best;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while planarizing", e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
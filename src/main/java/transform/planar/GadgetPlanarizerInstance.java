@@ -1,5 +1,7 @@
 package transform.planar;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import transform.GadgetConverter;
 import transform.GadgetUtils;
 import types.Gadget;
@@ -7,110 +9,606 @@ import types.Location;
 import types.Side;
 import types.configuration.AtomicConfiguration;
 import types.configuration.CellConfiguration;
+import types.configuration.cells.Cell;
+import types.configuration.cells.EmptyCell;
 import types.configuration.nodes.AtomicNode;
 import types.configuration.nodes.AtomicPort;
+import utils.MathUtils;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 class GadgetPlanarizerInstance {
     private static final int INITIAL_SIZE = 10;
     private final GadgetSet gadgets;
+    private final PlanarizerOptions options;
+    private final long seed;
+    private final int start;
 
     private CellConfiguration grid;
     private AtomicConfiguration config;
+    private final AtomicConfiguration flatConfig;
+    private final Map<String, MacroBlock> macros;
     private final GridExpander expander;
     private final GadgetConverter converter;
+    private final DistanceFields fields;
 
-    private boolean incrCost = false;
+    // the cost functions are kept up to date by listening to the grid, instead of being rebuilt for every use
+    private BaseCost baseCost;
+    private IncrementalCost incrementalCost;
+    private final ConflictIndex conflicts;
+    private final PlacementIndex placements;
 
-    GadgetPlanarizerInstance(AtomicConfiguration config, GadgetSet gadgets) {
-        this.config = config;
+    private final PlanarizerMetrics metrics = new PlanarizerMetrics();
+    private final List<PlanarizerListener> listeners = new ArrayList<>();
+
+    GadgetPlanarizerInstance(AtomicConfiguration config, GadgetSet gadgets, PlanarizerOptions options, long seed) {
+        this(config, gadgets, options, seed, ImmutableMap.<String, MacroBlock>of(), 0);
+    }
+
+    /**
+     * Planarizes the substitutions with the given names as the blocks of their layouts, which are only put in the grid
+     * at the end
+     *
+     * @param start the index of the start, which is told to the listeners
+     */
+    GadgetPlanarizerInstance(
+        AtomicConfiguration config,
+        GadgetSet gadgets,
+        PlanarizerOptions options,
+        long seed,
+        Map<String, MacroBlock> macros,
+        int start
+    ) {
+        this.flatConfig = config;
+        this.macros = macros;
+        this.config = macros.isEmpty() ? config : config.withAtoms(macros.keySet());
         this.gadgets = gadgets;
-        this.grid = new CellConfiguration(INITIAL_SIZE, INITIAL_SIZE);
+        this.options = options;
+        this.seed = seed;
+        this.start = start;
+        this.grid = new CellConfiguration(EmptyCell.getInstance(), INITIAL_SIZE, INITIAL_SIZE, options.isTiledGrid());
         this.expander = new GridExpander();
         this.converter = new GadgetConverter();
+        this.fields = new DistanceFields(grid);
+        this.baseCost = new BaseCost(grid, gadgets);
+        grid.addListener(baseCost);
+        this.conflicts = expander.getConflictIndex(grid);
+        grid.addListener(conflicts);
+        this.placements = new PlacementIndex(grid);
+        grid.addListener(placements);
     }
 
     public CellConfiguration getGrid() {
         return this.grid;
     }
 
+    public PlanarizerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void addListener(PlanarizerListener listener) {
+        listeners.add(listener);
+    }
+
     public void place() {
+        try {
+            placeAll();
+            for (PlanarizerListener listener : listeners) {
+                listener.finished(start, grid, metrics);
+            }
+        } finally {
+            fields.release();
+            grid.removeListener(conflicts);
+            grid.removeListener(placements);
+            grid.removeListener(baseCost);
+            if (incrementalCost != null) {
+                grid.removeListener(incrementalCost);
+            }
+        }
+    }
+
+    private void placeAll() {
         Iterable<AtomicNode> nodes = config.getNodes();
         // assume nodes are in topological order
         for (AtomicNode node : nodes) {
-            CellConfiguration nodeGrid = converter.toGridConfiguration(gadgets.gadgets.get(node.getName()), node.getId());
-            List<Location> locs = PlanarUtils.getPlacements(grid, nodeGrid);
-            if (locs.isEmpty()) {
+            CellConfiguration nodeGrid = getNodeGrid(node);
+            long start = System.nanoTime();
+            Location best = placements.getFirstPlacement(nodeGrid);
+            if (best == null) {
                 grid.resize(grid.getSizeX() + nodeGrid.getSizeX() + 2, grid.getSizeY() + nodeGrid.getSizeY() + 2);
-                locs = PlanarUtils.getPlacements(grid, nodeGrid);
+                best = placements.getFirstPlacement(nodeGrid);
             }
+            metrics.addTime(PlanarizerMetrics.Phase.PLACEMENT, System.nanoTime() - start);
 
-            Location best = locs.get(0);
             if (!grid.isEmpty(nodeGrid.getSizeX() + 2, nodeGrid.getSizeY() + 2, best.subtract(1, 1))) {
                 throw new IllegalStateException(
                     String.format("Configuration put at node %s would overwrite cells", best)
                 );
             }
             grid.put(nodeGrid, best);
+            metrics.increment(PlanarizerMetrics.Counter.NODES_PLACED);
             connectInputs(node);
         }
 
         replace();
+        if (!macros.isEmpty()) {
+            putMacros();
+        }
         expander.expandLast(grid);
     }
 
+    private CellConfiguration getNodeGrid(AtomicNode node) {
+        MacroBlock macro = macros.get(node.getName());
+        if (macro != null) {
+            return macro.getBlock(node.getNodeId());
+        }
+
+        return converter.toGridConfiguration(gadgets.gadgets.get(node.getName()), node.getNodeId());
+    }
+
+    /**
+     * Puts the layout of each substitution in place of its block, and then routes the wires that leave them
+     */
+    private void putMacros() {
+        Set<Integer> blocks = new HashSet<>();
+        for (AtomicNode node : ImmutableList.copyOf(config.getNodes())) {
+            MacroBlock macro = macros.get(node.getName());
+            if (macro == null) {
+                continue;
+            }
+
+            SortedSet<Location> cells = grid.getNodeCells(node.getIntId());
+            int minX = cells.first().getX();
+            int minY = Integer.MAX_VALUE;
+            for (Location loc : cells) {
+                minY = Math.min(minY, loc.getY());
+            }
+
+            PlanarUtils.deleteNode(grid, node);
+            macro.putLayout(grid, new Location(minX, minY), node.getNodeId(), config.getIds());
+            blocks.add(node.getNode().getId());
+        }
+
+        // room for wires around layouts on the border
+        grid.expand(2, 2);
+        config = flatConfig;
+        List<AtomicPort> inputs = new ArrayList<>();
+        for (AtomicNode node : config.getNodes()) {
+            for (int i = 0; i < node.inputSize(); i++) {
+                AtomicPort port = node.getInputPort(i);
+                AtomicPort conn = config.getConnectingPort(port);
+                if (config.isLabelled(conn) && getBlock(port, blocks) != getBlock(conn, blocks)) {
+                    inputs.add(port);
+                }
+            }
+        }
+
+        for (AtomicPort port : inputs) {
+            Side start = PlanarUtils.findPort(grid, port);
+            Side end = PlanarUtils.findPort(grid, config.getConnectingPort(port));
+            PlanarUtils.putInputPath(grid, route(start, end, true));
+            if (!options.isBatchedExpansion()) {
+                expand();
+            }
+        }
+
+        if (options.isBatchedExpansion()) {
+            expand();
+        }
+        PlanarUtils.deleteSlices(grid);
+    }
+
+    /**
+     * The id of the block the port was inside of, or -1 if it is at the top level
+     */
+    private static int getBlock(AtomicPort port, Set<Integer> blocks) {
+        List<Integer> context = port.getContext();
+        if (context.isEmpty() || !blocks.contains(context.get(0))) {
+            return -1;
+        }
+
+        return context.get(0);
+    }
+
 
-    // TODO - replace 2 at a time
     public void replace() {
+        ForkJoinPool pool = options.getParallelism() > 1 ? new ForkJoinPool(options.getParallelism()) : null;
+        try {
+            replace(pool);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private void replace(ForkJoinPool pool) {
         expander.expandDouble(grid);
-        Iterable<AtomicNode> nodes = config.getNodes();
-        for (int i = 15; i >= 0; i--) {
-            grid.expand(5, 5); // TODO non hard code
-            if (i < 4) {
-                incrCost = true;
-            }
-            System.out.println(String.format(
-                "re-placing step %d, cost - %d, size - %d, %d.",
-                i,
-                getNewCostFunction().getTotalCost(),
-                grid.getSizeX(),
-                grid.getSizeY()
+        ReplacementSchedule.Run schedule = options.getSchedule().start();
+        int cost = getCostFunction().getTotalCost();
+        int index = 0;
+        for (ReplacementRound round = schedule.next(grid, cost); round != null; round = schedule.next(grid, cost)) {
+            grid.expand(round.getExpandX(), round.getExpandY());
+            setIncrementalCost(round.isIncremental());
+            for (PlanarizerListener listener : listeners) {
+                listener.roundStarted(start, round.getStep(), getCostFunction().getTotalCost(), grid, metrics);
+            }
+
+            if (options.isParallelRounds() && pool != null) {
+                replaceInBatches(index, round.getProbIgnore(), pool);
+            } else {
+                replaceAll(index, round.getProbIgnore(), pool);
+            }
+
+            if (options.isRerouteAll()) {
+                rerouteAll();
+            }
+
+            PlanarUtils.deleteSlices(grid);
+            cost = getCostFunction().getTotalCost();
+            for (PlanarizerListener listener : listeners) {
+                listener.roundFinished(start, round.getStep(), cost, grid, metrics);
+            }
+            index++;
+        }
+    }
+
+    private void replaceAll(int round, double probIgnore, ForkJoinPool pool) {
+        int k = 0;
+        for (AtomicNode node : config.getNodes()) {
+            PlanarUtils.deleteNode(grid, node);
+            CellConfiguration nodeGrid = getNodeGrid(node);
+            putNode(node, nodeGrid, findReplacement(node, nodeGrid, probIgnore, getRandom(round, k), pool));
+            connect(node);
+            k++;
+        }
+    }
+
+    /**
+     * The random choices for re-placing the kth node in a round, which only depend on the seed, so that they are the
+     * same whichever order or thread the nodes are re-placed in
+     */
+    private Random getRandom(int round, int k) {
+        return new Random(MathUtils.deriveSeed(seed, round, k));
+    }
+
+    /**
+     * Re-places the nodes in batches of consecutive nodes whose regions don't overlap. The placements of a batch are
+     * searched for concurrently, and then put one at a time, searching again for any placement that has been taken
+     * in the meantime. If the round costs more than the tolerance allows, it is undone and re-placed sequentially.
+     */
+    private void replaceInBatches(int round, double probIgnore, ForkJoinPool pool) {
+        int sizeX = grid.getSizeX();
+        int sizeY = grid.getSizeY();
+        Cell[][] snapshot = new Cell[sizeX][sizeY];
+        for (int i = 0; i < sizeX; i++) {
+            for (int j = 0; j < sizeY; j++) {
+                snapshot[i][j] = grid.getCell(i, j);
+            }
+        }
+        int before = getCostFunction().getTotalCost();
+
+        List<AtomicNode> nodes = ImmutableList.copyOf(config.getNodes());
+        Map<Integer, Region> bounds = getBounds();
+        int next = 0;
+        while (next < nodes.size()) {
+            List<AtomicNode> batch = getBatch(nodes, next, options.getParallelism(), bounds);
+            replaceBatch(round, next, batch, probIgnore, pool, bounds);
+            next += batch.size();
+        }
+
+        int after = getCostFunction().getTotalCost();
+        if (after > before * (1 + options.getParallelTolerance())) {
+            metrics.increment(PlanarizerMetrics.Counter.ROUNDS_UNDONE);
+            grid.set(snapshot, sizeX, sizeY);
+            replaceAll(round, probIgnore, pool);
+        }
+    }
+
+    /**
+     * Re-places a batch of nodes, and then updates the bounds of the nodes that moved. Every bound is computed again if
+     * connecting the nodes expanded the grid.
+     */
+    private void replaceBatch(
+        int round,
+        int from,
+        List<AtomicNode> batch,
+        double probIgnore,
+        ForkJoinPool pool,
+        Map<Integer, Region> bounds
+    ) {
+        metrics.increment(PlanarizerMetrics.Counter.BATCHES);
+        int sizeX = grid.getSizeX();
+        int sizeY = grid.getSizeY();
+        List<CellConfiguration> nodeGrids = new ArrayList<>();
+        for (AtomicNode node : batch) {
+            PlanarUtils.deleteNode(grid, node);
+            nodeGrids.add(getNodeGrid(node));
+        }
+
+        // each search gets its own fields, which have to listen to the grid from this thread
+        List<ReplacementSearch> searches = new ArrayList<>();
+        for (int k = 0; k < batch.size(); k++) {
+            searches.add(new ReplacementSearch(
+                batch.get(k), nodeGrids.get(k), probIgnore, getRandom(round, from + k), new DistanceFields(grid)
             ));
+        }
 
-            for (AtomicNode node : nodes) {
-                PlanarUtils.deleteNode(grid, node);
-                CellConfiguration nodeGrid = converter.toGridConfiguration(gadgets.gadgets.get(node.getName()), node.getId());
-                Location best = PlanarUtils.findReplacement(
-                    grid, config, node, nodeGrid, getNewCostFunction(), i * 0.04
-                );
+        List<Location> found = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            for (ReplacementSearch search : searches) {
+                pool.execute(search);
+            }
+            for (ReplacementSearch search : searches) {
+                found.add(search.join());
+            }
+        } finally {
+            for (ReplacementSearch search : searches) {
+                metrics.add(PlanarizerMetrics.Counter.SIDES_SETTLED, search.fields.getSettledCount());
+                search.fields.release();
+            }
+            metrics.addTime(PlanarizerMetrics.Phase.PLACEMENT, System.nanoTime() - start);
+        }
+
+        for (int k = 0; k < batch.size(); k++) {
+            AtomicNode node = batch.get(k);
+            CellConfiguration nodeGrid = nodeGrids.get(k);
+            Location best = found.get(k);
+            if (best == null || !grid.isEmpty(nodeGrid.getSizeX() + 2, nodeGrid.getSizeY() + 2, best.subtract(1, 1))) {
+                metrics.increment(PlanarizerMetrics.Counter.RESEARCHES);
+                best = findReplacement(node, nodeGrid, probIgnore, getRandom(round, from + k), pool);
+            }
+            putNode(node, nodeGrid, best);
+        }
+
+        for (AtomicNode node : batch) {
+            connect(node);
+        }
+
+        if (sizeX != grid.getSizeX() || sizeY != grid.getSizeY()) {
+            bounds.clear();
+            bounds.putAll(getBounds());
+            return;
+        }
+
+        for (AtomicNode node : batch) {
+            Region region = getBounds(node.getIntId());
+            if (region == null) {
+                bounds.remove(node.getIntId());
+            } else {
+                bounds.put(node.getIntId(), region);
+            }
+        }
+    }
+
+    /**
+     * The longest run of nodes from the given index, up to the max size, whose regions don't overlap
+     */
+    List<AtomicNode> getBatch(List<AtomicNode> nodes, int from, int maxSize, Map<Integer, Region> bounds) {
+        List<AtomicNode> batch = new ArrayList<>();
+        List<Region> regions = new ArrayList<>();
+        for (int k = from; k < nodes.size() && batch.size() < maxSize; k++) {
+            Region region = getRegion(nodes.get(k), bounds);
+            // a node without a region goes in a batch by itself
+            boolean overlaps = region == null && !batch.isEmpty();
+            for (Region other : regions) {
+                overlaps = overlaps || other == null || region.overlaps(other);
+            }
+
+            if (overlaps) {
+                break;
+            }
+            batch.add(nodes.get(k));
+            regions.add(region);
+        }
+
+        return batch;
+    }
+
+    /**
+     * The bounds of the cells of every node, by id
+     */
+    Map<Integer, Region> getBounds() {
+        Map<Integer, Region> bounds = new HashMap<>();
+        for (int id : grid.getNodeIds()) {
+            bounds.put(id, getBounds(id));
+        }
+
+        return bounds;
+    }
+
+    /**
+     * The bounds of the cells of a node, or null if it has none
+     */
+    private Region getBounds(int id) {
+        SortedSet<Location> cells = grid.getNodeCells(id);
+        if (cells.isEmpty()) {
+            return null;
+        }
+
+        Location first = cells.first();
+        Region region = new Region(first.getX(), first.getY(), first.getX(), first.getY());
+        for (Location loc : cells) {
+            region = region.add(loc.getX(), loc.getY());
+        }
+        return region;
+    }
+
+    /**
+     * The region a node and its wires probably lie in, which is the bounds of the node and every node connected to it
+     */
+    Region getRegion(AtomicNode node, Map<Integer, Region> bounds) {
+        Region region = bounds.get(node.getIntId());
+        List<AtomicPort> ports = new ArrayList<>();
+        for (int i = 0; i < node.inputSize(); i++) {
+            ports.add(config.getConnectingPort(node.getInputPort(i)));
+        }
+
+        for (int i = 0; i < node.outputSize(); i++) {
+            ports.add(config.getConnectingPort(node.getOutputPort(i)));
+        }
+
+        for (AtomicPort port : ports) {
+            Region other = bounds.get(port.getIntId());
+            if (region == null || other == null) {
+                return null;
+            }
+            region = region.add(other);
+        }
+
+        return region;
+    }
 
-                // TODO - expand grid
-                if (best == null) {
-                    throw new IllegalStateException(
-                        String.format("Couldn't find location to re-place node %s", node)
-                    );
+    private Location findReplacement(
+        AtomicNode node,
+        CellConfiguration nodeGrid,
+        double probIgnore,
+        Random random,
+        ForkJoinPool pool
+    ) {
+        if (incrementalCost != null) {
+            // incremental costs depend on the whole grid, so the fields can't be repaired
+            fields.clear();
+        }
+
+        long start = System.nanoTime();
+        long settled = fields.getSettledCount();
+        Location best = PlanarUtils.findReplacement(
+            grid,
+            config,
+            node,
+            nodeGrid,
+            getCostFunction(),
+            probIgnore,
+            random,
+            fields,
+            placements,
+            options.getReplacementWindow(),
+            pool,
+            options.isConcurrentFields()
+        );
+        metrics.add(PlanarizerMetrics.Counter.SIDES_SETTLED, fields.getSettledCount() - settled);
+        metrics.addTime(PlanarizerMetrics.Phase.PLACEMENT, System.nanoTime() - start);
+        return best;
+    }
+
+    private void putNode(AtomicNode node, CellConfiguration nodeGrid, Location best) {
+        // TODO - expand grid
+        if (best == null) {
+            throw new IllegalStateException(
+                String.format("Couldn't find location to re-place node %s", node)
+            );
+        }
+
+        if (!grid.isEmpty(nodeGrid.getSizeX() + 2, nodeGrid.getSizeY() + 2, best.subtract(1, 1))) {
+            throw new IllegalStateException(
+                String.format("CellConfiguration put at node %s would overwrite cells", best)
+            );
+        }
+        grid.put(nodeGrid, best);
+        metrics.increment(PlanarizerMetrics.Counter.NODES_PLACED);
+    }
+
+    private void connect(AtomicNode node) {
+        if (options.isNegotiatedRouting()) {
+            connectTogether(ImmutableList.of(node));
+        } else {
+            connectInputs(node);
+            connectOutputs(node);
+        }
+    }
+
+    /**
+     * Rips up every wire and routes them all again together, unless that costs more
+     */
+    private void rerouteAll() {
+        int sizeX = grid.getSizeX();
+        int sizeY = grid.getSizeY();
+        Cell[][] snapshot = new Cell[sizeX][sizeY];
+        for (int i = 0; i < sizeX; i++) {
+            for (int j = 0; j < sizeY; j++) {
+                snapshot[i][j] = grid.getCell(i, j);
+            }
+        }
+        int before = getCostFunction().getTotalCost();
+
+        for (AtomicNode node : config.getNodes()) {
+            PlanarUtils.deleteWires(grid, node);
+        }
+        connectTogether(config.getNodes());
+
+        if (getCostFunction().getTotalCost() > before) {
+            grid.set(snapshot, sizeX, sizeY);
+        }
+    }
+
+    /**
+     * Routes the wires of the nodes with the negotiated router. Any wire it can't route legally is then routed by
+     * itself.
+     */
+    private void connectTogether(Iterable<AtomicNode> nodes) {
+        // each wire once, from the output side to the input side
+        Map<Side, Side> wires = new LinkedHashMap<>();
+        for (AtomicNode node : nodes) {
+            for (int i = 0; i < node.inputSize(); i++) {
+                AtomicPort port = node.getInputPort(i);
+                if (!config.isLabelled(config.getConnectingPort(port))) {
+                    continue;
                 }
+                wires.put(PlanarUtils.findPort(grid, port), PlanarUtils.findPort(grid, config.getConnectingPort(port)));
+            }
 
-                if (!grid.isEmpty(nodeGrid.getSizeX() + 2, nodeGrid.getSizeY() + 2, best.subtract(1, 1))) {
-                    throw new IllegalStateException(
-                        String.format("CellConfiguration put at node %s would overwrite cells", best)
-                    );
+            for (int i = 0; i < node.outputSize(); i++) {
+                AtomicPort port = node.getOutputPort(i);
+                if (!config.isLabelled(config.getConnectingPort(port))) {
+                    continue;
                 }
-                grid.put(nodeGrid, best);
-                connectInputs(node);
-                connectOutputs(node);
+                wires.put(PlanarUtils.findPort(grid, config.getConnectingPort(port)), PlanarUtils.findPort(grid, port));
             }
+        }
 
-            PlanarUtils.deleteSlices(grid);
-            System.out.println(grid);
+        List<Side> ends = ImmutableList.copyOf(wires.keySet());
+        List<Side> starts = ImmutableList.copyOf(wires.values());
+        long start = System.nanoTime();
+        NegotiatedRouter router = new NegotiatedRouter(grid, getCostFunction(), options.getNegotiationRounds());
+        List<List<Side>> paths = router.route(starts, ends);
+        for (List<Side> path : paths) {
+            if (path != null) {
+                PlanarUtils.putOutputPath(grid, path);
+                metrics.increment(PlanarizerMetrics.Counter.WIRES_ROUTED);
+            }
         }
+        metrics.add(PlanarizerMetrics.Counter.SIDES_SETTLED, router.getSettledCount());
+        metrics.addTime(PlanarizerMetrics.Phase.ROUTING, System.nanoTime() - start);
+
+        for (int k = 0; k < paths.size(); k++) {
+            if (paths.get(k) == null) {
+                PlanarUtils.putOutputPath(grid, route(starts.get(k), ends.get(k), false));
+            }
+        }
+
+        expand();
     }
 
     private void connectInputs(AtomicNode node) {
         for (int i = 0; i < node.inputSize(); i++) {
             AtomicPort port = node.getInputPort(i);
+            if (!config.isLabelled(config.getConnectingPort(port))) {
+                // the input of a substitution being planarized by itself
+                continue;
+            }
+
             Side start = PlanarUtils.findPort(grid, port);
             Side end = PlanarUtils.findPort(grid, config.getConnectingPort(port));
 
@@ -123,15 +621,25 @@ class GadgetPlanarizerInstance {
                 );
             }
 
-            List<Side> path = new DijkstrasPather(grid, start, getNewCostFunction(), true).getPath(end);
+            List<Side> path = route(start, end, true);
             PlanarUtils.putInputPath(grid, path);
-            expander.expand(grid);
+            if (!options.isBatchedExpansion()) {
+                expand();
+            }
+        }
+
+        if (options.isBatchedExpansion()) {
+            expand();
         }
     }
 
     private void connectOutputs(AtomicNode node) {
         for (int i = 0; i < node.outputSize(); i++) {
             AtomicPort port = node.getOutputPort(i);
+            if (!config.isLabelled(config.getConnectingPort(port))) {
+                continue;
+            }
+
             Side start = PlanarUtils.findPort(grid, port);
             Side end = PlanarUtils.findPort(grid, config.getConnectingPort(port));
 
@@ -144,17 +652,153 @@ class GadgetPlanarizerInstance {
                 );
             }
 
-            List<Side> path = new DijkstrasPather(grid, start, getNewCostFunction(), false).getPath(end);
+            List<Side> path = route(start, end, false);
             PlanarUtils.putOutputPath(grid, path);
-            expander.expand(grid);
+            if (!options.isBatchedExpansion()) {
+                expand();
+            }
+        }
+
+        if (options.isBatchedExpansion()) {
+            expand();
+        }
+    }
+
+    /**
+     * Routes a wire from start to end, first within the bounding box of the two, and then over the whole grid.
+     */
+    private List<Side> route(Side start, Side end, boolean isInput) {
+        long time = System.nanoTime();
+        try {
+            return findPath(start, end, isInput);
+        } finally {
+            metrics.increment(PlanarizerMetrics.Counter.WIRES_ROUTED);
+            metrics.addTime(PlanarizerMetrics.Phase.ROUTING, System.nanoTime() - time);
+        }
+    }
+
+    private List<Side> findPath(Side start, Side end, boolean isInput) {
+        CostFunction cost = getCostFunction();
+        int slack = options.getRoutingSlack();
+        if (slack >= 0) {
+            AStarPather pather = new AStarPather(grid, start, cost, isInput, end, slack);
+            metrics.add(PlanarizerMetrics.Counter.SIDES_SETTLED, pather.getSettledCount());
+            if (pather.isPathable(end.opposite())) {
+                return pather.getPath(end);
+            }
+        }
+
+        AStarPather pather = new AStarPather(grid, start, cost, isInput, end);
+        metrics.add(PlanarizerMetrics.Counter.SIDES_SETTLED, pather.getSettledCount());
+        return pather.getPath(end);
+    }
+
+    private void expand() {
+        long start = System.nanoTime();
+        expander.expand(grid, conflicts);
+        metrics.increment(PlanarizerMetrics.Counter.EXPANSIONS);
+        metrics.addTime(PlanarizerMetrics.Phase.EXPANSION, System.nanoTime() - start);
+    }
+
+    private void setIncrementalCost(boolean incremental) {
+        if (incremental == (incrementalCost != null)) {
+            return;
+        }
+
+        if (incremental) {
+            grid.removeListener(baseCost);
+            incrementalCost = new IncrementalCost(grid, gadgets);
+            grid.addListener(incrementalCost);
+        } else {
+            grid.removeListener(incrementalCost);
+            incrementalCost = null;
+            baseCost = new BaseCost(grid, gadgets);
+            grid.addListener(baseCost);
         }
     }
 
-    private CostFunction getNewCostFunction() {
-        if (incrCost) {
-            return new IncrementalCost(grid, gadgets);
+    private CostFunction getCostFunction() {
+        if (incrementalCost != null) {
+            return incrementalCost;
+        }
+
+        return baseCost;
+    }
+
+    /**
+     * Searches for a new place for a node in a pool, without changing the grid
+     */
+    private class ReplacementSearch extends RecursiveTask<Location> {
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicNode node;
+        private final CellConfiguration nodeGrid;
+        private final double probIgnore;
+        private final Random random;
+        private final DistanceFields fields;
+
+        private ReplacementSearch(
+            AtomicNode node,
+            CellConfiguration nodeGrid,
+            double probIgnore,
+            Random random,
+            DistanceFields fields
+        ) {
+            this.node = node;
+            this.nodeGrid = nodeGrid;
+            this.probIgnore = probIgnore;
+            this.random = random;
+            this.fields = fields;
         }
 
-        return new BaseCost(grid, gadgets);
+        @Override
+        protected Location compute() {
+            return PlanarUtils.findReplacement(
+                grid,
+                config,
+                node,
+                nodeGrid,
+                getCostFunction(),
+                probIgnore,
+                random,
+                fields,
+                placements,
+                options.getReplacementWindow(),
+                null,
+                false
+            );
+        }
+    }
+
+    /**
+     * An inclusive rectangle of cells
+     */
+    static class Region {
+        private final int minX;
+        private final int minY;
+        private final int maxX;
+        private final int maxY;
+
+        private Region(int minX, int minY, int maxX, int maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        private Region add(int x, int y) {
+            return new Region(Math.min(minX, x), Math.min(minY, y), Math.max(maxX, x), Math.max(maxY, y));
+        }
+
+        private Region add(Region that) {
+            return add(that.minX, that.minY).add(that.maxX, that.maxY);
+        }
+
+        /**
+         * Whether the regions overlap or touch, since wires leaving them could then cross
+         */
+        boolean overlaps(Region that) {
+            return minX <= that.maxX + 1 && that.minX <= maxX + 1 && minY <= that.maxY + 1 && that.minY <= maxY + 1;
+        }
     }
 }
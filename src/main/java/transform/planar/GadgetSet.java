@@ -1,6 +1,9 @@
 package transform.planar;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import transform.GadgetUtils;
 import transform.wiring.FrobeniusWirer;
@@ -25,6 +28,16 @@ public class GadgetSet {
     public final Wirer wirer;
     public final Shifter shifter;
 
+    // sizes of the gadgets looked up while costing cells, indexed by the ordinals of their directions, and then by
+    // whether the size is along x. Missing gadgets have size -1.
+    private final int[][][] turnSizes;
+    private final int[][][] crossoverSizes;
+    private final int[] wireThicknesses;
+
+    // the gadgets numbered by name, and their sizes
+    private final Map<String, Integer> gadgetIds;
+    private final int[][] gadgetSizes;
+
     public GadgetSet(
         Iterable<Gadget> wires,
         Iterable<Gadget> turns,
@@ -43,5 +56,82 @@ public class GadgetSet {
         this.crossovers = GadgetUtils.getCrossoverMap(crossovers);
         this.wirer = new FrobeniusWirer(wires);
         this.shifter = new TurnShifter(turns, wires, wirer);
+
+        Direction[] dirs = Direction.values();
+        this.turnSizes = new int[dirs.length][dirs.length][];
+        this.crossoverSizes = new int[dirs.length][dirs.length][];
+        this.wireThicknesses = new int[dirs.length];
+        for (Direction d1 : dirs) {
+            for (Direction d2 : dirs) {
+                turnSizes[d1.ordinal()][d2.ordinal()] = getSizes(this.turns.get(ImmutableList.of(d1, d2)));
+                crossoverSizes[d1.ordinal()][d2.ordinal()] = getSizes(this.crossovers.get(ImmutableSet.of(d1, d2)));
+            }
+            wireThicknesses[d1.ordinal()] = this.wires.containsKey(d1) ? wirer.minThickness(d1) : -1;
+        }
+
+        ImmutableMap.Builder<String, Integer> ids = ImmutableMap.builder();
+        List<String> names = ImmutableList.copyOf(this.gadgets.keySet());
+        this.gadgetSizes = new int[names.size()][];
+        for (int i = 0; i < names.size(); i++) {
+            ids.put(names.get(i), i);
+            gadgetSizes[i] = getSizes(this.gadgets.get(names.get(i)));
+        }
+        this.gadgetIds = ids.build();
+    }
+
+    private static int[] getSizes(Gadget g) {
+        return g == null ? new int[] {-1, -1} : new int[] {g.getSizeX(), g.getSizeY()};
+    }
+
+    private static int getSize(int[] sizes, boolean isX) {
+        return isX ? sizes[0] : sizes[1];
+    }
+
+    /**
+     * The size along x or along y of the turn gadget with the given input and output directions
+     */
+    public int getTurnSize(Direction in, Direction out, boolean isX) {
+        int size = getSize(turnSizes[in.ordinal()][out.ordinal()], isX);
+        if (size < 0) {
+            throw new IllegalArgumentException(String.format("No turn gadget from %s to %s", in, out));
+        }
+        return size;
+    }
+
+    /**
+     * The size along x or along y of the crossover gadget with the given input directions, in any order
+     */
+    public int getCrossoverSize(Direction in1, Direction in2, boolean isX) {
+        int size = getSize(crossoverSizes[in1.ordinal()][in2.ordinal()], isX);
+        if (size < 0) {
+            throw new IllegalArgumentException(String.format("No crossover gadget with inputs %s and %s", in1, in2));
+        }
+        return size;
+    }
+
+    /**
+     * The least thickness of a wire going in the given direction
+     */
+    public int getWireThickness(Direction d) {
+        int thickness = wireThicknesses[d.ordinal()];
+        if (thickness < 0) {
+            throw new IllegalArgumentException(String.format("No wire gadget going %s", d));
+        }
+        return thickness;
+    }
+
+    /**
+     * The number of the gadget with the given name, or -1 if there isn't one
+     */
+    public int getGadgetId(String name) {
+        Integer id = gadgetIds.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * The size along x or along y of the gadget with the given number
+     */
+    public int getGadgetSize(int id, boolean isX) {
+        return getSize(gadgetSizes[id], isX);
     }
 }
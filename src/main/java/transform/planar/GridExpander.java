@@ -8,6 +8,9 @@ import types.Direction;
 import types.configuration.CellConfiguration;
 import types.configuration.cells.Cell;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class GridExpander {
     private final AreaCellExpander area;
     private final WireCellExpander wire;
@@ -23,26 +26,42 @@ public class GridExpander {
      * Last step of expansion, only call after everything else is done.
      */
     public void expandLast(CellConfiguration grid) {
-        expandX(wire, grid, true);
-        expandX(wire, grid, false);
+        expandX(wire, grid, true, null);
+        expandX(wire, grid, false, null);
     }
 
     public void expand(CellConfiguration grid) {
-        expandX(area, grid, true);
-        expandX(area, grid, false);
+        expand(grid, null);
+    }
+
+    /**
+     * Same as expand, but finds the slices to expand from an index of the conflicts made by getConflictIndex, which
+     * has to be listening to the grid
+     */
+    public void expand(CellConfiguration grid, ConflictIndex conflicts) {
+        expandX(area, grid, true, conflicts);
+        expandX(area, grid, false, conflicts);
+    }
+
+    /**
+     * Makes an index of the conflicts that expand fixes
+     */
+    public ConflictIndex getConflictIndex(CellConfiguration grid) {
+        return new ConflictIndex(grid, area);
     }
 
     public void expandDouble(CellConfiguration grid) {
-        expandX(all, grid, true);
-        expandX(all, grid, false);
+        expandX(all, grid, true, null);
+        expandX(all, grid, false, null);
     }
 
     /**
      * Expands one direction of the grid
      * @param grid the grid
      * @param isX is expanding the x direction
+     * @param index the conflicts of the expander, or null to look for them
      */
-    private void expandX(CellExpander ex, CellConfiguration grid, boolean isX) {
+    private void expandX(CellExpander ex, CellConfiguration grid, boolean isX, ConflictIndex index) {
         // flip meaning of x and y if not isX
         int sizeX = isX ? grid.getSizeX() : grid.getSizeY();
         int sizeY = isX ? grid.getSizeY() : grid.getSizeX();
@@ -52,6 +71,14 @@ public class GridExpander {
 
         // determine which x-rows need to be expanded
         for (int i = 0; i < sizeX - 1; i++) {
+            if (index != null) {
+                if (index.hasConflict(isX, i)) {
+                    conflicts[i] = true;
+                    count++;
+                }
+                continue;
+            }
+
             for (int j = 0; j < sizeY; j++) {
                 int x = isX ? i : j;
                 int y = isX ? j : i;
@@ -65,32 +92,31 @@ public class GridExpander {
             }
         }
 
-        // new grid of cells
-        Cell[][] cells = isX ? new Cell[sizeX + count][sizeY] : new Cell[sizeY][sizeX + count];
-        int x = 0;
-        for (int i = 0; i < sizeX; i++) {
+        if (count == 0) {
+            return;
+        }
+
+        // new slices, each going after a conflicting slice
+        int[] after = new int[count];
+        List<List<Cell>> slices = new ArrayList<>();
+        for (int i = 0; i < conflicts.length; i++) {
+            if (!conflicts[i]) {
+                continue;
+            }
+
+            List<Cell> slice = new ArrayList<>();
             for (int j = 0; j < sizeY; j++) {
                 if (isX) {
-                    cells[x][j] = grid.getCell(i, j);
+                    slice.add(ex.expand(dir, grid.getCell(i, j), grid.getCell(i + dir.getX(), j + dir.getY())));
                 } else {
-                    cells[j][x] = grid.getCell(j, i);
-                }
-            }
-            x++;
-
-            if (i < conflicts.length && conflicts[i]) {
-                for (int j = 0; j < sizeY; j++) {
-                    if (isX) {
-                        cells[x][j] = ex.expand(dir, grid.getCell(i, j), grid.getCell(i + dir.getX(), j + dir.getY()));
-                    } else {
-                        //noinspection SuspiciousNameCombination
-                        cells[j][x] = ex.expand(dir, grid.getCell(j, i), grid.getCell(j + dir.getX(), i + dir.getY()));
-                    }
+                    //noinspection SuspiciousNameCombination
+                    slice.add(ex.expand(dir, grid.getCell(j, i), grid.getCell(j + dir.getX(), i + dir.getY())));
                 }
-                x++;
             }
+            after[slices.size()] = i;
+            slices.add(slice);
         }
-        grid.set(cells, isX ? sizeX + count : sizeY, isX ? sizeY : sizeX + count);
+        grid.insertSlices(isX, after, slices);
     }
 
 }
@@ -11,6 +11,11 @@ public class IncrementalCost extends AbstractCostFunction implements CostFunctio
 
     @Override
     public int getCost(Cell c, Location loc) {
-        return getCost(c, loc, 10000);
+        return getCost(c, loc.getX(), loc.getY(), 10000);
+    }
+
+    @Override
+    public int getCost(Cell c, int x, int y) {
+        return getCost(c, x, y, 10000);
     }
 }
@@ -0,0 +1,101 @@
+package transform.planar;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int values keyed by int priorities. Backed by two parallel arrays, so pushing and popping
+ * does not allocate once the heap has grown to its working size.
+ */
+public class IntHeap {
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public IntHeap() {
+        this(16);
+    }
+
+    public IntHeap(int initialCapacity) {
+        keys = new int[Math.max(initialCapacity, 1)];
+        values = new int[Math.max(initialCapacity, 1)];
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void push(int value, int key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        // sift up
+        int i = size;
+        size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /**
+     * The key of the minimum element
+     */
+    public int peekKey() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty");
+        }
+        return keys[0];
+    }
+
+    /**
+     * Removes the minimum element and returns its value
+     */
+    public int pop() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty");
+        }
+
+        int result = values[0];
+        size--;
+        int key = keys[size];
+        int value = values[size];
+
+        // sift down
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && keys[right] < keys[child]) {
+                child = right;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            keys[i] = keys[child];
+            values[i] = values[child];
+            i = child;
+        }
+        keys[i] = key;
+        values[i] = value;
+        return result;
+    }
+}
@@ -0,0 +1,189 @@
+package transform.planar;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import types.Direction;
+import types.Location;
+import types.Side;
+import types.configuration.AtomicConfiguration;
+import types.configuration.CellConfiguration;
+import types.configuration.NodeId;
+import types.configuration.NodeIds;
+import types.configuration.cells.Cell;
+import types.configuration.cells.NodeCell;
+import types.configuration.cells.PortCell;
+import types.configuration.nodes.AtomicNode;
+import types.configuration.nodes.AtomicPort;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The layout of a substitution, planarized once and reused for every node it substitutes. While the top level is
+ * planarized, each of those nodes is a block the size of the layout, with each port on the side of the block nearest
+ * to the cell it connects to inside the layout.
+ */
+class MacroBlock {
+    // a block needs cells that aren't ports, so that it is costed as a large node
+    private static final int MIN_SIZE = 3;
+
+    private final String name;
+    private final CellConfiguration layout;
+    private final int sizeX;
+    private final int sizeY;
+    private final List<Side> inputs;
+    private final List<Side> outputs;
+
+    /**
+     * @param sub the substitution as a configuration of its own
+     * @param layout the substitution planarized, without wires to its input or output
+     */
+    MacroBlock(AtomicConfiguration sub, CellConfiguration layout) {
+        this.name = sub.getName();
+        this.layout = layout;
+        this.sizeX = Math.max(layout.getSizeX(), MIN_SIZE);
+        this.sizeY = Math.max(layout.getSizeY(), MIN_SIZE);
+
+        Set<Side> used = new HashSet<>();
+        AtomicNode input = sub.getInput();
+        ImmutableList.Builder<Side> inputs = ImmutableList.builder();
+        for (int i = 0; i < input.outputSize(); i++) {
+            inputs.add(getBlockSide(sub, input.getOutputPort(i), used));
+        }
+
+        AtomicNode output = sub.getOutput();
+        ImmutableList.Builder<Side> outputs = ImmutableList.builder();
+        for (int i = 0; i < output.inputSize(); i++) {
+            outputs.add(getBlockSide(sub, output.getInputPort(i), used));
+        }
+
+        this.inputs = inputs.build();
+        this.outputs = outputs.build();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * The free side of the block nearest to the cell the given port of the substitution's input or output connects to
+     */
+    private Side getBlockSide(AtomicConfiguration sub, AtomicPort port, Set<Side> used) {
+        AtomicPort conn = sub.getConnectingPort(port);
+        Location target = new Location(sizeX / 2, sizeY / 2);
+        if (sub.isLabelled(conn)) {
+            target = PlanarUtils.findPort(layout, conn).getLocation();
+        }
+
+        Side best = null;
+        int min = Integer.MAX_VALUE;
+        for (Side side : getBorder()) {
+            int dist = Math.abs(side.getX() - target.getX()) + Math.abs(side.getY() - target.getY());
+            if (dist < min && !used.contains(side)) {
+                best = side;
+                min = dist;
+            }
+        }
+
+        if (best == null) {
+            throw new IllegalStateException(String.format("No room for the ports of substitution %s", name));
+        }
+
+        used.add(best);
+        return best;
+    }
+
+    /**
+     * The outward facing sides of the cells on the border of the block
+     */
+    private List<Side> getBorder() {
+        List<Side> border = new ArrayList<>();
+        for (int i = 0; i < sizeX; i++) {
+            border.add(new Side(i, 0, Direction.getDirection(0, -1)));
+            border.add(new Side(i, sizeY - 1, Direction.getDirection(0, 1)));
+        }
+
+        for (int j = 0; j < sizeY; j++) {
+            border.add(new Side(0, j, Direction.getDirection(-1, 0)));
+            border.add(new Side(sizeX - 1, j, Direction.getDirection(1, 0)));
+        }
+
+        return border;
+    }
+
+    /**
+     * Gets the block that stands in for the substitution at the node with the given id
+     */
+    CellConfiguration getBlock(NodeId id) {
+        CellConfiguration block = new CellConfiguration(new NodeCell(name, id), sizeX, sizeY);
+        for (int i = 0; i < inputs.size(); i++) {
+            block.putPort(inputs.get(i), true, i);
+        }
+
+        for (int i = 0; i < outputs.size(); i++) {
+            block.putPort(outputs.get(i), false, i);
+        }
+
+        return block;
+    }
+
+    /**
+     * Puts the layout in the grid at the given location, as the nodes inside of the node with the given id, whose
+     * ids are interned in the given table
+     */
+    void putLayout(CellConfiguration grid, Location loc, NodeId id, NodeIds nodeIds) {
+        Map<Integer, NodeId> ids = new HashMap<>();
+        for (int i = 0; i < layout.getSizeX(); i++) {
+            for (int j = 0; j < layout.getSizeY(); j++) {
+                Cell c = layout.getCell(i, j);
+                switch (c.getCellType()) {
+                    case EMPTY:
+                        continue;
+                    case NODE:
+                        c = new NodeCell(c.getName(), getInnerId(nodeIds, ids, id, c.getNodeId()));
+                        break;
+                    case PORT:
+                        ImmutableMap.Builder<Direction, Integer> ports = ImmutableMap.builder();
+                        for (Direction d : c.getInputDirections()) {
+                            ports.put(d, c.getPortNumber(d));
+                        }
+
+                        for (Direction d : c.getOutputDirections()) {
+                            ports.put(d, c.getPortNumber(d));
+                        }
+
+                        c = new PortCell(
+                            c.getName(),
+                            getInnerId(nodeIds, ids, id, c.getNodeId()),
+                            c.getInputDirections(),
+                            c.getOutputDirections(),
+                            ports.build()
+                        );
+                        break;
+                    default:
+                        break;
+                }
+
+                grid.put(c, loc.add(i, j));
+            }
+        }
+    }
+
+    private static NodeId getInnerId(NodeIds nodeIds, Map<Integer, NodeId> ids, NodeId id, NodeId layoutId) {
+        NodeId inner = ids.get(layoutId.getIndex());
+        if (inner == null) {
+            List<Integer> path = ImmutableList.<Integer>builder()
+                .addAll(id.getPath())
+                .addAll(layoutId.getPath())
+                .build();
+            inner = nodeIds.intern(path);
+            ids.put(layoutId.getIndex(), inner);
+        }
+
+        return inner;
+    }
+}
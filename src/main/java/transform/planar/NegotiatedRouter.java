@@ -0,0 +1,323 @@
+package transform.planar;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import types.Direction;
+import types.Side;
+import types.configuration.CellConfiguration;
+import types.configuration.cells.Cell;
+import types.configuration.cells.CellType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Routes many wires together by negotiated congestion, like PathFinder. At first every wire is routed as if it were
+ * alone on the grid. Then, each round, the wires going through a cell that is shared illegally are ripped up and
+ * routed again, with such cells costing more the more wires want them now, and the more they were fought over in
+ * past rounds. The only legal way to share a cell is for two straight wires to cross it in perpendicular directions,
+ * which becomes a crossover.
+ *
+ * Nothing is put in the grid. The grid and cost function must not change while routing.
+ */
+class NegotiatedRouter {
+    private static final int STRAIGHT_X = 0;
+    private static final int STRAIGHT_Y = 1;
+    private static final int TURN = 2;
+
+    // the present cost stops doubling here, and path costs stop growing at the max, so that neither overflows
+    private static final int MAX_PRESENT = 1 << 20;
+    private static final int MAX_COST = Integer.MAX_VALUE / 2;
+
+    private final SideGraph graph;
+    private final int maxRounds;
+    private final int sizeY;
+
+    // how many wires go straight across each cell along x or along y, or turn in it, including the wires in the grid
+    private final int[] usesX;
+    private final int[] usesY;
+    private final int[] turns;
+    private final int[] history;
+    private int present;
+
+    // search state, only valid where the stamp is the current search
+    private final int[] dist;
+    private final int[] prev;
+    private final int[] reached;
+    private final int[] settled;
+    private final IntHeap queue = new IntHeap();
+    private int search;
+    private long settledCount;
+
+    NegotiatedRouter(CellConfiguration grid, CostFunction cost, int maxRounds) {
+        Preconditions.checkArgument(maxRounds > 0, "Rounds must be positive");
+        this.graph = new SideGraph(grid, cost, false);
+        this.maxRounds = maxRounds;
+        this.sizeY = graph.getSizeY();
+
+        int cells = graph.getSizeX() * sizeY;
+        this.usesX = new int[cells];
+        this.usesY = new int[cells];
+        this.turns = new int[cells];
+        this.history = new int[cells];
+        for (int x = 0; x < graph.getSizeX(); x++) {
+            for (int y = 0; y < sizeY; y++) {
+                Cell c = grid.getCell(x, y);
+                if (c.getCellType() == CellType.WIRE) {
+                    if (c.getOutputDirection(0).getX() != 0) {
+                        usesX[x * sizeY + y]++;
+                    } else {
+                        usesY[x * sizeY + y]++;
+                    }
+                }
+            }
+        }
+
+        int size = graph.size();
+        this.dist = new int[size];
+        this.prev = new int[size];
+        this.reached = new int[size];
+        this.settled = new int[size];
+    }
+
+    /**
+     * Routes a wire from each output side to the input side at the same index, and returns the paths in the same
+     * form as AStarPather. The path of a wire that couldn't be routed without sharing cells illegally is null.
+     */
+    List<List<Side>> route(List<Side> starts, List<Side> ends) {
+        Preconditions.checkArgument(starts.size() == ends.size());
+        int n = starts.size();
+        int[][] paths = new int[n][];
+        boolean[] unroutable = new boolean[n];
+
+        present = 1;
+        for (int round = 0; round < maxRounds; round++) {
+            boolean rerouted = false;
+            for (int k = 0; k < n; k++) {
+                if (unroutable[k] || (paths[k] != null && !isCongested(paths[k]))) {
+                    continue;
+                }
+
+                if (paths[k] != null) {
+                    addUses(paths[k], -1);
+                }
+                paths[k] = search(starts.get(k), ends.get(k));
+                if (paths[k] == null) {
+                    unroutable[k] = true;
+                } else {
+                    addUses(paths[k], 1);
+                }
+                rerouted = true;
+            }
+
+            if (!rerouted || !updateHistory()) {
+                break;
+            }
+            present = Math.min(present * 2, MAX_PRESENT);
+        }
+
+        List<List<Side>> result = new ArrayList<>();
+        for (int k = 0; k < n; k++) {
+            if (paths[k] == null || isCongested(paths[k])) {
+                result.add(null);
+            } else {
+                result.add(toSides(paths[k], starts.get(k), ends.get(k)));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * How many sides every search has settled, in total
+     */
+    long getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * The cost of each wire over what a cell can legally share, as of the last round
+     */
+    int getPresentCost() {
+        return present;
+    }
+
+    /**
+     * How many more wires use a cell than can legally share it
+     */
+    private int getOveruse(int cell) {
+        return getOveruse(usesX[cell], usesY[cell], turns[cell]);
+    }
+
+    private static int getOveruse(int x, int y, int t) {
+        if (t == 0) {
+            return Math.max(0, x - 1) + Math.max(0, y - 1);
+        }
+        return t + x + y - 1;
+    }
+
+    /**
+     * How much more a cell would be overused if another wire used it in the given way
+     */
+    private int getAddedOveruse(int cell, int use) {
+        int x = usesX[cell];
+        int y = usesY[cell];
+        int t = turns[cell];
+        return getOveruse(x + (use == STRAIGHT_X ? 1 : 0), y + (use == STRAIGHT_Y ? 1 : 0), t + (use == TURN ? 1 : 0))
+            - getOveruse(x, y, t);
+    }
+
+    /**
+     * Adds to the history of every overused cell, and returns whether there were any
+     */
+    private boolean updateHistory() {
+        boolean overused = false;
+        for (int cell = 0; cell < history.length; cell++) {
+            int overuse = getOveruse(cell);
+            if (overuse > 0) {
+                history[cell] = (int) Math.min((long) history[cell] + overuse, MAX_COST);
+                overused = true;
+            }
+        }
+
+        return overused;
+    }
+
+    private boolean isCongested(int[] path) {
+        for (int i = 1; i < path.length; i++) {
+            if (getOveruse(path[i] >> 2) > 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void addUses(int[] path, int delta) {
+        for (int i = 1; i < path.length; i++) {
+            int cell = path[i] >> 2;
+            switch (getUse(path[i - 1], path[i])) {
+                case STRAIGHT_X:
+                    usesX[cell] += delta;
+                    break;
+                case STRAIGHT_Y:
+                    usesY[cell] += delta;
+                    break;
+                default:
+                    turns[cell] += delta;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * How a wire uses the cell it enters when going from side u to side w of the next cell
+     */
+    private static int getUse(int u, int w) {
+        Direction d = SideGraph.DIRECTIONS[u & 3];
+        if (d != SideGraph.DIRECTIONS[w & 3]) {
+            return TURN;
+        }
+        return d.getX() != 0 ? STRAIGHT_X : STRAIGHT_Y;
+    }
+
+    /**
+     * Searches for the cheapest path given the present congestion, and returns its vertices from start to the side
+     * facing end, or null if there isn't one
+     */
+    private int[] search(Side start, Side end) {
+        Side opp = end.opposite();
+        if (!graph.contains(start) || !graph.contains(opp)) {
+            return null;
+        }
+
+        search++;
+        int s = graph.encode(start);
+        int target = graph.encode(opp);
+        int targetX = opp.getX();
+        int targetY = opp.getY();
+
+        int[] to = new int[3];
+        int[] weights = new int[3];
+        queue.clear();
+        dist[s] = 0;
+        reached[s] = search;
+        queue.push(s, 0);
+        while (!queue.isEmpty()) {
+            int u = queue.pop();
+            if (settled[u] == search) {
+                continue;
+            }
+
+            settled[u] = search;
+            settledCount++;
+            if (u == target) {
+                return getVertices(s, target);
+            }
+
+            Direction d = SideGraph.DIRECTIONS[u & 3];
+            int x = graph.getX(u) + d.getX();
+            int y = graph.getY(u) + d.getY();
+            int cell = x * sizeY + y;
+            int count = graph.getEdges(u, to, weights);
+            for (int i = 0; i < count; i++) {
+                int w = to[i];
+                if (settled[w] == search) {
+                    continue;
+                }
+
+                long added = (long) present * getAddedOveruse(cell, getUse(u, w));
+                int alt = (int) Math.min((long) dist[u] + weights[i] + history[cell] + added, MAX_COST);
+                if (reached[w] != search || alt < dist[w]) {
+                    dist[w] = alt;
+                    prev[w] = u;
+                    reached[w] = search;
+                    queue.push(w, alt + Math.abs(x - targetX) + Math.abs(y - targetY));
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private int[] getVertices(int s, int target) {
+        int length = 1;
+        for (int cur = target; cur != s; cur = prev[cur]) {
+            length++;
+        }
+
+        int[] path = new int[length];
+        int cur = target;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = cur;
+            cur = prev[cur];
+        }
+
+        return path;
+    }
+
+    private List<Side> toSides(int[] path, Side start, Side end) {
+        ImmutableList.Builder<Side> builder = ImmutableList.builder();
+        builder.add(start);
+        for (int i = 0; i + 1 < path.length; i++) {
+            builder.add(graph.decode(path[i]).opposite());
+            builder.add(graph.decode(path[i + 1]));
+        }
+
+        builder.add(end);
+        return builder.build();
+    }
+
+    /**
+     * Sum of the overuse of every cell, for testing
+     */
+    int getTotalOveruse() {
+        int total = 0;
+        for (int cell = 0; cell < history.length; cell++) {
+            total += getOveruse(cell);
+        }
+
+        return total;
+    }
+}
@@ -0,0 +1,160 @@
+package transform.planar;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+import types.Location;
+import types.configuration.CellConfiguration;
+import types.configuration.CellConfigurationListener;
+import types.configuration.cells.Cell;
+import types.configuration.cells.CellType;
+
+import java.util.Iterator;
+
+/**
+ * The length of the run of empty cells along x that ends at each cell of a grid, from which the places a node fits
+ * are found one at a time, without building any tables. Once added as a listener to the grid, the runs are kept up to
+ * date in time proportional to the runs that a changed cell is in.
+ */
+public class PlacementIndex implements CellConfigurationListener {
+    private final CellConfiguration grid;
+
+    // runs[y][x] is how many empty cells there are along x up to and including (x, y)
+    private int[][] runs;
+
+    public PlacementIndex(CellConfiguration grid) {
+        this.grid = grid;
+        gridChanged();
+    }
+
+    /**
+     * Gets the places that fit the node with room for wires around it, lazily, in the same order as
+     * PlanarUtils.getPlacements. The grid must not change while iterating.
+     */
+    public Iterable<Location> getPlacements(final CellConfiguration node) {
+        return new Iterable<Location>() {
+            @Override
+            public Iterator<Location> iterator() {
+                return new PlacementIterator(node.getSizeX() + 2, node.getSizeY() + 2);
+            }
+        };
+    }
+
+    /**
+     * Gets the first place that fits the node, or null if there isn't one
+     */
+    public Location getFirstPlacement(CellConfiguration node) {
+        return Iterables.getFirst(getPlacements(node), null);
+    }
+
+    @Override
+    public void cellChanged(int x, int y, Cell oldCell, Cell newCell) {
+        int[] row = runs[y];
+        int run = newCell.getCellType() == CellType.EMPTY ? (x > 0 ? row[x - 1] : 0) + 1 : 0;
+        for (int i = x; i < row.length && row[i] != run; i++) {
+            row[i] = run;
+            if (i + 1 < row.length) {
+                run = row[i + 1] > 0 ? run + 1 : 0;
+            }
+        }
+    }
+
+    @Override
+    public void gridChanged() {
+        runs = new int[grid.getSizeY()][];
+        for (int j = 0; j < runs.length; j++) {
+            runs[j] = countRow(j, new int[grid.getSizeX()], 0);
+        }
+    }
+
+    @Override
+    public void gridExpanded(int x, int y) {
+        gridChanged();
+    }
+
+    /**
+     * Moves whole rows along with slices of constant y, and only counts the rest of each row again after the first
+     * slice of constant x that moved
+     */
+    @Override
+    public void slicesMoved(boolean isX, int[] map) {
+        if (isX) {
+            int from = 0;
+            while (from < map.length && map[from] == from) {
+                from++;
+            }
+
+            for (int j = 0; j < runs.length; j++) {
+                int[] row = new int[grid.getSizeX()];
+                System.arraycopy(runs[j], 0, row, 0, Math.min(from, row.length));
+                runs[j] = countRow(j, row, from);
+            }
+        } else {
+            int[][] moved = new int[grid.getSizeY()][];
+            for (int j = 0; j < map.length; j++) {
+                if (map[j] >= 0) {
+                    moved[map[j]] = runs[j];
+                }
+            }
+
+            for (int j = 0; j < moved.length; j++) {
+                if (moved[j] == null) {
+                    moved[j] = countRow(j, new int[grid.getSizeX()], 0);
+                }
+            }
+            runs = moved;
+        }
+    }
+
+    private int[] countRow(int y, int[] row, int from) {
+        for (int i = from; i < row.length; i++) {
+            if (grid.getCell(i, y).getCellType() == CellType.EMPTY) {
+                row[i] = (i > 0 ? row[i - 1] : 0) + 1;
+            } else {
+                row[i] = 0;
+            }
+        }
+
+        return row;
+    }
+
+    /**
+     * Goes down each column, counting how many cells in a row have a run at least as wide as the node's space
+     */
+    private class PlacementIterator extends AbstractIterator<Location> {
+        private final int x;
+        private final int y;
+        private int i;
+        private int j;
+        private int count;
+
+        private PlacementIterator(int x, int y) {
+            this.x = x;
+            this.y = y;
+            // a run can't be wider than the column it ends in
+            this.i = Math.max(x, 1);
+            this.j = 0;
+        }
+
+        @Override
+        protected Location computeNext() {
+            int sizeY = runs.length;
+            for (; i < (sizeY == 0 ? 0 : runs[0].length); i++, j = 0) {
+                for (; j < sizeY; j++) {
+                    // the first cell of each row and of each column is never counted, so places are never on the edge
+                    if (j > 0 && Math.min(runs[j][i], i) >= x) {
+                        count++;
+                    } else {
+                        count = 0;
+                    }
+
+                    if (count >= y) {
+                        j++;
+                        return new Location(i - (x - 1) + 1, j - 1 - (y - 1) + 1);
+                    }
+                }
+            }
+
+            return endOfData();
+        }
+    }
+}
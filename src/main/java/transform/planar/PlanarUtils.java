@@ -2,10 +2,8 @@ package transform.planar;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.*;
-import transform.GridUtils;
 import types.Direction;
 import types.Location;
-import types.MutableGrid;
 import types.Side;
 import types.configuration.AtomicConfiguration;
 import types.configuration.CellConfiguration;
@@ -15,71 +13,26 @@ import types.configuration.nodes.AtomicPort;
 import types.configuration.nodes.Port;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PlanarUtils {
     /**
      * Given a node, returns a list of places that will fit it
      */
     public static List<Location> getPlacements(CellConfiguration grid, CellConfiguration node) {
-        // leave space for wires
-        int x = node.getSizeX() + 2;
-        int y = node.getSizeY() + 2;
-
-        // how many of the previous cells along the x slice are open
-        int[][] sliceX = new int[grid.getSizeX()][grid.getSizeY()];
-
-        // how many of the previous cells along the y slice have sliceX >= x
-        int[][] sliceY = new int[grid.getSizeX()][grid.getSizeY()];
-
-        // use dp to calculate sliceX
-        for (int i = 1; i < grid.getSizeX(); i++) {
-            for (int j = 0; j < grid.getSizeY(); j++) {
-                if (grid.getCell(i, j).getCellType() == CellType.EMPTY) {
-                    sliceX[i][j] = sliceX[i - 1][j] + 1;
-                } else {
-                    sliceX[i][j] = 0;
-                }
-            }
-        }
-
-        // use dp to calculate sliceY
-        for (int i = 0; i < grid.getSizeX(); i++) {
-            for (int j = 1; j < grid.getSizeY(); j++) {
-                if (sliceX[i][j] >= x) {
-                    sliceY[i][j] = sliceY[i][j - 1] + 1;
-                } else {
-                    sliceY[i][j] = 0;
-                }
-            }
-        }
-
-        ImmutableList.Builder<Location> locs = ImmutableList.builder();
-        for (int i = 0; i < grid.getSizeX(); i++) {
-            for (int j = 0; j < grid.getSizeY(); j++) {
-                if (sliceY[i][j] >= y) {
-                    // offset because of boundary to leave space for wires
-                    locs.add(new Location(i - (x - 1) + 1, j - (y - 1) + 1));
-                }
-            }
-        }
-        return locs.build();
+        return ImmutableList.copyOf(new PlacementIndex(grid).getPlacements(node));
     }
 
     public static Side findPort(CellConfiguration grid, AtomicPort port) {
-        for (int i = 0; i < grid.getSizeX(); i++) {
-            for (int j = 0; j < grid.getSizeY(); j++) {
-                Cell c = grid.getCell(i, j);
-
-                if (c.getCellType() != CellType.PORT || !c.getId().equals(port.getId())) {
-                    continue;
-                }
-
-                for (Direction d : Direction.values()) {
-                    Port p = port.getPort();
-                    if (((p.isInput() && c.isInput(d)) || (!p.isInput() && c.isOutput(d)))
-                        && p.getPortNumber() == c.getPortNumber(d)) {
-                        return new Side(i, j, d);
-                    }
+        for (Location loc : grid.getPortCells(port.getIntId())) {
+            Cell c = grid.getCell(loc);
+            for (Direction d : Direction.values()) {
+                Port p = port.getPort();
+                if (((p.isInput() && c.isInput(d)) || (!p.isInput() && c.isOutput(d)))
+                    && p.getPortNumber() == c.getPortNumber(d)) {
+                    return new Side(loc, d);
                 }
             }
         }
@@ -88,22 +41,14 @@ public class PlanarUtils {
     }
 
     public static BiMap<AtomicPort, Side> findPorts(CellConfiguration grid, AtomicNode node) {
-        List<Integer> id = node.getId();
         ImmutableBiMap.Builder<AtomicPort, Side> builder = ImmutableBiMap.builder();
-        for (int i = 0; i < grid.getSizeX(); i++) {
-            for (int j = 0; j < grid.getSizeY(); j++) {
-                Cell c = grid.getCell(i, j);
-
-                if (c.getCellType() != CellType.PORT || !c.getId().equals(id)) {
-                    continue;
-                }
-
-                for (Direction d : Direction.values()) {
-                    if (c.isInput(d)) {
-                        builder.put(node.getInputPort(c.getPortNumber(d)), new Side(i, j, d));
-                    } else if (c.isOutput(d)){
-                        builder.put(node.getOutputPort(c.getPortNumber(d)), new Side(i, j, d));
-                    }
+        for (Location loc : grid.getPortCells(node.getIntId())) {
+            Cell c = grid.getCell(loc);
+            for (Direction d : Direction.values()) {
+                if (c.isInput(d)) {
+                    builder.put(node.getInputPort(c.getPortNumber(d)), new Side(loc, d));
+                } else if (c.isOutput(d)){
+                    builder.put(node.getOutputPort(c.getPortNumber(d)), new Side(loc, d));
                 }
             }
         }
@@ -117,7 +62,11 @@ public class PlanarUtils {
         ImmutableBiMap.Builder<AtomicPort, Side> builder = ImmutableBiMap.builder();
         for (AtomicPort port : ports) {
             AtomicPort conn = config.getConnectingPort(port);
-            // TODO do these all at once, because otherwise its n^2 * ports
+            if (!config.isLabelled(conn)) {
+                // the input or output of a substitution being planarized by itself isn't in the grid
+                continue;
+            }
+
             Side side = findPort(grid, conn);
             builder.put(port, side);
         }
@@ -131,29 +80,68 @@ public class PlanarUtils {
         AtomicNode node,
         CellConfiguration nodeGrid,
         CostFunction cost,
-        double probIgnore
+        double probIgnore,
+        Random random
+    ) {
+        DistanceFields fields = new DistanceFields(grid);
+        PlacementIndex placements = new PlacementIndex(grid);
+        try {
+            return findReplacement(
+                grid, config, node, nodeGrid, cost, probIgnore, random, fields, placements, -1, null, false
+            );
+        } finally {
+            fields.release();
+        }
+    }
+
+    /**
+     * Finds the best place to put the node, scoring the placements in the given pool. The result is the same as when
+     * scoring them one at a time: ties go to the lowest x, and then the lowest y.
+     *
+     * @param random decides which ports to ignore, so the same random gives the same place
+     * @param placements an index of the places nodes fit in the grid
+     * @param window how far from the centroid of the connecting ports to look for places, or -1 to look everywhere
+     * @param pool the pool to score placements in, or null to score them in this thread
+     * @param concurrentFields whether to also compute the distance fields of the ports in the pool
+     */
+    public static Location findReplacement(
+        CellConfiguration grid,
+        AtomicConfiguration config,
+        AtomicNode node,
+        CellConfiguration nodeGrid,
+        CostFunction cost,
+        double probIgnore,
+        Random random,
+        DistanceFields fields,
+        PlacementIndex placements,
+        int window,
+        ForkJoinPool pool,
+        boolean concurrentFields
     ) {
         BiMap<AtomicPort, Side> ports = findPorts(nodeGrid, node);
         BiMap<AtomicPort, Side> conns = findConnectingPorts(grid, config, ports.keySet());
-        HashMap<AtomicPort, DijkstrasPather> pathers = new HashMap<>();
-        for (Map.Entry<AtomicPort, Side> entry : conns.entrySet()) {
-            pathers.put(
-                entry.getKey(),
-                new DijkstrasPather(
-                    grid,
-                    entry.getValue(),
-                    cost, entry.getKey().getPort().isInput()
-                )
-            );
+        List<AtomicPort> connected = ImmutableList.copyOf(conns.keySet());
+        List<Side> starts = new ArrayList<>();
+        List<Boolean> isInput = new ArrayList<>();
+        for (AtomicPort port : connected) {
+            starts.add(conns.get(port));
+            isInput.add(port.getPort().isInput());
+        }
+
+        List<DistanceField> distances = fields.getAll(starts, isInput, cost, concurrentFields ? pool : null);
+        HashMap<AtomicPort, DistanceField> pathers = new HashMap<>();
+        for (int i = 0; i < connected.size(); i++) {
+            pathers.put(connected.get(i), distances.get(i));
+        }
+
+        List<Location> locs = ImmutableList.copyOf(placements.getPlacements(nodeGrid));
+        if (window >= 0) {
+            locs = getWindow(locs, starts, window);
         }
 
-        int max = -1;
-        Location best = null;
-        List<Location> placements = getPlacements(grid, nodeGrid);
-        MutableGrid<Integer> dists = new MutableGrid<>(0, grid.getSizeX(), grid.getSizeY());
         HashSet<AtomicPort> ignore = new HashSet<>();
         for (AtomicPort port : ports.keySet()) {
-            if (Math.random() < probIgnore) {
+            if (random.nextDouble() < probIgnore) {
                 ignore.add(port);
             }
         }
@@ -162,17 +150,203 @@ public class PlanarUtils {
             ignore = new HashSet<>(); // jailbreak :)
         }
 
-        for (Location loc : placements) {
+        List<DistanceField> used = new ArrayList<>();
+        List<Side> ends = new ArrayList<>();
+        for (Map.Entry<AtomicPort, Side> entry : ports.entrySet()) {
+            if (!ignore.contains(entry.getKey()) && pathers.containsKey(entry.getKey())) {
+                used.add(pathers.get(entry.getKey()));
+                ends.add(entry.getValue());
+            }
+        }
+
+        ScorePlacements task = new ScorePlacements(locs, nodeGrid, cost, used, ends, 0, locs.size());
+        if (pool == null) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+
+        int min = -1;
+        Location best = null;
+        for (int i = 0; i < locs.size(); i++) {
+            int sum = task.scores[i];
+            Location loc = locs.get(i);
+            if (sum == ScorePlacements.PRUNED) {
+                continue;
+            }
+
+            if (min == -1 || sum < min || (sum == min && isBefore(loc, best))) {
+                min = sum;
+                best = loc;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Gets the placements within the window of the centroid of the ports, or all of them if none are
+     */
+    private static List<Location> getWindow(List<Location> locs, List<Side> ports, int window) {
+        if (ports.isEmpty()) {
+            return locs;
+        }
+
+        long sumX = 0;
+        long sumY = 0;
+        for (Side side : ports) {
+            sumX += side.getLocation().getX();
+            sumY += side.getLocation().getY();
+        }
+
+        int x = (int) (sumX / ports.size());
+        int y = (int) (sumY / ports.size());
+        ImmutableList.Builder<Location> builder = ImmutableList.builder();
+        for (Location loc : locs) {
+            if (Math.abs(loc.getX() - x) <= window && Math.abs(loc.getY() - y) <= window) {
+                builder.add(loc);
+            }
+        }
+
+        List<Location> inside = builder.build();
+        return inside.isEmpty() ? locs : inside;
+    }
+
+    private static boolean isBefore(Location a, Location b) {
+        return a.getX() < b.getX() || (a.getX() == b.getX() && a.getY() < b.getY());
+    }
+
+    /**
+     * Scores a range of placements by the distance to each port plus the cost of the node's own cells, splitting the
+     * range in half until it is small enough. The node's cells cost at least their minimum cost anywhere, so a
+     * placement whose distances plus that minimum are already more than the best score so far is pruned without
+     * costing its cells. Pruned placements can't be the best, so the best placement is the same as without pruning.
+     * Each range scores its placement closest to the ports first, so that there is soon a good bound to prune with.
+     */
+    private static class ScorePlacements extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 16;
+        private static final int PRUNED = Integer.MAX_VALUE;
+
+        private final List<Location> placements;
+        private final CellConfiguration nodeGrid;
+        private final CostFunction cost;
+        private final List<DistanceField> fields;
+        private final List<Side> ends;
+        private final int[] scores;
+        private final int minNodeCost;
+        private final AtomicInteger bound;
+        private final int from;
+        private final int to;
+
+        private ScorePlacements(
+            List<Location> placements,
+            CellConfiguration nodeGrid,
+            CostFunction cost,
+            List<DistanceField> fields,
+            List<Side> ends,
+            int from,
+            int to
+        ) {
+            this(
+                placements,
+                nodeGrid,
+                cost,
+                fields,
+                ends,
+                new int[placements.size()],
+                getMinNodeCost(nodeGrid, cost),
+                new AtomicInteger(PRUNED),
+                from,
+                to
+            );
+        }
+
+        private ScorePlacements(
+            List<Location> placements,
+            CellConfiguration nodeGrid,
+            CostFunction cost,
+            List<DistanceField> fields,
+            List<Side> ends,
+            int[] scores,
+            int minNodeCost,
+            AtomicInteger bound,
+            int from,
+            int to
+        ) {
+            this.placements = placements;
+            this.nodeGrid = nodeGrid;
+            this.cost = cost;
+            this.fields = fields;
+            this.ends = ends;
+            this.scores = scores;
+            this.minNodeCost = minNodeCost;
+            this.bound = bound;
+            this.from = from;
+            this.to = to;
+        }
+
+        private static int getMinNodeCost(CellConfiguration nodeGrid, CostFunction cost) {
             int sum = 0;
-            for (Map.Entry<AtomicPort, Side> entry : ports.entrySet()) {
-                AtomicPort port = entry.getKey();
-                Side end = entry.getValue();
+            for (int i = 0; i < nodeGrid.getSizeX(); i++) {
+                for (int j = 0; j < nodeGrid.getSizeY(); j++) {
+                    sum += cost.getMinCost(nodeGrid.getCell(i, j));
+                }
+            }
 
-                if (ignore.contains(port)) {
-                    continue;
+            return sum;
+        }
+
+        private static int getDistance(Location loc, List<DistanceField> fields, List<Side> ends) {
+            int sum = 0;
+            for (int p = 0; p < fields.size(); p++) {
+                sum += fields.get(p).distanceTo(ends.get(p).add(loc));
+            }
+
+            return sum;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > THRESHOLD && getPool() != null) {
+                int mid = (from + to) >>> 1;
+                invokeAll(
+                    new ScorePlacements(
+                        placements, nodeGrid, cost, fields, ends, scores, minNodeCost, bound, from, mid
+                    ),
+                    new ScorePlacements(
+                        placements, nodeGrid, cost, fields, ends, scores, minNodeCost, bound, mid, to
+                    )
+                );
+                return;
+            }
+
+            if (from == to) {
+                return;
+            }
+
+            int[] distances = new int[to - from];
+            int closest = from;
+            for (int k = from; k < to; k++) {
+                distances[k - from] = getDistance(placements.get(k), fields, ends);
+                if (distances[k - from] < distances[closest - from]) {
+                    closest = k;
+                }
+            }
+
+            scores[closest] = score(placements.get(closest), distances[closest - from]);
+            for (int k = from; k < to; k++) {
+                if (k != closest) {
+                    scores[k] = score(placements.get(k), distances[k - from]);
                 }
+            }
+        }
 
-                sum += pathers.get(port).distanceTo(end.add(loc));
+        private int score(Location loc, int distance) {
+            int sum = distance;
+            // ties with the bound are kept, since they may still win by coming first
+            if (sum + minNodeCost > bound.get()) {
+                return PRUNED;
             }
 
             for (int i = 0; i < nodeGrid.getSizeX(); i++) {
@@ -181,14 +355,13 @@ public class PlanarUtils {
                 }
             }
 
-            dists.put(sum, loc);
-            if (max == -1 || sum < max) {
-                max = sum;
-                best = loc;
+            int current = bound.get();
+            while (sum < current && !bound.compareAndSet(current, sum)) {
+                current = bound.get();
             }
-        }
 
-        return best;
+            return sum;
+        }
     }
 
     public static void putOutputPath(CellConfiguration grid, List<Side> path) {
@@ -219,11 +392,12 @@ public class PlanarUtils {
                     if (input.getDirection() == output.getDirection().opposite()) {
                         grid.put(WireCell.getWire(output.getDirection()), input.getLocation());
                     } else {
-                        grid.put(new TurnCell(input.getDirection(), output.getDirection()), input.getLocation());
+                        grid.put(TurnCell.getTurn(input.getDirection(), output.getDirection()), input.getLocation());
                     }
                     break;
                 case WIRE:
-                    grid.put(new CrossoverCell(cell.getOutputDirection(0), output.getDirection()), input.getLocation());
+                    Cell crossover = CrossoverCell.getCrossover(cell.getOutputDirection(0), output.getDirection());
+                    grid.put(crossover, input.getLocation());
                     break;
                 default:
                     Preconditions.checkState(false);
@@ -238,33 +412,39 @@ public class PlanarUtils {
      */
     public static List<Side> deleteNode(CellConfiguration grid, AtomicNode node) {
         ImmutableList.Builder<Side> builder = ImmutableList.builder();
-        for (int i = 0; i < grid.getSizeX(); i++) {
-            for (int j = 0; j < grid.getSizeY(); j++) {
-                Cell c = grid.getCell(i, j);
-
-                if (c.getCellType() != CellType.NODE && c.getCellType() != CellType.PORT) {
-                    continue;
+        // copied, since deleting the cells changes the index
+        for (Location loc : ImmutableList.copyOf(grid.getNodeCells(node.getIntId()))) {
+            Cell c = grid.getCell(loc);
+            grid.put(EmptyCell.getInstance(), loc);
+
+            if (c.getCellType() == CellType.PORT) {
+                for (Direction dir : c.getInputDirections()) {
+                    builder.add(deleteWire(grid, new Side(loc, dir), true));
                 }
 
-                if (!c.getId().equals(node.getId())) {
-                    continue;
+                for (Direction dir : c.getOutputDirections()) {
+                    builder.add(deleteWire(grid, new Side(loc, dir), false));
                 }
+            }
+        }
 
-                grid.put(EmptyCell.getInstance(), i, j);
+        return builder.build();
+    }
 
-                if (c.getCellType() == CellType.PORT) {
-                    for (Direction dir : c.getInputDirections()) {
-                        builder.add(deleteWire(grid, new Side(i, j, dir), true));
-                    }
+    /**
+     * Deletes the wires of a node, leaving the node where it is
+     */
+    public static void deleteWires(CellConfiguration grid, AtomicNode node) {
+        for (Location loc : grid.getPortCells(node.getIntId())) {
+            Cell c = grid.getCell(loc);
+            for (Direction dir : c.getInputDirections()) {
+                deleteWire(grid, new Side(loc, dir), true);
+            }
 
-                    for (Direction dir : c.getOutputDirections()) {
-                        builder.add(deleteWire(grid, new Side(i, j, dir), false));
-                    }
-                }
+            for (Direction dir : c.getOutputDirections()) {
+                deleteWire(grid, new Side(loc, dir), false);
             }
         }
-
-        return builder.build();
     }
 
     private static Side deleteWire(CellConfiguration grid, Side start, boolean isInput) {
@@ -298,7 +478,7 @@ public class PlanarUtils {
     public static void deleteSlices(CellConfiguration grid) {
         Direction x = Direction.getDirection(1, 0);
         Direction y = Direction.getDirection(0, 1);
-        ArrayList<List<Cell>> cells = new ArrayList<>();
+        boolean[] deleteX = new boolean[grid.getSizeX()];
         for (int i = 0; i < grid.getSizeX(); i++) {
             boolean delete = true;
             for (int j = 0; j < grid.getSizeY(); j++) {
@@ -316,21 +496,12 @@ public class PlanarUtils {
                 break;
             }
 
-            if (!delete) {
-                cells.add(GridUtils.sliceX(grid, i));
-            }
-        }
-
-        Cell[][] xcell = new Cell[cells.size()][grid.getSizeY()];
-        for (int i = 0; i < cells.size(); i++) {
-            for (int j = 0; j < grid.getSizeY(); j++) {
-                xcell[i][j] = cells.get(i).get(j);
-            }
+            deleteX[i] = delete;
         }
 
-        grid.set(xcell, cells.size(), grid.getSizeY());
+        grid.deleteSlices(true, deleteX);
 
-        cells = new ArrayList<>();
+        boolean[] deleteY = new boolean[grid.getSizeY()];
         for (int j = 0; j < grid.getSizeY(); j++) {
             boolean delete = true;
             for (int i = 0; i < grid.getSizeX(); i++) {
@@ -347,18 +518,9 @@ public class PlanarUtils {
                 break;
             }
 
-            if (!delete) {
-                cells.add(GridUtils.sliceY(grid, j));
-            }
-        }
-
-        Cell[][] ycell = new Cell[grid.getSizeX()][cells.size()];
-        for (int j = 0; j < cells.size(); j++) {
-            for (int i = 0; i < grid.getSizeX(); i++) {
-                ycell[i][j] = cells.get(j).get(i);
-            }
+            deleteY[j] = delete;
         }
 
-        grid.set(ycell, grid.getSizeX(), cells.size());
+        grid.deleteSlices(false, deleteY);
     }
 }
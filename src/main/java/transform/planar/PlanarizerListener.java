@@ -0,0 +1,39 @@
+package transform.planar;
+
+import types.configuration.CellConfiguration;
+
+/**
+ * Hears about the progress of the planarizer. When several starts are planarized at once, each of them calls the
+ * listener from its own thread, with its own metrics, and its index among the starts. A run with one start, and the
+ * substitutions planarized on their own before the starts, are start 0.
+ */
+public interface PlanarizerListener {
+    /**
+     * Called once before anything is planarized
+     * @param seed the seed that every random choice of the run derives from
+     */
+    void started(long seed);
+
+    /**
+     * Called before a substitution is planarized on its own, so that it can be placed as one block
+     * @param name the name of the substitution
+     */
+    void substitutionStarted(String name);
+
+    /**
+     * Called before each round of re-placement
+     * @param cost the total cost of the grid before the round
+     */
+    void roundStarted(int start, int step, int cost, CellConfiguration grid, PlanarizerMetrics metrics);
+
+    /**
+     * Called after each round of re-placement, once the empty slices of the grid are deleted
+     * @param cost the total cost of the grid after the round
+     */
+    void roundFinished(int start, int step, int cost, CellConfiguration grid, PlanarizerMetrics metrics);
+
+    /**
+     * Called once the grid is planarized
+     */
+    void finished(int start, CellConfiguration grid, PlanarizerMetrics metrics);
+}
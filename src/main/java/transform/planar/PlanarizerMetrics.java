@@ -0,0 +1,69 @@
+package transform.planar;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts of the work done while planarizing, and the time spent in each phase of it
+ */
+public class PlanarizerMetrics {
+    public enum Counter {
+        NODES_PLACED,
+        WIRES_ROUTED,
+        // sides of cells settled by every search for paths and distances
+        SIDES_SETTLED,
+        EXPANSIONS,
+        // batches of nodes re-placed concurrently, the placements of a batch searched for again since an earlier node
+        // of the batch took them, and the rounds undone for costing too much
+        BATCHES,
+        RESEARCHES,
+        ROUNDS_UNDONE
+    }
+
+    public enum Phase {
+        // searching for places to put nodes
+        PLACEMENT,
+        // routing wires, not counting the distance fields computed while searching for places
+        ROUTING,
+        // expanding the grid to fix conflicting cells
+        EXPANSION
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(Counter.values().length);
+    private final AtomicLongArray times = new AtomicLongArray(Phase.values().length);
+
+    public void add(Counter counter, long n) {
+        counts.addAndGet(counter.ordinal(), n);
+    }
+
+    public void increment(Counter counter) {
+        add(counter, 1);
+    }
+
+    public long get(Counter counter) {
+        return counts.get(counter.ordinal());
+    }
+
+    public void addTime(Phase phase, long nanos) {
+        times.addAndGet(phase.ordinal(), nanos);
+    }
+
+    public long getTime(Phase phase, TimeUnit unit) {
+        return unit.convert(times.get(phase.ordinal()), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Counter counter : Counter.values()) {
+            builder.append(String.format("%s - %d, ", counter.name().toLowerCase(), get(counter)));
+        }
+
+        for (Phase phase : Phase.values()) {
+            long millis = getTime(phase, TimeUnit.MILLISECONDS);
+            builder.append(String.format("%s - %dms, ", phase.name().toLowerCase(), millis));
+        }
+
+        return builder.substring(0, builder.length() - 2);
+    }
+}
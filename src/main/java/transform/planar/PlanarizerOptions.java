@@ -0,0 +1,307 @@
+package transform.planar;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Tuning knobs for the planarizer. The defaults match the original behavior as closely as possible.
+ */
+public class PlanarizerOptions {
+    private int routingSlack = -1;
+    private int parallelism = 1;
+    private boolean concurrentFields = false;
+    private boolean parallelRounds = false;
+    private double parallelTolerance = 0.05;
+    private ReplacementSchedule schedule = new FixedSchedule();
+    private Long seed = null;
+    private int starts = 1;
+    private boolean tiledGrid = false;
+    private boolean batchedExpansion = false;
+    private boolean negotiatedRouting = false;
+    private boolean rerouteAll = false;
+    private int negotiationRounds = 16;
+    private boolean hierarchical = false;
+    private int replacementWindow = -1;
+    private boolean printProgress = true;
+    private boolean printGrid = false;
+
+    /**
+     * How far outside the bounding box of two ports a wire between them may first be routed.
+     * If no path is found within it, the whole grid is searched. A negative slack always searches the whole grid,
+     * as the original did, and is the default.
+     */
+    public int getRoutingSlack() {
+        return routingSlack;
+    }
+
+    public void setRoutingSlack(int routingSlack) {
+        this.routingSlack = routingSlack;
+    }
+
+    /**
+     * How many threads to score placements with while re-placing nodes. With 1, everything runs in the calling thread.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Whether the distance fields of a node's ports are also computed in parallel, when parallelism is more than 1
+     */
+    public boolean isConcurrentFields() {
+        return concurrentFields;
+    }
+
+    public void setConcurrentFields(boolean concurrentFields) {
+        this.concurrentFields = concurrentFields;
+    }
+
+    /**
+     * Whether to re-place nodes whose regions don't overlap concurrently, when parallelism is more than 1
+     */
+    public boolean isParallelRounds() {
+        return parallelRounds;
+    }
+
+    public void setParallelRounds(boolean parallelRounds) {
+        this.parallelRounds = parallelRounds;
+    }
+
+    /**
+     * How much more a round of concurrent re-placement may cost than the grid did before it, as a fraction of that
+     * cost. A round that costs more is undone, and then re-placed one node at a time.
+     */
+    public double getParallelTolerance() {
+        return parallelTolerance;
+    }
+
+    public void setParallelTolerance(double parallelTolerance) {
+        Preconditions.checkArgument(parallelTolerance >= 0, "Tolerance must not be negative");
+        this.parallelTolerance = parallelTolerance;
+    }
+
+    /**
+     * Decides the rounds of re-placement after every node has first been placed
+     */
+    public ReplacementSchedule getSchedule() {
+        return schedule;
+    }
+
+    public void setSchedule(ReplacementSchedule schedule) {
+        this.schedule = Preconditions.checkNotNull(schedule);
+    }
+
+    /**
+     * The seed for the random choices made while re-placing nodes, so that runs can be reproduced.
+     * If null, a new seed is picked for every run.
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * How many runs, each with its own seed derived from the seed, to planarize with concurrently.
+     * The result that costs the least is kept.
+     */
+    public int getStarts() {
+        return starts;
+    }
+
+    public void setStarts(int starts) {
+        Preconditions.checkArgument(starts > 0, "Starts must be positive");
+        this.starts = starts;
+    }
+
+    /**
+     * Whether the grid being planarized stores its cells in tiles, so that the empty parts of a large layout take
+     * no space, and expanding the grid doesn't copy every cell
+     */
+    public boolean isTiledGrid() {
+        return tiledGrid;
+    }
+
+    public void setTiledGrid(boolean tiledGrid) {
+        this.tiledGrid = tiledGrid;
+    }
+
+    /**
+     * Whether to expand the grid to fix conflicting cells once after all the wires of a node are routed, instead of
+     * after every wire
+     */
+    public boolean isBatchedExpansion() {
+        return batchedExpansion;
+    }
+
+    public void setBatchedExpansion(boolean batchedExpansion) {
+        this.batchedExpansion = batchedExpansion;
+    }
+
+    /**
+     * Whether to route all the wires of a re-placed node together, by negotiating over the cells they share, instead
+     * of one at a time
+     */
+    public boolean isNegotiatedRouting() {
+        return negotiatedRouting;
+    }
+
+    public void setNegotiatedRouting(boolean negotiatedRouting) {
+        this.negotiatedRouting = negotiatedRouting;
+    }
+
+    /**
+     * Whether to rip up every wire after each round of re-placement and route them all again together. The new
+     * wires are only kept if they cost less.
+     */
+    public boolean isRerouteAll() {
+        return rerouteAll;
+    }
+
+    public void setRerouteAll(boolean rerouteAll) {
+        this.rerouteAll = rerouteAll;
+    }
+
+    /**
+     * How many rounds of negotiation to route with, before wires that still share cells are routed one at a time
+     */
+    public int getNegotiationRounds() {
+        return negotiationRounds;
+    }
+
+    public void setNegotiationRounds(int negotiationRounds) {
+        Preconditions.checkArgument(negotiationRounds > 0, "Negotiation rounds must be positive");
+        this.negotiationRounds = negotiationRounds;
+    }
+
+    /**
+     * Whether to planarize each substitution used by the top level configuration once, and then planarize the top
+     * level with every node it substitutes as a block of that layout
+     */
+    public boolean isHierarchical() {
+        return hierarchical;
+    }
+
+    public void setHierarchical(boolean hierarchical) {
+        this.hierarchical = hierarchical;
+    }
+
+    /**
+     * How far, along x and along y, from the centroid of a node's connecting ports to look for places to re-place it.
+     * If there are no places that close, or the window is negative, the whole grid is searched.
+     */
+    public int getReplacementWindow() {
+        return replacementWindow;
+    }
+
+    public void setReplacementWindow(int replacementWindow) {
+        this.replacementWindow = replacementWindow;
+    }
+
+    /**
+     * Whether to print the cost and size of the grid before each round of re-placement, and what was done once done
+     */
+    public boolean isPrintProgress() {
+        return printProgress;
+    }
+
+    public void setPrintProgress(boolean printProgress) {
+        this.printProgress = printProgress;
+    }
+
+    /**
+     * Whether to also print the whole grid after each round, when printing progress
+     */
+    public boolean isPrintGrid() {
+        return printGrid;
+    }
+
+    public void setPrintGrid(boolean printGrid) {
+        this.printGrid = printGrid;
+    }
+
+    /**
+     * Sets an option by the name it is given in the reduction xml
+     */
+    public void set(String name, String value) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkNotNull(value);
+        value = value.trim();
+        try {
+            switch (name) {
+                case "routingSlack":
+                    setRoutingSlack(Integer.parseInt(value));
+                    break;
+                case "parallelism":
+                    setParallelism(Integer.parseInt(value));
+                    break;
+                case "concurrentFields":
+                    setConcurrentFields(Boolean.parseBoolean(value));
+                    break;
+                case "parallelRounds":
+                    setParallelRounds(Boolean.parseBoolean(value));
+                    break;
+                case "parallelTolerance":
+                    setParallelTolerance(Double.parseDouble(value));
+                    break;
+                case "schedule":
+                    setSchedule(parseSchedule(value));
+                    break;
+                case "seed":
+                    setSeed(Long.parseLong(value));
+                    break;
+                case "starts":
+                    setStarts(Integer.parseInt(value));
+                    break;
+                case "tiledGrid":
+                    setTiledGrid(Boolean.parseBoolean(value));
+                    break;
+                case "batchedExpansion":
+                    setBatchedExpansion(Boolean.parseBoolean(value));
+                    break;
+                case "negotiatedRouting":
+                    setNegotiatedRouting(Boolean.parseBoolean(value));
+                    break;
+                case "rerouteAll":
+                    setRerouteAll(Boolean.parseBoolean(value));
+                    break;
+                case "negotiationRounds":
+                    setNegotiationRounds(Integer.parseInt(value));
+                    break;
+                case "hierarchical":
+                    setHierarchical(Boolean.parseBoolean(value));
+                    break;
+                case "replacementWindow":
+                    setReplacementWindow(Integer.parseInt(value));
+                    break;
+                case "printProgress":
+                    setPrintProgress(Boolean.parseBoolean(value));
+                    break;
+                case "printGrid":
+                    setPrintGrid(Boolean.parseBoolean(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Bad value for option %s: %s", name, value), e);
+        }
+    }
+
+    private static ReplacementSchedule parseSchedule(String value) {
+        switch (value) {
+            case "fixed":
+                return new FixedSchedule();
+            case "annealing":
+                return new AnnealingSchedule();
+            default:
+                throw new IllegalArgumentException("Unknown schedule: " + value);
+        }
+    }
+}
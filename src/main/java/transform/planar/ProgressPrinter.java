@@ -0,0 +1,50 @@
+package transform.planar;
+
+import types.configuration.CellConfiguration;
+
+/**
+ * Prints the progress of the planarizer to standard out, and the grid after every round if asked to. When there are
+ * several starts, each line says which start it's from.
+ */
+class ProgressPrinter implements PlanarizerListener {
+    private final boolean printGrid;
+    private final boolean printStart;
+
+    ProgressPrinter(boolean printGrid, boolean printStart) {
+        this.printGrid = printGrid;
+        this.printStart = printStart;
+    }
+
+    private String getPrefix(int start) {
+        return printStart ? String.format("start %d, ", start) : "";
+    }
+
+    @Override
+    public void started(long seed) {
+        System.out.println(String.format("planarizing with seed %d.", seed));
+    }
+
+    @Override
+    public void substitutionStarted(String name) {
+        System.out.println(String.format("planarizing substitution %s.", name));
+    }
+
+    @Override
+    public void roundStarted(int start, int step, int cost, CellConfiguration grid, PlanarizerMetrics metrics) {
+        System.out.println(getPrefix(start) + String.format(
+            "re-placing step %d, cost - %d, size - %d, %d.", step, cost, grid.getSizeX(), grid.getSizeY()
+        ));
+    }
+
+    @Override
+    public void roundFinished(int start, int step, int cost, CellConfiguration grid, PlanarizerMetrics metrics) {
+        if (printGrid) {
+            System.out.println(grid);
+        }
+    }
+
+    @Override
+    public void finished(int start, CellConfiguration grid, PlanarizerMetrics metrics) {
+        System.out.println(getPrefix(start) + String.format("planarized, %s.", metrics));
+    }
+}
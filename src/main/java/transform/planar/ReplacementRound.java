@@ -0,0 +1,53 @@
+package transform.planar;
+
+/**
+ * The settings for one round of re-placing every node
+ */
+public class ReplacementRound {
+    private final int step;
+    private final int expandX;
+    private final int expandY;
+    private final double probIgnore;
+    private final boolean incremental;
+
+    /**
+     * @param step a number for the round, only used for reporting progress
+     * @param expandX how many empty columns to add to each side of the grid before the round
+     * @param expandY how many empty rows to add to each side of the grid before the round
+     * @param probIgnore the probability of ignoring each port while looking for a node's new place
+     * @param incremental whether to use incremental costs, which penalize widening the grid
+     */
+    public ReplacementRound(int step, int expandX, int expandY, double probIgnore, boolean incremental) {
+        this.step = step;
+        this.expandX = expandX;
+        this.expandY = expandY;
+        this.probIgnore = probIgnore;
+        this.incremental = incremental;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public int getExpandX() {
+        return expandX;
+    }
+
+    public int getExpandY() {
+        return expandY;
+    }
+
+    public double getProbIgnore() {
+        return probIgnore;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "[step=" + step + ",expandX=" + expandX + ",expandY=" + expandY
+            + ",probIgnore=" + probIgnore + ",incremental=" + incremental + "]";
+    }
+}
@@ -0,0 +1,22 @@
+package transform.planar;
+
+import types.configuration.CellConfiguration;
+
+/**
+ * Decides how many rounds of re-placement the planarizer runs, and the settings of each.
+ */
+public interface ReplacementSchedule {
+    /**
+     * Starts a new run of the schedule. Runs are independent of each other, so several can go on at once.
+     */
+    Run start();
+
+    interface Run {
+        /**
+         * Gets the next round to run, or null to stop
+         * @param grid the grid before the round
+         * @param cost the total cost of the grid, after the last round or before the first one
+         */
+        ReplacementRound next(CellConfiguration grid, int cost);
+    }
+}
@@ -0,0 +1,168 @@
+package transform.planar;
+
+import types.Direction;
+import types.Side;
+import types.configuration.CellConfiguration;
+import types.configuration.cells.*;
+
+/**
+ * The graph searched when routing a wire. Vertices are the sides of cells, encoded as ints over the bounds of the grid.
+ * An edge goes from a side into the neighboring cell and out one of that cell's other sides, and is weighted by the
+ * cost of the wire, turn or crossover that would be put there.
+ */
+class SideGraph {
+    static final Direction[] DIRECTIONS = Direction.values();
+
+    // the sides a wire can come in through to leave a cell through each side, in the order reverse edges are found
+    private static final Direction[][] SOURCES = constructSources();
+
+    private final CellConfiguration grid;
+    private final CostFunction cost;
+    private final boolean isInput;
+    private final int sizeX;
+    private final int sizeY;
+
+    SideGraph(CellConfiguration grid, CostFunction cost, boolean isInput) {
+        this.grid = grid;
+        this.cost = cost;
+        this.isInput = isInput;
+        this.sizeX = grid.getSizeX();
+        this.sizeY = grid.getSizeY();
+    }
+
+    private static Direction[][] constructSources() {
+        Direction[][] sources = new Direction[DIRECTIONS.length][];
+        for (Direction out : DIRECTIONS) {
+            sources[out.ordinal()] = new Direction[]{out.opposite(), out.anticlockwise(), out.clockwise()};
+        }
+        return sources;
+    }
+
+    int getSizeX() {
+        return sizeX;
+    }
+
+    int getSizeY() {
+        return sizeY;
+    }
+
+    /**
+     * Number of vertices
+     */
+    int size() {
+        return sizeX * sizeY * 4;
+    }
+
+    boolean contains(Side s) {
+        return s.getX() >= 0 && s.getX() < sizeX && s.getY() >= 0 && s.getY() < sizeY;
+    }
+
+    int encode(Side s) {
+        return encode(s.getX(), s.getY(), s.getDirection().ordinal());
+    }
+
+    int encode(int x, int y, int d) {
+        return ((x * sizeY) + y) * 4 + d;
+    }
+
+    Side decode(int index) {
+        return new Side(getX(index), getY(index), DIRECTIONS[index & 3]);
+    }
+
+    int getX(int index) {
+        return (index >> 2) / sizeY;
+    }
+
+    int getY(int index) {
+        return (index >> 2) % sizeY;
+    }
+
+    /**
+     * Writes the edges out of u into to and weights, and returns how many there are.
+     * Both arrays must have room for 3 edges.
+     */
+    int getEdges(int u, int[] to, int[] weights) {
+        Direction d = DIRECTIONS[u & 3];
+        int x = getX(u) + d.getX();
+        int y = getY(u) + d.getY();
+        if (x < 0 || x >= sizeX || y < 0 || y >= sizeY) {
+            return 0;
+        }
+
+        // v is the side of the neighboring cell facing back towards u
+        Direction v = d.opposite();
+        Cell c = grid.getCell(x, y);
+        if (c.getCellType() != CellType.EMPTY && c.getCellType() != CellType.WIRE) {
+            return 0;
+        }
+
+        int count = 0;
+        count = addEdge(c, x, y, v, d, to, weights, count);
+        count = addEdge(c, x, y, v, v.clockwise(), to, weights, count);
+        count = addEdge(c, x, y, v, v.anticlockwise(), to, weights, count);
+        return count;
+    }
+
+    /**
+     * Writes the edges into w into from and weights, and returns how many there are.
+     * Both arrays must have room for 3 edges.
+     */
+    int getReverseEdges(int w, int[] from, int[] weights) {
+        int x = getX(w);
+        int y = getY(w);
+        Cell c = grid.getCell(x, y);
+        if (c.getCellType() != CellType.EMPTY && c.getCellType() != CellType.WIRE) {
+            return 0;
+        }
+
+        Direction out = DIRECTIONS[w & 3];
+        int count = 0;
+        for (Direction v : SOURCES[out.ordinal()]) {
+            int ux = x + v.getX();
+            int uy = y + v.getY();
+            if (ux < 0 || ux >= sizeX || uy < 0 || uy >= sizeY) {
+                continue;
+            }
+
+            Cell next = getNextCell(c, v, out);
+            if (next != null) {
+                from[count] = encode(ux, uy, v.opposite().ordinal());
+                weights[count] = cost.getCost(next, x, y);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int addEdge(Cell c, int x, int y, Direction v, Direction out, int[] to, int[] weights, int count) {
+        Cell next = getNextCell(c, v, out);
+        if (next == null) {
+            return count;
+        }
+
+        to[count] = encode(x, y, out.ordinal());
+        weights[count] = cost.getCost(next, x, y);
+        return count + 1;
+    }
+
+    /**
+     * The cell that replaces c when a wire enters through side v and leaves through side out, or null if it can't.
+     */
+    private Cell getNextCell(Cell c, Direction v, Direction out) {
+        switch (c.getCellType()) {
+            case EMPTY:
+                if (out == v.opposite()) {
+                    return WireCell.getWire(isInput ? out : v);
+                }
+                return isInput ? TurnCell.getTurn(out, v) : TurnCell.getTurn(v, out);
+            case WIRE:
+                Direction wire = c.getOutputDirection(0);
+                if (out == v.opposite() && wire.perpendicular(v)) {
+                    return CrossoverCell.getCrossover(wire, isInput ? out : v);
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+}
@@ -104,7 +104,7 @@ public class AreaCellExpander implements CellExpander {
                         return expand(d.opposite(), c2, c1);
                     case PORT:
                         Preconditions.checkArgument(c1.getName().equals(c2.getName()));
-                        return new NodeCell(c1.getName(), c1.getId());
+                        return new NodeCell(c1.getName(), c1.getNodeId());
                     default:
                         throw new IllegalArgumentException();
                 }
@@ -0,0 +1,140 @@
+package types;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores every cell in one array
+ */
+class DenseGridStore<T> implements GridStore<T> {
+    private final T background;
+    private T[][] cells;
+    private int sizeX;
+    private int sizeY;
+
+    DenseGridStore(T background, int sizeX, int sizeY) {
+        this.background = background;
+        this.cells = getCellCopies(background, sizeX, sizeY);
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+    }
+
+    @Override
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    @Override
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    @Override
+    public T get(int x, int y) {
+        return cells[x][y];
+    }
+
+    @Override
+    public void put(int x, int y, T cell) {
+        cells[x][y] = cell;
+    }
+
+    @Override
+    public void set(T[][] cells, int sizeX, int sizeY) {
+        this.cells = cells;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+    }
+
+    @Override
+    public void resize(T background, int x, int y) {
+        T[][] newCells = getCellCopies(background, x, y);
+        copy(newCells, 0, 0);
+        this.cells = newCells;
+        this.sizeX = x;
+        this.sizeY = y;
+    }
+
+    @Override
+    public void expand(int x, int y) {
+        T[][] newCells = getCellCopies(background, sizeX + 2 * x, sizeY + 2 * y);
+        copy(newCells, x + 1, y + 1);
+        this.cells = newCells;
+        this.sizeX = sizeX + 2 * x;
+        this.sizeY = sizeY + 2 * y;
+    }
+
+    @Override
+    public void moveSlices(boolean isX, int[] map, int size, List<? extends List<T>> slices) {
+        boolean[] moved = new boolean[size];
+        for (int k : map) {
+            if (k >= 0) {
+                moved[k] = true;
+            }
+        }
+
+        if (isX) {
+            // the columns are their own arrays, so they can be moved without copying any cells
+            @SuppressWarnings("unchecked")
+            T[][] newCells = (T[][]) new Object[size][];
+            for (int i = 0; i < sizeX; i++) {
+                if (map[i] >= 0) {
+                    newCells[map[i]] = cells[i];
+                }
+            }
+
+            int next = 0;
+            for (int i = 0; i < size; i++) {
+                if (!moved[i]) {
+                    @SuppressWarnings("unchecked")
+                    T[] column = (T[]) slices.get(next).toArray();
+                    newCells[i] = column;
+                    next++;
+                }
+            }
+
+            this.cells = newCells;
+            this.sizeX = size;
+            return;
+        }
+
+        for (int i = 0; i < sizeX; i++) {
+            // every entry is written below, but the copy keeps the type of the column, which may come from set
+            T[] column = Arrays.copyOf(cells[i], size);
+            for (int j = 0; j < sizeY; j++) {
+                if (map[j] >= 0) {
+                    column[map[j]] = cells[i][j];
+                }
+            }
+
+            int next = 0;
+            for (int j = 0; j < size; j++) {
+                if (!moved[j]) {
+                    column[j] = slices.get(next).get(i);
+                    next++;
+                }
+            }
+            cells[i] = column;
+        }
+        this.sizeY = size;
+    }
+
+    private void copy(T[][] to, int x, int y) {
+        for (int i = 0; i < sizeX; i++) {
+            for (int j = 0; j < sizeY; j++) {
+                to[x + i][y + j] = cells[i][j];
+            }
+        }
+    }
+
+    private static <T> T[][] getCellCopies(T original, int x, int y) {
+        @SuppressWarnings("unchecked")
+        T[][] cells = (T[][]) new Object[x][y];
+        for (int i = 0; i < x; i++) {
+            for (int j = 0; j < y; j++) {
+                cells[i][j] = original;
+            }
+        }
+        return cells;
+    }
+}
@@ -1,6 +1,5 @@
 package types;
 
-import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 
 public enum Direction {
@@ -37,7 +36,10 @@ public enum Direction {
     }
 
     public static Direction getScalarDirection(int x, int y) {
-        Preconditions.checkArgument(x == 0 || y == 0, String.format("(%d, %d) is not a scalar of a direction", x, y));
+        // formatting the message every time is too slow for the router, so only do it when it's needed
+        if (x != 0 && y != 0) {
+            throw new IllegalArgumentException(String.format("(%d, %d) is not a scalar of a direction", x, y));
+        }
         return getClosestDirection(x, y);
     }
 
@@ -46,7 +48,9 @@ public enum Direction {
     }
 
     public static Direction getDirection(int x, int y) {
-        Preconditions.checkArgument(x * x + y * y == 1, String.format("(%d, %d) is not a direction", x, y));
+        if (x * x + y * y != 1) {
+            throw new IllegalArgumentException(String.format("(%d, %d) is not a direction", x, y));
+        }
         return getClosestDirection(x, y);
     }
 
@@ -124,11 +128,11 @@ public enum Direction {
     }
 
     public boolean isX() {
-        return parallel(getDirection(1, 0));
+        return x != 0;
     }
 
     public boolean isY() {
-        return parallel(getDirection(0, 1));
+        return y != 0;
     }
 
     public boolean isPositive() {
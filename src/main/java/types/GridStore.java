@@ -0,0 +1,39 @@
+package types;
+
+import java.util.List;
+
+/**
+ * The cells backing a MutableGrid
+ */
+interface GridStore<T> {
+    int getSizeX();
+
+    int getSizeY();
+
+    T get(int x, int y);
+
+    void put(int x, int y, T cell);
+
+    /**
+     * Replaces all the cells with the given ones
+     */
+    void set(T[][] cells, int sizeX, int sizeY);
+
+    /**
+     * Grows to the given size, filling the new cells with the background
+     */
+    void resize(T background, int x, int y);
+
+    /**
+     * Grows by 2x and 2y, moving every cell by x + 1 and y + 1
+     */
+    void expand(int x, int y);
+
+    /**
+     * Moves every slice of constant x, or of constant y, to a new index, in one pass.
+     * @param map the new index of each old slice, in increasing order, or -1 to delete it
+     * @param size the new number of slices
+     * @param slices the cells of the slices no old slice is moved to, in order
+     */
+    void moveSlices(boolean isX, int[] map, int size, List<? extends List<T>> slices);
+}
@@ -2,26 +2,36 @@ package types;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import transform.GridUtils;
 import types.configuration.CellConfiguration;
 
+import java.util.List;
+
 public class MutableGrid<Cell> implements Grid<Cell> {
     private Cell background;
-    private Cell[][] cells;
-    private int sizeX;
-    private int sizeY;
+    private GridStore<Cell> store;
 
     public MutableGrid(Cell background, int initialSizeX, int initialSizeY) {
+        this(background, initialSizeX, initialSizeY, false);
+    }
+
+    /**
+     * @param tiled whether to store the cells in tiles, where tiles of only the background take no space, and
+     * expanding doesn't copy any cells. Better for large grids that are mostly background.
+     */
+    public MutableGrid(Cell background, int initialSizeX, int initialSizeY, boolean tiled) {
         this.background = background;
-        this.cells = getCellCopies(background, initialSizeX, initialSizeY);
-        this.sizeX = initialSizeX;
-        this.sizeY = initialSizeY;
+        if (tiled) {
+            this.store = new TiledGridStore<>(background, initialSizeX, initialSizeY);
+        } else {
+            this.store = new DenseGridStore<>(background, initialSizeX, initialSizeY);
+        }
     }
 
     public void set(Cell[][] cells, int sizeX, int sizeY) {
-        this.cells = cells;
-        this.sizeX = sizeX;
-        this.sizeY = sizeY;
+        store.set(cells, sizeX, sizeY);
+        cellsReplaced();
     }
 
     public void resize(int x, int y) {
@@ -29,22 +39,71 @@ public class MutableGrid<Cell> implements Grid<Cell> {
     }
 
     public void resize(Cell background, int x, int y) {
-        Preconditions.checkArgument(x >= sizeX);
-        Preconditions.checkArgument(y >= sizeY);
-        Cell[][] newCells = getCellCopies(background, x, y);
-        put(newCells, this, 0, 0);
-        this.cells = newCells;
-        this.sizeX = x;
-        this.sizeY = y;
+        Preconditions.checkArgument(x >= getSizeX());
+        Preconditions.checkArgument(y >= getSizeY());
+        store.resize(background, x, y);
+        cellsReplaced();
     }
 
     /**
      * Expands all sides, and recenters
      */
     public void expand(int x, int y) {
-        MutableGrid<Cell> newGrid = new MutableGrid<>(background, getSizeX() + 2 * x, getSizeY() + 2 * y);
-        newGrid.put(this, x + 1, y + 1);
-        this.set(newGrid.cells, newGrid.getSizeX(), newGrid.getSizeY());
+        store.expand(x, y);
+        cellsExpanded(x, y);
+    }
+
+    /**
+     * Inserts slices into the grid, all in one pass
+     * @param isX whether to insert slices of constant x, or of constant y
+     * @param after for each new slice, the old slice it goes after, or -1 to go first, in increasing order
+     * @param slices the cells of each new slice
+     */
+    public void insertSlices(boolean isX, int[] after, List<? extends List<Cell>> slices) {
+        Preconditions.checkArgument(after.length == slices.size(), "Expected a position for every slice");
+        if (after.length == 0) {
+            return;
+        }
+
+        int[] map = new int[isX ? getSizeX() : getSizeY()];
+        for (int i = 0; i < after.length; i++) {
+            Preconditions.checkArgument(
+                after[i] >= -1 && after[i] < map.length && (i == 0 || after[i - 1] <= after[i]),
+                "Expected the slices in order"
+            );
+        }
+
+        int inserted = 0;
+        for (int k = 0; k < map.length; k++) {
+            while (inserted < after.length && after[inserted] < k) {
+                inserted++;
+            }
+            map[k] = k + inserted;
+        }
+
+        store.moveSlices(isX, map, map.length + after.length, slices);
+        slicesMoved(isX, map);
+    }
+
+    /**
+     * Deletes slices from the grid, all in one pass
+     * @param isX whether to delete slices of constant x, or of constant y
+     * @param delete whether to delete each slice
+     */
+    public void deleteSlices(boolean isX, boolean[] delete) {
+        int[] map = new int[isX ? getSizeX() : getSizeY()];
+        Preconditions.checkArgument(delete.length == map.length, "Expected a flag for every slice");
+        int size = 0;
+        for (int k = 0; k < map.length; k++) {
+            map[k] = delete[k] ? -1 : size++;
+        }
+
+        if (size == map.length) {
+            return;
+        }
+
+        store.moveSlices(isX, map, size, ImmutableList.<List<Cell>>of());
+        slicesMoved(isX, map);
     }
 
     @Override
@@ -54,35 +113,39 @@ public class MutableGrid<Cell> implements Grid<Cell> {
 
     @Override
     public boolean isValid(int x, int y) {
-        return x >= 0 && x < sizeX && y >= 0 && y < sizeY;
+        return x >= 0 && x < getSizeX() && y >= 0 && y < getSizeY();
     }
 
     @Override
     public int getSizeX() {
-        return sizeX;
+        return store.getSizeX();
     }
 
     @Override
     public int getSizeY() {
-        return sizeY;
+        return store.getSizeY();
     }
 
     @Override
     public Cell getCell(Location loc) {
-        return cells[loc.getX()][loc.getY()];
+        return store.get(loc.getX(), loc.getY());
     }
 
     @Override
     public Cell getCell(int x, int y) {
-        return cells[x][y];
+        return store.get(x, y);
     }
 
     public void put(Grid<Cell> grid, Location loc) {
-        put(this.cells, grid, loc.getX(), loc.getY());
+        put(grid, loc.getX(), loc.getY());
     }
 
     public void put(Grid<Cell> grid, int x, int y) {
-        put(this.cells, grid, x, y);
+        for (int i = 0; i < grid.getSizeX(); i++) {
+            for (int j = 0; j < grid.getSizeY(); j++) {
+                store.put(x + i, y + j, grid.getCell(i, j));
+            }
+        }
     }
 
     public void put(Cell cell, Location loc) {
@@ -90,32 +153,35 @@ public class MutableGrid<Cell> implements Grid<Cell> {
     }
 
     public void put(Cell cell, int x, int y) {
-        this.cells[x][y] = cell;
+        store.put(x, y, cell);
     }
 
-    private Cell[][] getCellCopies(Cell original, int x, int y) {
-        @SuppressWarnings("unchecked")
-        Cell[][] cells = (Cell[][]) new Object[x][y];
-        for (int i = 0; i < x; i++) {
-            for (int j = 0; j < y; j++) {
-                cells[i][j] = original;
-            }
-        }
-        return cells;
+    /**
+     * Called after all the cells have been replaced at once, by set, resize or expand
+     */
+    protected void cellsReplaced() {
     }
 
-    private void put(Cell[][] cells, Grid<Cell> grid, int x, int y) {
-        for (int i = 0; i < grid.getSizeX(); i++) {
-            for (int j = 0; j < grid.getSizeY(); j++) {
-                cells[x + i][y + j] = grid.getCell(i, j);
-            }
-        }
+    /**
+     * Called after expand, which grew each side by x slices of constant x and y slices of constant y, and moved the
+     * old cells by (x + 1, y + 1). By default, the same as having all the cells replaced.
+     */
+    protected void cellsExpanded(int x, int y) {
+        cellsReplaced();
+    }
+
+    /**
+     * Called after slices have been inserted or deleted, where map gives the new index of each old slice, or -1 if it
+     * was deleted. By default, the same as having all the cells replaced.
+     */
+    protected void slicesMoved(boolean isX, int[] map) {
+        cellsReplaced();
     }
 
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < sizeY; i++) {
+        for (int i = 0; i < getSizeY(); i++) {
             builder.append(Joiner.on("t").join(GridUtils.sliceY(this, i)));
             builder.append(System.lineSeparator());
         }
@@ -0,0 +1,201 @@
+package types;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores the cells in square tiles, where a tile of only the background isn't stored at all. The cells are placed
+ * relative to an origin, so expanding moves the origin and the tiles, instead of every cell.
+ * Cells outside of the grid are always the background, so growing never has to clear anything.
+ */
+class TiledGridStore<T> implements GridStore<T> {
+    private static final int BITS = 6;
+    private static final int SIZE = 1 << BITS;
+    private static final int MASK = SIZE - 1;
+
+    private final T background;
+    // tiles[tx][ty] holds the cells (tx * SIZE + i - originX, ty * SIZE + j - originY) at i * SIZE + j, or is null
+    private Object[][][] tiles;
+    private int originX;
+    private int originY;
+    private int sizeX;
+    private int sizeY;
+
+    TiledGridStore(T background, int sizeX, int sizeY) {
+        this.background = background;
+        clear(sizeX, sizeY);
+    }
+
+    @Override
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    @Override
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int x, int y) {
+        checkIndex(x, y);
+        int px = x + originX;
+        int py = y + originY;
+        Object[] tile = tiles[px >> BITS][py >> BITS];
+        return tile == null ? background : (T) tile[((px & MASK) << BITS) | (py & MASK)];
+    }
+
+    @Override
+    public void put(int x, int y, T cell) {
+        checkIndex(x, y);
+        int px = x + originX;
+        int py = y + originY;
+        Object[] tile = tiles[px >> BITS][py >> BITS];
+        if (tile == null) {
+            if (cell == background) {
+                return;
+            }
+
+            tile = new Object[SIZE * SIZE];
+            Arrays.fill(tile, background);
+            tiles[px >> BITS][py >> BITS] = tile;
+        }
+        tile[((px & MASK) << BITS) | (py & MASK)] = cell;
+    }
+
+    @Override
+    public void set(T[][] cells, int sizeX, int sizeY) {
+        clear(sizeX, sizeY);
+        for (int i = 0; i < sizeX; i++) {
+            for (int j = 0; j < sizeY; j++) {
+                put(i, j, cells[i][j]);
+            }
+        }
+    }
+
+    @Override
+    public void resize(T background, int x, int y) {
+        int oldSizeX = sizeX;
+        int oldSizeY = sizeY;
+        reserve(originX, originY, x, y);
+        if (background == this.background) {
+            return;
+        }
+
+        for (int i = 0; i < x; i++) {
+            for (int j = i < oldSizeX ? oldSizeY : 0; j < y; j++) {
+                put(i, j, background);
+            }
+        }
+    }
+
+    @Override
+    public void expand(int x, int y) {
+        Preconditions.checkArgument(x > 0 && y > 0, "Can only expand by a positive amount");
+        reserve(originX - x - 1, originY - y - 1, sizeX + 2 * x, sizeY + 2 * y);
+    }
+
+    /**
+     * Only visits the tiles that are stored, so this takes time proportional to the area that isn't background
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void moveSlices(boolean isX, int[] map, int size, List<? extends List<T>> slices) {
+        TiledGridStore<T> moved = new TiledGridStore<>(background, isX ? size : sizeX, isX ? sizeY : size);
+        for (int tx = 0; tx < tiles.length; tx++) {
+            for (int ty = 0; ty < tiles[tx].length; ty++) {
+                Object[] tile = tiles[tx][ty];
+                if (tile == null) {
+                    continue;
+                }
+
+                for (int k = 0; k < tile.length; k++) {
+                    int x = (tx << BITS) + (k >> BITS) - originX;
+                    int y = (ty << BITS) + (k & MASK) - originY;
+                    if (tile[k] == background || x < 0 || x >= sizeX || y < 0 || y >= sizeY) {
+                        continue;
+                    }
+
+                    int to = isX ? map[x] : map[y];
+                    if (to >= 0) {
+                        moved.put(isX ? to : x, isX ? y : to, (T) tile[k]);
+                    }
+                }
+            }
+        }
+
+        boolean[] filled = new boolean[size];
+        for (int k : map) {
+            if (k >= 0) {
+                filled[k] = true;
+            }
+        }
+
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            if (filled[i]) {
+                continue;
+            }
+
+            List<T> slice = slices.get(next);
+            for (int j = 0; j < slice.size(); j++) {
+                moved.put(isX ? i : j, isX ? j : i, slice.get(j));
+            }
+            next++;
+        }
+
+        this.tiles = moved.tiles;
+        this.originX = moved.originX;
+        this.originY = moved.originY;
+        this.sizeX = moved.sizeX;
+        this.sizeY = moved.sizeY;
+    }
+
+    private void checkIndex(int x, int y) {
+        if (x < 0 || x >= sizeX || y < 0 || y >= sizeY) {
+            throw new ArrayIndexOutOfBoundsException(String.format("(%d, %d)", x, y));
+        }
+    }
+
+    private void clear(int sizeX, int sizeY) {
+        this.tiles = new Object[tileCount(sizeX)][tileCount(sizeY)][];
+        this.originX = 0;
+        this.originY = 0;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+    }
+
+    /**
+     * Moves the origin and grows the grid, adding tiles around the old ones if they don't cover the new grid
+     */
+    private void reserve(int originX, int originY, int sizeX, int sizeY) {
+        int shiftX = originX < 0 ? tileCount(-originX) : 0;
+        int shiftY = originY < 0 ? tileCount(-originY) : 0;
+        originX += shiftX * SIZE;
+        originY += shiftY * SIZE;
+
+        int oldTilesX = tiles.length;
+        int oldTilesY = oldTilesX == 0 ? 0 : tiles[0].length;
+        int tilesX = Math.max(oldTilesX + shiftX, tileCount(originX + sizeX));
+        int tilesY = Math.max(oldTilesY + shiftY, tileCount(originY + sizeY));
+        if (tilesX != oldTilesX || tilesY != oldTilesY) {
+            Object[][][] newTiles = new Object[tilesX][tilesY][];
+            for (int i = 0; i < tiles.length; i++) {
+                System.arraycopy(tiles[i], 0, newTiles[i + shiftX], shiftY, tiles[i].length);
+            }
+            tiles = newTiles;
+        }
+
+        this.originX = originX;
+        this.originY = originY;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+    }
+
+    private static int tileCount(int cells) {
+        return (cells + MASK) >> BITS;
+    }
+}
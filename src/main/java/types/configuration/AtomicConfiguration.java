@@ -1,5 +1,6 @@
 package types.configuration;
 
+import com.google.common.base.Predicates;
 import com.google.common.collect.*;
 import types.configuration.nodes.*;
 
@@ -15,8 +16,13 @@ public class AtomicConfiguration {
     private ImmutableMap<String, Configuration> subs;
     private Configuration config;
     private ImmutableSet<String> atoms;
+    private final NodeIds ids;
 
     public AtomicConfiguration(Configuration config, Iterable<Configuration> subs, Set<String> atoms) {
+        this(config, subs, atoms, new NodeIds());
+    }
+
+    private AtomicConfiguration(Configuration config, Iterable<Configuration> subs, Set<String> atoms, NodeIds ids) {
         ImmutableMap.Builder<String, Configuration> builder = ImmutableMap.builder();
         for (Configuration conf : subs) {
             builder.put(conf.getName(), conf);
@@ -24,19 +30,27 @@ public class AtomicConfiguration {
         this.subs = builder.build();
         this.config = config;
         this.atoms = ImmutableSet.copyOf(atoms);
+        this.ids = ids;
     }
 
     public String getName() {
         return config.getName();
     }
 
+    /**
+     * Gets the table the ids of this configuration's nodes are interned in, which its substitutions share
+     */
+    public NodeIds getIds() {
+        return ids;
+    }
+
     public AtomicNode getNode(List<Integer> context, int id) {
         Configuration cur = config;
         for (int node : context) {
             cur = subs.get(cur.getNode(node).getName());
         }
 
-        return new AtomicNode(context, cur.getNode(id));
+        return new AtomicNode(ids, context, cur.getNode(id));
     }
 
     /**
@@ -78,7 +92,7 @@ public class AtomicConfiguration {
         while (curConfig.getNode(curPort.getId()).getType() != NodeType.LABELLED) {
             if (context.empty()) {
                 // cant go any farther, just return the top level input or output node
-                return new AtomicPort(context, curPort);
+                return new AtomicPort(ids, context, curPort);
             }
             configStack.pop();
             curConfig = configStack.peek();
@@ -112,15 +126,58 @@ public class AtomicConfiguration {
             configStack.push(curConfig);
         }
 
-        return new AtomicPort(context, curPort);
+        return new AtomicPort(ids, context, curPort);
+    }
+
+    /**
+     * Whether the port is on a labelled node, rather than on the input or output of the top level configuration
+     */
+    public boolean isLabelled(AtomicPort port) {
+        return getNode(port.getContext(), port.getPort().getId()).getType() == NodeType.LABELLED;
+    }
+
+    /**
+     * Gets the names of the substitutions used directly by the top level configuration, in topological order
+     */
+    public Set<String> getTopSubstitutions() {
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        for (Node node : config.getNodes()) {
+            if (node.getType() == NodeType.LABELLED && !atoms.contains(node.getName())) {
+                builder.add(node.getName());
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Gets a substitution broken down into the same atoms, as a configuration of its own
+     */
+    public AtomicConfiguration getSubstitution(String name) {
+        Configuration sub = subs.get(name);
+        if (sub == null) {
+            throw new IllegalArgumentException(String.format("No substitution found for gadget: %s", name));
+        }
+
+        return new AtomicConfiguration(sub, subs.values(), atoms, ids);
+    }
+
+    /**
+     * Gets this configuration broken down the same way, except that the given substitutions are kept whole as atoms
+     */
+    public AtomicConfiguration withAtoms(Set<String> names) {
+        return new AtomicConfiguration(
+            config, Maps.filterKeys(subs, Predicates.not(Predicates.in(names))).values(), Sets.union(atoms, names),
+            ids
+        );
     }
 
     public AtomicNode getInput() {
-        return new AtomicNode(ImmutableList.<Integer>of(), config.getInput());
+        return new AtomicNode(ids, ImmutableList.<Integer>of(), config.getInput());
     }
 
     public AtomicNode getOutput() {
-        return new AtomicNode(ImmutableList.<Integer>of(), config.getOutput());
+        return new AtomicNode(ids, ImmutableList.<Integer>of(), config.getOutput());
     }
 
     private class ConfigIterator implements Iterator<AtomicNode> {
@@ -142,7 +199,7 @@ public class AtomicConfiguration {
 
         @Override
         public AtomicNode next() {
-            AtomicNode node = new AtomicNode(context, iterators.peek().next());
+            AtomicNode node = new AtomicNode(ids, context, iterators.peek().next());
             hasNext = load();
             return node;
         }
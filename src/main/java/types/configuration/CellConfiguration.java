@@ -1,23 +1,225 @@
 package types.configuration;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
+import com.google.common.base.Supplier;
+import com.google.common.collect.*;
 import types.*;
 import types.configuration.cells.Cell;
 import types.configuration.cells.CellType;
 import types.configuration.cells.EmptyCell;
 import types.configuration.cells.PortCell;
 
-import java.util.List;
+import java.util.*;
 
 public class CellConfiguration extends MutableGrid<Cell> {
+    /**
+     * Orders locations by x, and then y, the same order as scanning the grid
+     */
+    private static final Comparator<Location> SCAN_ORDER = new Comparator<Location>() {
+        @Override
+        public int compare(Location a, Location b) {
+            int compare = Integer.compare(a.getX(), b.getX());
+            return compare != 0 ? compare : Integer.compare(a.getY(), b.getY());
+        }
+    };
+
+    private static final Supplier<SortedSet<Location>> SCAN_ORDER_SETS = new Supplier<SortedSet<Location>>() {
+        @Override
+        public SortedSet<Location> get() {
+            return new TreeSet<>(SCAN_ORDER);
+        }
+    };
+
+    private final List<CellConfigurationListener> listeners = new ArrayList<>();
+
+    // the node and port cells of every node, and just the port cells, by id
+    private final SortedSetMultimap<Integer, Location> nodeCells =
+        Multimaps.newSortedSetMultimap(new HashMap<Integer, Collection<Location>>(), SCAN_ORDER_SETS);
+    private final SortedSetMultimap<Integer, Location> portCells =
+        Multimaps.newSortedSetMultimap(new HashMap<Integer, Collection<Location>>(), SCAN_ORDER_SETS);
+
     public CellConfiguration(int initialSizeX, int initialSizeY) {
         this(EmptyCell.getInstance(), initialSizeX, initialSizeY);
     }
 
     public CellConfiguration(Cell background, int initialSizeX, int initialSizeY) {
-        super(background, initialSizeX, initialSizeY);
+        this(background, initialSizeX, initialSizeY, false);
+    }
+
+    /**
+     * @param tiled whether to store the cells in tiles, which suits large layouts that are mostly empty
+     */
+    public CellConfiguration(Cell background, int initialSizeX, int initialSizeY, boolean tiled) {
+        super(background, initialSizeX, initialSizeY, tiled);
+        indexAll();
+    }
+
+    public void addListener(CellConfigurationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(CellConfigurationListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void put(Cell cell, int x, int y) {
+        Cell old = getCell(x, y);
+        super.put(cell, x, y);
+        if (old != cell) {
+            unindex(old, x, y);
+            index(cell, x, y);
+            for (CellConfigurationListener listener : listeners) {
+                listener.cellChanged(x, y, old, cell);
+            }
+        }
+    }
+
+    @Override
+    public void put(Grid<Cell> grid, Location loc) {
+        put(grid, loc.getX(), loc.getY());
+    }
+
+    @Override
+    public void put(Grid<Cell> grid, int x, int y) {
+        for (int i = 0; i < grid.getSizeX(); i++) {
+            for (int j = 0; j < grid.getSizeY(); j++) {
+                put(grid.getCell(i, j), x + i, y + j);
+            }
+        }
+    }
+
+    @Override
+    protected void cellsReplaced() {
+        indexAll();
+        for (CellConfigurationListener listener : listeners) {
+            listener.gridChanged();
+        }
+    }
+
+    /**
+     * Moves the indexed cells along with their slices, and only indexes the cells of the inserted slices, instead of
+     * indexing the whole grid again
+     */
+    @Override
+    protected void slicesMoved(boolean isX, int[] map) {
+        remap(nodeCells, isX, map);
+        remap(portCells, isX, map);
+        boolean[] inserted = new boolean[isX ? getSizeX() : getSizeY()];
+        Arrays.fill(inserted, true);
+        for (int k : map) {
+            if (k >= 0) {
+                inserted[k] = false;
+            }
+        }
+
+        for (int k = 0; k < inserted.length; k++) {
+            if (!inserted[k]) {
+                continue;
+            }
+
+            for (int t = 0; t < (isX ? getSizeY() : getSizeX()); t++) {
+                int x = isX ? k : t;
+                int y = isX ? t : k;
+                index(getCell(x, y), x, y);
+            }
+        }
+
+        for (CellConfigurationListener listener : listeners) {
+            listener.slicesMoved(isX, map);
+        }
+    }
+
+    /**
+     * Moves the indexed cells by the offset of the expansion, instead of indexing the whole grid again
+     */
+    @Override
+    protected void cellsExpanded(int x, int y) {
+        int[] mapX = getExpansionMap(getSizeX() - 2 * x, x);
+        int[] mapY = getExpansionMap(getSizeY() - 2 * y, y);
+        remap(nodeCells, true, mapX);
+        remap(nodeCells, false, mapY);
+        remap(portCells, true, mapX);
+        remap(portCells, false, mapY);
+        for (CellConfigurationListener listener : listeners) {
+            listener.gridExpanded(x, y);
+        }
+    }
+
+    /**
+     * The new index of each old slice after expanding by the given amount
+     */
+    public static int[] getExpansionMap(int size, int expand) {
+        int[] map = new int[size];
+        for (int i = 0; i < size; i++) {
+            map[i] = i + expand + 1;
+        }
+
+        return map;
+    }
+
+    private static void remap(SortedSetMultimap<Integer, Location> cells, boolean isX, int[] map) {
+        List<Map.Entry<Integer, Location>> entries = ImmutableList.copyOf(cells.entries());
+        cells.clear();
+        for (Map.Entry<Integer, Location> entry : entries) {
+            Location loc = entry.getValue();
+            int to = map[isX ? loc.getX() : loc.getY()];
+            if (to >= 0) {
+                cells.put(entry.getKey(), isX ? new Location(to, loc.getY()) : new Location(loc.getX(), to));
+            }
+        }
+    }
+
+    /**
+     * Gets the locations of the node and port cells with the given id, in the order x, then y
+     */
+    public SortedSet<Location> getNodeCells(int id) {
+        return Collections.unmodifiableSortedSet(nodeCells.get(id));
+    }
+
+    /**
+     * Gets the locations of the port cells with the given id, in the order x, then y
+     */
+    public SortedSet<Location> getPortCells(int id) {
+        return Collections.unmodifiableSortedSet(portCells.get(id));
+    }
+
+    /**
+     * Gets the ids, as interned by NodeIds, of every node with a cell in the grid
+     */
+    public Set<Integer> getNodeIds() {
+        return Collections.unmodifiableSet(nodeCells.keySet());
+    }
+
+    private void index(Cell cell, int x, int y) {
+        CellType type = cell.getCellType();
+        if (type == CellType.NODE || type == CellType.PORT) {
+            Location loc = new Location(x, y);
+            nodeCells.put(cell.getIntId(), loc);
+            if (type == CellType.PORT) {
+                portCells.put(cell.getIntId(), loc);
+            }
+        }
+    }
+
+    private void unindex(Cell cell, int x, int y) {
+        CellType type = cell.getCellType();
+        if (type == CellType.NODE || type == CellType.PORT) {
+            Location loc = new Location(x, y);
+            nodeCells.remove(cell.getIntId(), loc);
+            if (type == CellType.PORT) {
+                portCells.remove(cell.getIntId(), loc);
+            }
+        }
+    }
+
+    private void indexAll() {
+        nodeCells.clear();
+        portCells.clear();
+        for (int i = 0; i < getSizeX(); i++) {
+            for (int j = 0; j < getSizeY(); j++) {
+                index(getCell(i, j), i, j);
+            }
+        }
     }
 
     public boolean isEmpty(int x, int y, Location loc) {
@@ -57,7 +259,7 @@ public class CellConfiguration extends MutableGrid<Cell> {
         }
         portsBuilder.put(s.getDirection(), port);
 
-        put(new PortCell(c.getName(), c.getId(), inputs, outputs, portsBuilder.build()), loc);
+        put(new PortCell(c.getName(), c.getNodeId(), inputs, outputs, portsBuilder.build()), loc);
     }
 
     @Override
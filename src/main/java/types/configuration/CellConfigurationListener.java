@@ -0,0 +1,30 @@
+package types.configuration;
+
+import types.configuration.cells.Cell;
+
+/**
+ * Listens to changes made to a CellConfiguration, so that state derived from its cells can be kept up to date.
+ */
+public interface CellConfigurationListener {
+    /**
+     * A single cell was overwritten
+     */
+    void cellChanged(int x, int y, Cell oldCell, Cell newCell);
+
+    /**
+     * The cells were replaced or moved all at once, so any derived state has to be rebuilt
+     */
+    void gridChanged();
+
+    /**
+     * The grid was expanded on every side, by x slices of constant x and y slices of constant y, which moved all the
+     * old cells by (x + 1, y + 1). The new cells are all background.
+     */
+    void gridExpanded(int x, int y);
+
+    /**
+     * Slices of constant x, or of constant y, were inserted or deleted all at once
+     * @param map the new index of each old slice, or -1 if it was deleted
+     */
+    void slicesMoved(boolean isX, int[] map);
+}
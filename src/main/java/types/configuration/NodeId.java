@@ -0,0 +1,35 @@
+package types.configuration;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * A node id, the context path of a node followed by its id, as interned by a NodeIds table. Ids from the same table
+ * are equal only if they are the same object, and can be compared and hashed by their index instead.
+ */
+public final class NodeId {
+    private final int index;
+    private final ImmutableList<Integer> path;
+
+    NodeId(int index, ImmutableList<Integer> path) {
+        this.index = index;
+        this.path = path;
+    }
+
+    /**
+     * Gets the int the table gave the id, which is dense from 0 within the table
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public List<Integer> getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "[index=" + index + ",path=" + path + "]";
+    }
+}
@@ -0,0 +1,36 @@
+package types.configuration;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns the node ids of a configuration, so that cells and nodes can be compared and hashed by an int. Each atomic
+ * configuration owns one, which the configurations derived from it share.
+ */
+public final class NodeIds {
+    private final ConcurrentMap<ImmutableList<Integer>, NodeId> ids = new ConcurrentHashMap<>();
+    private int size = 0;
+
+    /**
+     * Gets the id for the path, giving it the next int if it doesn't have one yet
+     */
+    public NodeId intern(List<Integer> path) {
+        NodeId id = ids.get(path);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            id = ids.get(path);
+            if (id == null) {
+                ImmutableList<Integer> copy = ImmutableList.copyOf(path);
+                id = new NodeId(size++, copy);
+                ids.put(copy, id);
+            }
+            return id;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package types.configuration.cells;
 
 import com.google.common.collect.ImmutableBiMap;
 import types.Direction;
+import types.configuration.NodeId;
 import types.configuration.nodes.Port;
 
 import java.util.ArrayList;
@@ -74,6 +75,16 @@ public abstract class AbstractCell implements Cell {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public NodeId getNodeId() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getIntId() {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public boolean isOutput(Direction d) {
         return outputs.containsValue(d);
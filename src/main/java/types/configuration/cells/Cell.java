@@ -1,11 +1,12 @@
 package types.configuration.cells;
 
 import types.Direction;
+import types.configuration.NodeId;
 
 import java.util.List;
 
 /**
- * A cell in a grid configuration. getName, getId are only be supported by Node and Port cells.
+ * A cell in a grid configuration. getName, getId, getNodeId, getIntId are only be supported by Node and Port cells.
  * getPortNumber is only supported by Port cells. All directions refer to sides of this cell.
  */
 public interface Cell {
@@ -17,6 +18,12 @@ public interface Cell {
     Direction getOutputDirection(int i);
     String getName();
     List<Integer> getId();
+    NodeId getNodeId();
+
+    /**
+     * Gets the index of the node id, which is cheaper to compare than the list
+     */
+    int getIntId();
     boolean isOutput(Direction d);
     boolean isInput(Direction d);
     int getPortNumber(Direction d);
@@ -5,6 +5,9 @@ import com.google.common.collect.ImmutableList;
 import types.Direction;
 
 public class CrossoverCell extends AbstractCell {
+    // the crossover with each pair of output directions, indexed by their ordinals
+    private static final CrossoverCell[][] CROSSOVERS = constructCrossovers();
+
     /**
      * The output directions.
      */
@@ -14,6 +17,25 @@ public class CrossoverCell extends AbstractCell {
         Preconditions.checkArgument(d1.opposite() != d2);
     }
 
+    /**
+     * Gets the shared crossover with the given output directions, in order
+     */
+    public static CrossoverCell getCrossover(Direction d1, Direction d2) {
+        Preconditions.checkArgument(d1 != d2);
+        Preconditions.checkArgument(d1.opposite() != d2);
+        return CROSSOVERS[d1.ordinal()][d2.ordinal()];
+    }
+
+    private static CrossoverCell[][] constructCrossovers() {
+        Direction[] dirs = Direction.values();
+        CrossoverCell[][] crossovers = new CrossoverCell[dirs.length][dirs.length];
+        for (Direction d1 : dirs) {
+            crossovers[d1.ordinal()][d1.clockwise().ordinal()] = new CrossoverCell(d1, d1.clockwise());
+            crossovers[d1.ordinal()][d1.anticlockwise().ordinal()] = new CrossoverCell(d1, d1.anticlockwise());
+        }
+        return crossovers;
+    }
+
     @Override
     public CellType getCellType() {
         return CellType.CROSSOVER;
@@ -2,6 +2,7 @@ package types.configuration.cells;
 
 import com.google.common.collect.ImmutableList;
 import types.Direction;
+import types.configuration.NodeId;
 
 import java.util.List;
 
@@ -54,6 +55,16 @@ public class EmptyCell implements Cell {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public NodeId getNodeId() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getIntId() {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public boolean isOutput(Direction d) {
         return false;
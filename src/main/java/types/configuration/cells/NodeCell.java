@@ -2,16 +2,17 @@ package types.configuration.cells;
 
 import com.google.common.collect.ImmutableList;
 import types.Direction;
+import types.configuration.NodeId;
 
 import java.util.List;
 
 public class NodeCell implements Cell {
     private final String name;
-    private final ImmutableList<Integer> id;
+    private final NodeId id;
 
-    public NodeCell(String name, List<Integer> id) {
+    public NodeCell(String name, NodeId id) {
         this.name = name;
-        this.id = ImmutableList.copyOf(id);
+        this.id = id;
     }
 
     @Override
@@ -51,9 +52,19 @@ public class NodeCell implements Cell {
 
     @Override
     public List<Integer> getId() {
+        return id.getPath();
+    }
+
+    @Override
+    public NodeId getNodeId() {
         return id;
     }
 
+    @Override
+    public int getIntId() {
+        return id.getIndex();
+    }
+
     @Override
     public boolean isOutput(Direction d) {
         return false;
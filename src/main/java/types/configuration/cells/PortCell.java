@@ -1,8 +1,8 @@
 package types.configuration.cells;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import types.Direction;
+import types.configuration.NodeId;
 import types.configuration.nodes.Port;
 
 import java.util.List;
@@ -10,19 +10,19 @@ import java.util.Map;
 
 public class PortCell extends AbstractCell {
     private final String name;
-    private final ImmutableList<Integer> id;
+    private final NodeId id;
     private final ImmutableMap<Direction, Integer> ports;
 
     public PortCell(
         String name,
-        List<Integer> id,
+        NodeId id,
         Iterable<Direction> inputs,
         Iterable<Direction> outputs,
         Map<Direction, Integer> ports
     ) {
         super(inputs, outputs);
         this.name = name;
-        this.id = ImmutableList.copyOf(id);
+        this.id = id;
         this.ports = ImmutableMap.copyOf(ports);
     }
 
@@ -41,9 +41,19 @@ public class PortCell extends AbstractCell {
 
     @Override
     public List<Integer> getId() {
+        return id.getPath();
+    }
+
+    @Override
+    public NodeId getNodeId() {
         return id;
     }
 
+    @Override
+    public int getIntId() {
+        return id.getIndex();
+    }
+
     @Override
     public int getPortNumber(Direction d) {
         return ports.get(d);
@@ -5,12 +5,34 @@ import com.google.common.collect.ImmutableList;
 import types.Direction;
 
 public class TurnCell extends AbstractCell{
+    // the turn with each input and output direction, indexed by their ordinals
+    private static final TurnCell[][] TURNS = constructTurns();
+
     public TurnCell(Direction in, Direction out) {
         super(ImmutableList.of(in), ImmutableList.of(out));
         Preconditions.checkArgument(in != out);
         Preconditions.checkArgument(in.opposite() != out);
     }
 
+    /**
+     * Gets the shared turn with the given input and output directions
+     */
+    public static TurnCell getTurn(Direction in, Direction out) {
+        Preconditions.checkArgument(in != out);
+        Preconditions.checkArgument(in.opposite() != out);
+        return TURNS[in.ordinal()][out.ordinal()];
+    }
+
+    private static TurnCell[][] constructTurns() {
+        Direction[] dirs = Direction.values();
+        TurnCell[][] turns = new TurnCell[dirs.length][dirs.length];
+        for (Direction in : dirs) {
+            turns[in.ordinal()][in.clockwise().ordinal()] = new TurnCell(in, in.clockwise());
+            turns[in.ordinal()][in.anticlockwise().ordinal()] = new TurnCell(in, in.anticlockwise());
+        }
+        return turns;
+    }
+
     @Override
     public CellType getCellType() {
         return CellType.TURN;
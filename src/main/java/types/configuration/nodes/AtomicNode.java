@@ -1,6 +1,8 @@
 package types.configuration.nodes;
 
 import com.google.common.collect.ImmutableList;
+import types.configuration.NodeId;
+import types.configuration.NodeIds;
 
 import java.util.List;
 
@@ -11,8 +13,11 @@ public class AtomicNode {
     private final ImmutableList<Integer> id;
     private final ImmutableList<Integer> context;
     private final Node node;
+    private final NodeIds ids;
+    private NodeId nodeId;
 
-    public AtomicNode(Iterable<Integer> context, Node node) {
+    public AtomicNode(NodeIds ids, Iterable<Integer> context, Node node) {
+        this.ids = ids;
         this.context = ImmutableList.copyOf(context);
         this.node = node;
         this.id = ImmutableList.<Integer>builder().addAll(context).add(node.getId()).build();
@@ -27,11 +32,11 @@ public class AtomicNode {
     }
 
     public AtomicPort getInputPort(int i) {
-        return new AtomicPort(context, node.getInputPort(i));
+        return new AtomicPort(ids, context, node.getInputPort(i));
     }
 
     public AtomicPort getOutputPort(int i) {
-        return new AtomicPort(context, node.getOutputPort(i));
+        return new AtomicPort(ids, context, node.getOutputPort(i));
     }
 
     public int inputSize() {
@@ -46,6 +51,20 @@ public class AtomicNode {
         return id;
     }
 
+    /**
+     * Gets the id as interned by the configuration's NodeIds
+     */
+    public NodeId getNodeId() {
+        if (nodeId == null) {
+            nodeId = ids.intern(id);
+        }
+        return nodeId;
+    }
+
+    public int getIntId() {
+        return getNodeId().getIndex();
+    }
+
     public String getName() {
         return node.getName();
     }
@@ -1,6 +1,8 @@
 package types.configuration.nodes;
 
 import com.google.common.collect.ImmutableList;
+import types.configuration.NodeId;
+import types.configuration.NodeIds;
 
 import java.util.List;
 
@@ -8,8 +10,11 @@ public class AtomicPort {
     private final ImmutableList<Integer> context;
     private final ImmutableList<Integer> id;
     private final Port port;
+    private final NodeIds ids;
+    private NodeId nodeId;
 
-    public AtomicPort(Iterable<Integer> context, Port port) {
+    public AtomicPort(NodeIds ids, Iterable<Integer> context, Port port) {
+        this.ids = ids;
         this.context = ImmutableList.copyOf(context);
         this.port = port;
         this.id = ImmutableList.<Integer>builder().addAll(context).add(port.getId()).build();
@@ -27,6 +32,20 @@ public class AtomicPort {
         return id;
     }
 
+    /**
+     * Gets the id of the port's node as interned by the configuration's NodeIds
+     */
+    public NodeId getNodeId() {
+        if (nodeId == null) {
+            nodeId = ids.intern(id);
+        }
+        return nodeId;
+    }
+
+    public int getIntId() {
+        return getNodeId().getIndex();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o instanceof AtomicPort) {
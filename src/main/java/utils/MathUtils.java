@@ -43,4 +43,25 @@ public class MathUtils {
     public static int indexMin(int[] values) {
         return indexMin(Ints.asList(values));
     }
+
+    /**
+     * Derives a seed for an independent stream of random numbers from a seed and some keys, so that the same seed and
+     * keys always give the same stream, no matter the order the streams are made in.
+     */
+    public static long deriveSeed(long seed, long... keys) {
+        long h = mix(seed);
+        for (long key : keys) {
+            h = mix(h ^ mix(key + 0x9E3779B97F4A7C15L));
+        }
+        return h;
+    }
+
+    /**
+     * The finalizer of SplitMix64, which spreads every bit of the input over the output
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
 }
@@ -8,6 +8,7 @@ import parser.ParserUtils;
 import types.Direction;
 import types.Gadget;
 import types.configuration.CellConfiguration;
+import types.configuration.NodeIds;
 import types.configuration.cells.Cell;
 import types.configuration.cells.CellType;
 import utils.ResourceUtils;
@@ -21,7 +22,7 @@ public class GadgetConverterTest {
         GadgetParser parser = new GadgetParser();
         Gadget gadget = parser.parse(ResourceUtils.getAbsoluteFile(getClass(), "types/gadget/circuit/and.txt"));
         GadgetConverter converter = new GadgetConverter();
-        CellConfiguration grid = converter.toGridConfiguration(gadget, ImmutableList.of(1, 2, 3));
+        CellConfiguration grid = converter.toGridConfiguration(gadget, new NodeIds().intern(ImmutableList.of(1, 2, 3)));
         assertEquals(grid.getSizeX(), 1);
         assertEquals(grid.getSizeY(), 2);
 
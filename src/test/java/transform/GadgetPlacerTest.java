@@ -7,6 +7,8 @@ import types.Direction;
 import types.Gadget;
 import types.Location;
 import types.configuration.CellConfiguration;
+import types.configuration.NodeIds;
+import types.configuration.NodeId;
 import types.configuration.cells.*;
 import utils.ResourceUtils;
 
@@ -86,7 +88,7 @@ public class GadgetPlacerTest {
 
         Map<Direction, Integer> ports = new HashMap<>();
 
-        ImmutableList<Integer> dummyId = ImmutableList.of();
+        NodeId dummyId = new NodeIds().intern(ImmutableList.<Integer>of());
         ports.put(Direction.WEST, 0);
         biggerGrid.put(new PortCell("AND", dummyId, inputDirs, new HashSet<Direction>(), ports), new Location(1, 0));
         biggerGrid.put(new NodeCell("AND", dummyId), new Location(1,1));
@@ -0,0 +1,93 @@
+package transform.lp;
+
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static com.google.common.collect.ImmutableMap.of;
+import static org.testng.Assert.*;
+import static transform.lp.ConstraintFactory.atLeast;
+import static transform.lp.ConstraintFactory.atMost;
+import static transform.lp.ConstraintFactory.equalTo;
+
+public class DifferenceConstraintSolverTest {
+    private static class CountingSolver implements LPSolver {
+        private int calls;
+
+        @Override
+        public double[] minimize(double[] c, double[][] G, double[] h, double[][] A, double[] b) throws Exception {
+            calls++;
+            return new JOptimizerSolver().minimize(c, G, h, A, b);
+        }
+
+        @Override
+        public double[] minimize(double[] c, SparseMatrix G, double[] h, SparseMatrix A, double[] b) throws Exception {
+            calls++;
+            return new JOptimizerSolver().minimize(c, G, h, A, b);
+        }
+
+        @Override
+        public double[] minimize(double[] c, SparseMatrix G, double[] h, SparseMatrix A, double[] b, List<?> keys)
+            throws Exception {
+            return minimize(c, G, h, A, b);
+        }
+    }
+
+    @Test
+    public void testSlices() throws Exception {
+        // three slices, with a gadget of size 3 between the first two, and one of size 2 that can be anywhere
+        LinearProgram.Builder builder = LinearProgram.builder();
+        Variable s0 = builder.addVariable("s0");
+        Variable s1 = builder.addVariable("s1");
+        Variable s2 = builder.addVariable("s2");
+        Variable g = builder.addVariable("g");
+        builder.setObjective(ImmutableMap.of(s0, -1, s2, 1));
+        builder.addConstraint(equalTo(s0, 0));
+        builder.addConstraint(atLeast(s1, s0, 3));
+        builder.addConstraint(atMost(s1, s2));
+        builder.addConstraint(atLeast(g, s0));
+        builder.addConstraint(atMost(g, 2, s2));
+        // scaled, as 2 s2 <= 2 g + 20
+        builder.addConstraint(atMost(of(s2, 2), 0, of(g, 2), 20));
+
+        CountingSolver fallback = new CountingSolver();
+        Solution solution = builder.build().getSolution(new DifferenceConstraintSolver(fallback));
+        assertEquals(fallback.calls, 0);
+        assertEquals(solution.get(s0), 0.0);
+        assertEquals(solution.get(s1), 3.0);
+        assertEquals(solution.get(s2), 3.0);
+        assertEquals(solution.get(g), 0.0);
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        LinearProgram.Builder builder = LinearProgram.builder();
+        Variable x = builder.addVariable("x");
+        Variable y = builder.addVariable("y");
+        builder.setObjective(ImmutableMap.of(x, 20, y, 67));
+        builder.addConstraint(atMost(of(x, -2, y, -1), -55));
+        builder.addConstraint(atLeast(of(y, -3), 29, of(x, 1)));
+
+        CountingSolver fallback = new CountingSolver();
+        Solution solution = builder.build().getSolution(new DifferenceConstraintSolver(fallback));
+        assertEquals(fallback.calls, 1);
+        assertEquals(solution.get(x), 55./2, 0.1);
+    }
+
+    @Test
+    public void testUnpinnedObjective() throws Exception {
+        // maximizing x isn't solved by the least solution
+        LinearProgram.Builder builder = LinearProgram.builder();
+        Variable x = builder.addVariable("x");
+        Variable y = builder.addVariable("y");
+        builder.setObjective(ImmutableMap.of(x, -1));
+        builder.addConstraint(atMost(x, y));
+        builder.addConstraint(atMost(y, 4));
+
+        CountingSolver fallback = new CountingSolver();
+        Solution solution = builder.build().getSolution(new DifferenceConstraintSolver(fallback));
+        assertEquals(fallback.calls, 1);
+        assertEquals(solution.get(x), 4.0, 0.1);
+    }
+}
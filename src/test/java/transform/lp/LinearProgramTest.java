@@ -3,9 +3,11 @@ package transform.lp;
 import com.google.common.collect.ImmutableMap;
 import org.testng.annotations.Test;
 
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
 import static transform.lp.ConstraintFactory.atLeast;
 import static transform.lp.ConstraintFactory.atMost;
 import static com.google.common.collect.ImmutableMap.of;
@@ -17,16 +19,100 @@ public class LinearProgramTest {
         // Minimize 20x + 67y, subject to -2x - y <= -55, 29 + 3y >= x, x>=0, y>=0
         // minimize c * x
         LinearProgram.Builder builder = LinearProgram.builder();
-        builder.setObjective(ImmutableMap.of("x", 20, "y", 67));
-        builder.addConstraint(atMost(of("x", -2, "y", -1), -55));
-        builder.addConstraint(atLeast(of("y", -3), 29, of("x", 1)));
-        builder.addConstraint(equalTo(of("z", 1), 5, of("x", 3, "y", 5)));
+        Variable x = builder.addVariable("x");
+        Variable y = builder.addVariable("y");
+        Variable z = builder.addVariable("z");
+        builder.setObjective(ImmutableMap.of(x, 20, y, 67));
+        builder.addConstraint(atMost(of(x, -2, y, -1), -55));
+        builder.addConstraint(atLeast(of(y, -3), 29, of(x, 1)));
+        builder.addConstraint(equalTo(of(z, 1), 5, of(x, 3, y, 5)));
         LinearProgram lp = builder.build();
 
         LPSolver solver = new JOptimizerSolver();
-        Map<String, Double> solution = lp.getSolution(solver);
-        assertEquals(solution.get("x"), 55./2, 0.1);
-        assertEquals(solution.get("y"), 0, 0.1);
-        assertEquals(solution.get("z"), -5 + 55./2 * 3 + 0, 0.1);
+        Solution solution = lp.getSolution(solver);
+        assertEquals(solution.get(x), 55./2, 0.1);
+        assertEquals(solution.get(y), 0, 0.1);
+        assertEquals(solution.get(z), -5 + 55./2 * 3 + 0, 0.1);
+
+        // each constraint only stores the variables it has
+        assertEquals(lp.getG().size(), 4);
+        assertEquals(lp.getA().size(), 3);
+        double[] dense = solver.minimize(lp.getC(), lp.getG().toDense(), lp.getH(), lp.getA().toDense(), lp.getB());
+        for (Variable var : lp.getVariables()) {
+            assertEquals(lp.getSolution(dense).get(var), solution.get(var), 1e-9);
+        }
+    }
+
+    @Test
+    public void testBlocks() throws Exception {
+        // the same program twice over different variables, and a variable without constraints
+        LinearProgram.Builder builder = LinearProgram.builder();
+        Variable x1 = builder.addVariable("x1");
+        Variable x2 = builder.addVariable("x2");
+        Variable y1 = builder.addVariable("y1");
+        Variable y2 = builder.addVariable("y2");
+        Variable z = builder.addVariable("z");
+        builder.setObjective(ImmutableMap.of(x1, 20, x2, 67, y1, 20, y2, 67, z, 1));
+        builder.addConstraint(atMost(of(x1, -2, x2, -1), -55));
+        builder.addConstraint(atLeast(of(x2, -3), 29, of(x1, 1)));
+        builder.addConstraint(atMost(of(y1, -2, y2, -1), -55));
+        builder.addConstraint(atLeast(of(y2, -3), 29, of(y1, 1)));
+        LinearProgram lp = builder.build();
+        assertEquals(lp.getBlockCount(), 3);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Solution solution = lp.getSolution(new JOptimizerSolver(), executor);
+            assertEquals(solution.get(x1), 55./2, 0.1);
+            assertEquals(solution.get(x2), 0, 0.1);
+            assertEquals(solution.get(y1), 55./2, 0.1);
+            assertEquals(solution.get(y2), 0, 0.1);
+            assertEquals(solution.get(z), 0.0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testEmptyRows() throws Exception {
+        // constraints without variables that hold are left out, and ones that don't make the program infeasible
+        LinearProgram.Builder builder = LinearProgram.builder();
+        Variable x = builder.addVariable("x");
+        builder.setObjective(ImmutableMap.of(x, 1));
+        builder.addConstraint(atLeast(x, 2));
+        builder.addConstraint(atMost(ImmutableMap.<Variable, Integer>of(), 0));
+        builder.addConstraint(equalTo(ImmutableMap.<Variable, Integer>of(), 0));
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            assertEquals(builder.build().getSolution(new SimplexSolver(), executor).get(x), 2.0, 1e-9);
+
+            builder.addConstraint(atMost(ImmutableMap.<Variable, Integer>of(), -1));
+            LinearProgram lp = builder.build();
+            try {
+                lp.getSolution(new SimplexSolver(), executor);
+                fail("Expected the program to be infeasible");
+            } catch (Exception e) {
+                assertEquals(e.getMessage(), "Infeasible problem");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConstraintVariables() throws Exception {
+        LinearProgram.Builder builder = LinearProgram.builder();
+        Variable x = builder.addVariable("x");
+        Variable y = builder.addVariable("y");
+
+        // x + 2 <= 3x + y, with x on both sides, is -2x - y <= -2
+        Constraint c = atMost(of(x, 1), 2, of(x, 3, y, 1), 0);
+        assertEquals(c.getVariables(), new int[] {x.getIndex(), y.getIndex()});
+        assertEquals(c.getCoefficients(), new double[] {-2, -1});
+        assertEquals(c.getB(), -2.0);
+
+        builder.setObjective(of(x, 1));
+        builder.addConstraint(c);
+        assertEquals(builder.build().toString(), "-2.0 * x + -1.0 * y <= -2.0\n");
     }
 }
@@ -0,0 +1,157 @@
+package transform.lp;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class SimplexSolverTest {
+    // minimize 20x + 67y, subject to -2x - y <= -55, x - 3y <= 29, z - 3x - 5y = -5
+    private static final double[] C = {20, 67, 0};
+    private static final double[][] G = {{-2, -1, 0}, {1, -3, 0}};
+    private static final double[][] A = {{-3, -5, 1}};
+
+    private static void assertClose(double[] actual, double[] expected) {
+        assertEquals(actual.length, expected.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(actual[i], expected[i], 1e-9);
+        }
+    }
+
+    @Test
+    public void testVertex() throws Exception {
+        double[] x = new SimplexSolver().minimize(C, G, new double[] {-55, 29}, A, new double[] {-5});
+        assertClose(x, new double[] {27.5, 0, 77.5});
+    }
+
+    /**
+     * The columns of the rows in the given order
+     */
+    private static double[][] permute(double[][] rows, int... order) {
+        double[][] permuted = new double[rows.length][order.length];
+        for (int i = 0; i < rows.length; i++) {
+            for (int k = 0; k < order.length; k++) {
+                permuted[i][k] = rows[i][order[k]];
+            }
+        }
+
+        return permuted;
+    }
+
+    private static double[] minimize(SimplexSolver solver, double[][] g, double[] h, List<String> keys, int... order)
+        throws Exception {
+        double[][] c = permute(new double[][] {C}, order);
+        return solver.minimize(
+            c[0], SparseMatrix.fromDense(permute(g, order), 3), h, SparseMatrix.fromDense(permute(A, order), 3),
+            new double[] {-5}, keys
+        );
+    }
+
+    @Test
+    public void testWarmStart() throws Exception {
+        SimplexSolver solver = new SimplexSolver();
+        List<String> keys = ImmutableList.of("x", "y", "z");
+        minimize(solver, G, new double[] {-55, 29}, keys, 0, 1, 2);
+        assertEquals(solver.getWarmStartCount(), 0);
+        long cold = solver.getIterationCount();
+
+        // the last basis is no longer feasible, and is repaired by the dual simplex method
+        double[] warm = minimize(solver, G, new double[] {-80, 29}, keys, 0, 1, 2);
+        assertEquals(solver.getWarmStartCount(), 1);
+        assertTrue(solver.getIterationCount() - cold < cold);
+        assertClose(warm, new double[] {269. / 7, 22. / 7, -5 + 3 * 269. / 7 + 5 * 22. / 7});
+        assertClose(warm, new SimplexSolver().minimize(C, G, new double[] {-80, 29}, A, new double[] {-5}));
+
+        // the same variables in another order still start from the basis
+        double[] moved = minimize(solver, G, new double[] {-80, 29}, ImmutableList.of("z", "x", "y"), 2, 0, 1);
+        assertEquals(solver.getWarmStartCount(), 2);
+        assertClose(moved, new double[] {warm[2], warm[0], warm[1]});
+
+        // so does a program with a new inequality, whose slack starts out basic
+        double[][] g = {G[0], G[1], {0, -1, 0}};
+        double[] tighter = minimize(solver, g, new double[] {-80, 29, -4}, keys, 0, 1, 2);
+        assertEquals(solver.getWarmStartCount(), 3);
+        assertClose(tighter, new double[] {38, 4, -5 + 3 * 38 + 5 * 4});
+
+        // but other variables don't, even with the same shape
+        minimize(solver, G, new double[] {-80, 29}, ImmutableList.of("a", "b", "c"), 0, 1, 2);
+        assertEquals(solver.getWarmStartCount(), 3);
+    }
+
+    @Test
+    public void testMaxKeys() throws Exception {
+        // three variables and two slacks don't fit, so nothing is left to start from
+        SimplexSolver solver = new SimplexSolver(4);
+        List<String> keys = ImmutableList.of("x", "y", "z");
+        minimize(solver, G, new double[] {-55, 29}, keys, 0, 1, 2);
+        double[] x = minimize(solver, G, new double[] {-80, 29}, keys, 0, 1, 2);
+        assertEquals(solver.getWarmStartCount(), 0);
+        assertClose(x, new double[] {269. / 7, 22. / 7, -5 + 3 * 269. / 7 + 5 * 22. / 7});
+    }
+
+    @Test
+    public void testRefactor() throws Exception {
+        // minimize the sum of x_i, subject to x_0 >= 1 and x_i - x_(i-1) >= 1, which takes more pivots than the basis
+        // goes between refactorizations
+        int n = 300;
+        SparseMatrix.Builder builder = SparseMatrix.builder(n).add(0, -1).endRow();
+        for (int i = 1; i < n; i++) {
+            builder.add(i - 1, 1).add(i, -1).endRow();
+        }
+        SparseMatrix g = builder.build();
+        double[] c = new double[n];
+        double[] h = new double[n];
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            c[i] = 1;
+            h[i] = -1;
+            keys.add(i);
+        }
+
+        SimplexSolver solver = new SimplexSolver();
+        SparseMatrix none = SparseMatrix.builder(n).build();
+        double[] x = solver.minimize(c, g, h, none, new double[0], keys);
+        assertTrue(solver.getIterationCount() > 100);
+        for (int i = 0; i < n; i++) {
+            assertEquals(x[i], i + 1, 1e-9);
+        }
+
+        // and again from the basis it ended on, with x_0 >= 2
+        int warmStarts = solver.getWarmStartCount();
+        h[0] = -2;
+        x = solver.minimize(c, g, h, none, new double[0], keys);
+        assertEquals(solver.getWarmStartCount(), warmStarts + 1);
+        for (int i = 0; i < n; i++) {
+            assertEquals(x[i], i + 2, 1e-9);
+        }
+    }
+
+    @Test
+    public void testDegenerate() throws Exception {
+        // slices that all want to be equal, with redundant equalities
+        SparseMatrix g = SparseMatrix.builder(3)
+            .add(0, 1).add(1, -1).endRow()
+            .add(1, 1).add(2, -1).endRow()
+            .add(0, 1).add(2, -1).endRow()
+            .add(2, 1).add(0, -1).endRow()
+            .build();
+        SparseMatrix a = SparseMatrix.builder(3)
+            .add(0, 1).endRow()
+            .add(0, 1).endRow()
+            .build();
+        double[] x = new SimplexSolver().minimize(
+            new double[] {-1, 0, 1}, g, new double[] {-2, -3, 0, 10}, a, new double[] {0, 0}
+        );
+        assertClose(x, new double[] {0, 2, 5});
+    }
+
+    @Test(expectedExceptions = Exception.class, expectedExceptionsMessageRegExp = "Infeasible problem")
+    public void testInfeasible() throws Exception {
+        new SimplexSolver().minimize(
+            new double[] {1}, new double[][] {{1}}, new double[] {-1}, new double[0][], new double[0]
+        );
+    }
+}
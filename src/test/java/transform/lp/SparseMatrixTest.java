@@ -0,0 +1,41 @@
+package transform.lp;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class SparseMatrixTest {
+    @Test
+    public void testBuilder() throws Exception {
+        SparseMatrix m = SparseMatrix.builder(4)
+            .add(0, 1).add(3, -2).endRow()
+            .endRow()
+            .add(2, 0).add(1, 5).endRow()
+            .build();
+
+        assertEquals(m.getRows(), 3);
+        assertEquals(m.getColumns(), 4);
+        // zeros aren't stored
+        assertEquals(m.size(), 3);
+        assertEquals(m.rowStart(1), m.rowEnd(1));
+        assertEquals(m.get(0, 3), -2.0);
+        assertEquals(m.get(2, 2), 0.0);
+
+        double[][] dense = {{1, 0, 0, -2}, {0, 0, 0, 0}, {0, 5, 0, 0}};
+        assertEquals(m.toDense(), dense);
+        assertEquals(SparseMatrix.fromDense(dense, 4).toDense(), dense);
+        assertEquals(m.multiply(new double[] {1, 2, 3, 4}), new double[] {-7, 0, 10});
+    }
+
+    @Test
+    public void testSelect() throws Exception {
+        SparseMatrix m = SparseMatrix.fromDense(new double[][] {{1, 0, 2}, {0, 3, 0}, {4, 0, 5}}, 3);
+        SparseMatrix selected = m.select(new int[] {2, 0}, new int[] {1, -1, 0}, 2);
+        assertEquals(selected.toDense(), new double[][] {{5, 4}, {2, 1}});
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testUnendedRow() throws Exception {
+        SparseMatrix.builder(2).add(0, 1).build();
+    }
+}
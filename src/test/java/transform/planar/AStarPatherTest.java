@@ -0,0 +1,107 @@
+package transform.planar;
+
+import org.testng.annotations.Test;
+import types.Direction;
+import types.Side;
+import types.configuration.CellConfiguration;
+import types.configuration.cells.CellType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.*;
+import static transform.planar.PatherTestUtils.COST;
+import static transform.planar.PatherTestUtils.getLayout;
+
+public class AStarPatherTest {
+    private static List<Side> getOpenSides(CellConfiguration grid) {
+        List<Side> sides = new ArrayList<>();
+        for (int i = 0; i < grid.getSizeX(); i++) {
+            for (int j = 0; j < grid.getSizeY(); j++) {
+                if (grid.getCell(i, j).getCellType() != CellType.EMPTY) {
+                    continue;
+                }
+
+                for (Direction d : Direction.values()) {
+                    sides.add(new Side(i, j, d));
+                }
+            }
+        }
+        return sides;
+    }
+
+    @Test
+    public void testDistances() throws Exception {
+        CellConfiguration grid = getLayout();
+        Side start = new Side(1, 1, Direction.EAST);
+        for (boolean isInput : new boolean[]{true, false}) {
+            DijkstrasPather expected = new DijkstrasPather(grid, start, COST, isInput);
+            AStarPather actual = new AStarPather(grid, start, COST, isInput);
+
+            for (Side s : getOpenSides(grid)) {
+                assertEquals(actual.isPathable(s), expected.isPathable(s), s.toString());
+                if (expected.isPathable(s.opposite())) {
+                    assertEquals(actual.distanceTo(s), expected.distanceTo(s), s.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTargetedPath() throws Exception {
+        CellConfiguration grid = getLayout();
+        Side start = new Side(1, 1, Direction.EAST);
+        DijkstrasPather expected = new DijkstrasPather(grid, start, COST, false);
+
+        for (Side end : getOpenSides(grid)) {
+            if (!expected.isPathable(end.opposite()) || end.opposite().equals(start)) {
+                continue;
+            }
+
+            AStarPather actual = new AStarPather(grid, start, COST, false, end);
+            assertEquals(actual.distanceTo(end), expected.distanceTo(end), end.toString());
+
+            List<Side> path = actual.getPath(end);
+            assertEquals(path.get(0), start);
+            assertEquals(path.get(path.size() - 1), end);
+
+            // consecutive pairs are connected, and each pair after the start is within the same cell
+            for (int j = 0; j + 1 < path.size(); j += 2) {
+                assertEquals(path.get(j).opposite(), path.get(j + 1));
+            }
+            for (int j = 1; j + 1 < path.size(); j += 2) {
+                assertEquals(path.get(j).getLocation(), path.get(j + 1).getLocation());
+            }
+        }
+    }
+
+    @Test
+    public void testBoundedPath() throws Exception {
+        CellConfiguration grid = getLayout();
+        // from the corner, since no open side along the top is reachable from (1, 1)
+        Side start = new Side(0, 0, Direction.EAST);
+        AStarPather full = new AStarPather(grid, start, COST, true);
+
+        // pick a reachable side along the top of the grid
+        Side end = null;
+        for (Side s : getOpenSides(grid)) {
+            if (full.isPathable(s.opposite()) && s.getY() == 0 && s.getX() > 5 && s.getX() < 10) {
+                end = s;
+            }
+        }
+        assertNotNull(end);
+
+        int expected = new AStarPather(grid, start, COST, true, end).distanceTo(end);
+
+        AStarPather loose = new AStarPather(grid, start, COST, true, end, grid.getSizeX() + grid.getSizeY());
+        assertEquals(loose.distanceTo(end), expected);
+
+        AStarPather tight = new AStarPather(grid, start, COST, true, end, 0);
+        if (tight.isPathable(end.opposite())) {
+            assertTrue(tight.distanceTo(end) >= expected);
+        }
+
+        // nothing outside of the box is searched
+        assertFalse(tight.isPathable(new Side(grid.getSizeX() - 1, grid.getSizeY() - 1, Direction.NORTH)));
+    }
+}
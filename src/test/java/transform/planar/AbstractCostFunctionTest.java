@@ -0,0 +1,200 @@
+package transform.planar;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+import parser.GadgetParser;
+import transform.GadgetUtils;
+import types.Direction;
+import types.Gadget;
+import types.Location;
+import types.configuration.CellConfiguration;
+import types.configuration.NodeIds;
+import types.configuration.cells.*;
+import utils.ResourceUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.testng.Assert.*;
+
+public class AbstractCostFunctionTest {
+    private static final NodeIds IDS = new NodeIds();
+
+    private static Gadget parse(String name) throws Exception {
+        GadgetParser parser = new GadgetParser();
+        return parser.parse(ResourceUtils.getAbsoluteFile(AbstractCostFunctionTest.class, name));
+    }
+
+    private static GadgetSet getGadgets() throws Exception {
+        return new GadgetSet(
+            GadgetUtils.getSymmetries(ImmutableList.of(
+                parse("types/gadget/circuit/wire_2.txt"),
+                parse("types/gadget/circuit/wire_3.txt"),
+                parse("types/gadget/circuit/wire_5.txt")
+            )),
+            GadgetUtils.getSymmetries(ImmutableList.of(parse("transform/turn.txt"))),
+            GadgetUtils.getRotations(ImmutableList.of(parse("transform/crossover.txt"))),
+            parse("transform/empty.txt"),
+            ImmutableList.of(parse("transform/not.txt"))
+        );
+    }
+
+    private static Cell getRandomCell(Random random) {
+        Direction[] dirs = Direction.values();
+        Direction d = dirs[random.nextInt(dirs.length)];
+        switch (random.nextInt(6)) {
+            case 0:
+                return WireCell.getWire(d);
+            case 1:
+                return new TurnCell(d, random.nextBoolean() ? d.clockwise() : d.anticlockwise());
+            case 2:
+                return new CrossoverCell(d, random.nextBoolean() ? d.clockwise() : d.anticlockwise());
+            case 3:
+                return new NodeCell("NOT", IDS.intern(ImmutableList.of(random.nextInt(3))));
+            case 4:
+                List<Direction> none = ImmutableList.of();
+                return new PortCell(
+                    "NOT", IDS.intern(ImmutableList.of(random.nextInt(3))), ImmutableList.of(d), none, ImmutableMap.of(d, 0)
+                );
+            default:
+                return EmptyCell.getInstance();
+        }
+    }
+
+    private static void assertSameCosts(CellConfiguration grid, AbstractCostFunction actual, GadgetSet gadgets) {
+        AbstractCostFunction expected = new AbstractCostFunction(grid, gadgets);
+        assertEquals(actual.getTotalCost(), expected.getTotalCost());
+
+        Cell turn = new TurnCell(Direction.NORTH, Direction.EAST);
+        for (int i = 0; i < grid.getSizeX(); i++) {
+            for (int j = 0; j < grid.getSizeY(); j++) {
+                Location loc = new Location(i, j);
+                assertEquals(actual.getCost(turn, loc, 100), expected.getCost(turn, loc, 100), loc.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testListening() throws Exception {
+        GadgetSet gadgets = getGadgets();
+        CellConfiguration grid = new CellConfiguration(12, 9);
+        AbstractCostFunction cost = new AbstractCostFunction(grid, gadgets);
+        grid.addListener(cost);
+
+        Random random = new Random(17);
+        for (int k = 0; k < 200; k++) {
+            grid.put(getRandomCell(random), random.nextInt(grid.getSizeX()), random.nextInt(grid.getSizeY()));
+            if (k % 20 == 0) {
+                assertSameCosts(grid, cost, gadgets);
+            }
+        }
+        assertSameCosts(grid, cost, gadgets);
+
+        // clear everything again
+        for (int i = 0; i < grid.getSizeX(); i++) {
+            for (int j = 0; j < grid.getSizeY(); j++) {
+                grid.put(EmptyCell.getInstance(), i, j);
+            }
+        }
+        assertEquals(cost.getTotalCost(), 0);
+
+        grid.put(WireCell.getWire(Direction.EAST), 3, 4);
+        grid.expand(2, 2);
+        assertSameCosts(grid, cost, gadgets);
+        grid.resize(grid.getSizeX() + 5, grid.getSizeY());
+        assertSameCosts(grid, cost, gadgets);
+
+        // moving slices and expanding shouldn't lose track of the cells in them
+        for (int k = 0; k < 30; k++) {
+            for (int t = 0; t < 10; t++) {
+                grid.put(getRandomCell(random), random.nextInt(grid.getSizeX()), random.nextInt(grid.getSizeY()));
+            }
+
+            boolean isX = random.nextBoolean();
+            int size = isX ? grid.getSizeX() : grid.getSizeY();
+            int other = isX ? grid.getSizeY() : grid.getSizeX();
+            switch (random.nextInt(3)) {
+                case 0:
+                    int[] after = new int[random.nextInt(3) + 1];
+                    List<List<Cell>> slices = new ArrayList<>();
+                    for (int i = 0; i < after.length; i++) {
+                        after[i] = random.nextInt(size + 1) - 1;
+                        List<Cell> slice = new ArrayList<>();
+                        for (int j = 0; j < other; j++) {
+                            slice.add(getRandomCell(random));
+                        }
+                        slices.add(slice);
+                    }
+                    Arrays.sort(after);
+                    grid.insertSlices(isX, after, slices);
+                    break;
+                case 1:
+                    boolean[] delete = new boolean[size];
+                    for (int i = 0; i < size && size > 8; i++) {
+                        delete[i] = random.nextInt(4) == 0;
+                    }
+                    grid.deleteSlices(isX, delete);
+                    break;
+                default:
+                    grid.expand(random.nextInt(2) + 1, 1);
+                    break;
+            }
+            assertSameCosts(grid, cost, gadgets);
+        }
+        grid.removeListener(cost);
+    }
+
+    @Test
+    public void testGadgetSizes() throws Exception {
+        GadgetSet gadgets = getGadgets();
+        for (Map.Entry<List<Direction>, Gadget> entry : gadgets.turns.entrySet()) {
+            Gadget turn = entry.getValue();
+            List<Direction> dirs = entry.getKey();
+            assertEquals(gadgets.getTurnSize(dirs.get(0), dirs.get(1), true), turn.getSizeX());
+            assertEquals(gadgets.getTurnSize(dirs.get(0), dirs.get(1), false), turn.getSizeY());
+        }
+
+        for (Map.Entry<Set<Direction>, Gadget> entry : gadgets.crossovers.entrySet()) {
+            Gadget crossover = entry.getValue();
+            List<Direction> dirs = ImmutableList.copyOf(entry.getKey());
+            assertEquals(gadgets.getCrossoverSize(dirs.get(0), dirs.get(1), true), crossover.getSizeX());
+            assertEquals(gadgets.getCrossoverSize(dirs.get(1), dirs.get(0), false), crossover.getSizeY());
+        }
+
+        for (Direction d : Direction.values()) {
+            assertEquals(gadgets.getWireThickness(d), gadgets.wirer.minThickness(d));
+        }
+
+        int id = gadgets.getGadgetId("NOT");
+        assertEquals(gadgets.getGadgetSize(id, true), gadgets.gadgets.get("NOT").getSizeX());
+        assertEquals(gadgets.getGadgetSize(id, false), gadgets.gadgets.get("NOT").getSizeY());
+        assertEquals(gadgets.getGadgetId("AND"), -1);
+    }
+
+    @Test
+    public void testMinCost() throws Exception {
+        CellConfiguration grid = new CellConfiguration(10, 10);
+        Random random = new Random(3);
+        for (int k = 0; k < 40; k++) {
+            grid.put(getRandomCell(random), random.nextInt(grid.getSizeX()), random.nextInt(grid.getSizeY()));
+        }
+
+        // the bound used to prune placements must never be more than the real cost
+        AbstractCostFunction cost = new AbstractCostFunction(grid, getGadgets());
+        for (int k = 0; k < 40; k++) {
+            Cell cell = getRandomCell(random);
+            for (int i = 0; i < grid.getSizeX(); i++) {
+                for (int j = 0; j < grid.getSizeY(); j++) {
+                    Location loc = new Location(i, j);
+                    assertEquals(cost.getMinCost(cell), cost.getCost(cell, loc, 0), cell.toString());
+                    assertTrue(cost.getMinCost(cell) <= cost.getCost(cell, loc, 100), cell.toString());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package transform.planar;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+import transform.planar.expander.AreaCellExpander;
+import types.Direction;
+import types.configuration.CellConfiguration;
+import types.configuration.NodeIds;
+import types.configuration.cells.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class ConflictIndexTest {
+    private static final NodeIds IDS = new NodeIds();
+
+    private static Cell getRandomCell(Random random) {
+        Direction[] dirs = Direction.values();
+        Direction d = dirs[random.nextInt(dirs.length)];
+        switch (random.nextInt(5)) {
+            case 0:
+                return WireCell.getWire(d);
+            case 1:
+                return new TurnCell(d, random.nextBoolean() ? d.clockwise() : d.anticlockwise());
+            case 2:
+                return new CrossoverCell(d, random.nextBoolean() ? d.clockwise() : d.anticlockwise());
+            case 3:
+                return new NodeCell("NOT", IDS.intern(ImmutableList.of(random.nextInt(3))));
+            default:
+                return EmptyCell.getInstance();
+        }
+    }
+
+    private static void assertSameConflicts(CellConfiguration grid, ConflictIndex actual) {
+        ConflictIndex expected = new ConflictIndex(grid, new AreaCellExpander());
+        for (int i = 0; i + 1 < grid.getSizeX(); i++) {
+            assertEquals(actual.hasConflict(true, i), expected.hasConflict(true, i), "x " + i);
+        }
+
+        for (int j = 0; j + 1 < grid.getSizeY(); j++) {
+            assertEquals(actual.hasConflict(false, j), expected.hasConflict(false, j), "y " + j);
+        }
+    }
+
+    @Test
+    public void testListening() throws Exception {
+        CellConfiguration grid = new CellConfiguration(15, 11);
+        ConflictIndex conflicts = new ConflictIndex(grid, new AreaCellExpander());
+        grid.addListener(conflicts);
+
+        Random random = new Random(3);
+        for (int k = 0; k < 300; k++) {
+            grid.put(getRandomCell(random), random.nextInt(grid.getSizeX()), random.nextInt(grid.getSizeY()));
+            if (k % 30 == 0) {
+                assertSameConflicts(grid, conflicts);
+            }
+        }
+        assertSameConflicts(grid, conflicts);
+
+        List<Cell> column = Collections.nCopies(grid.getSizeY(), getRandomCell(random));
+        grid.insertSlices(true, new int[] {-1, 4, 4, 14}, ImmutableList.of(column, column, column, column));
+        assertSameConflicts(grid, conflicts);
+
+        List<Cell> row = Collections.nCopies(grid.getSizeX(), getRandomCell(random));
+        grid.insertSlices(false, new int[] {2, 10}, ImmutableList.of(row, row));
+        assertSameConflicts(grid, conflicts);
+
+        boolean[] delete = new boolean[grid.getSizeX()];
+        delete[3] = true;
+        grid.deleteSlices(true, delete);
+        assertSameConflicts(grid, conflicts);
+        grid.removeListener(conflicts);
+    }
+
+    @Test
+    public void testExpand() throws Exception {
+        Random random = new Random(8);
+        CellConfiguration indexed = new CellConfiguration(12, 12);
+        CellConfiguration scanned = new CellConfiguration(12, 12);
+        GridExpander expander = new GridExpander();
+        ConflictIndex conflicts = expander.getConflictIndex(indexed);
+        indexed.addListener(conflicts);
+
+        for (int k = 0; k < 5; k++) {
+            for (int n = 0; n < 10; n++) {
+                Cell cell = getRandomCell(random);
+                int x = random.nextInt(indexed.getSizeX());
+                int y = random.nextInt(indexed.getSizeY());
+                indexed.put(cell, x, y);
+                scanned.put(cell, x, y);
+            }
+
+            expander.expand(indexed, conflicts);
+            expander.expand(scanned);
+            assertEquals(indexed.getSizeX(), scanned.getSizeX());
+            assertEquals(indexed.getSizeY(), scanned.getSizeY());
+            for (int i = 0; i < scanned.getSizeX(); i++) {
+                for (int j = 0; j < scanned.getSizeY(); j++) {
+                    assertSame(indexed.getCell(i, j), scanned.getCell(i, j));
+                }
+            }
+        }
+        indexed.removeListener(conflicts);
+    }
+}
@@ -0,0 +1,114 @@
+package transform.planar;
+
+import org.testng.annotations.Test;
+import types.Direction;
+import types.Side;
+import types.configuration.CellConfiguration;
+import types.configuration.cells.CellType;
+import types.configuration.cells.EmptyCell;
+import types.configuration.cells.WireCell;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.testng.Assert.*;
+import static transform.planar.PatherTestUtils.COST;
+import static transform.planar.PatherTestUtils.getLayout;
+
+public class DistanceFieldsTest {
+    private static void assertSameDistances(CellConfiguration grid, DistanceField actual, Side start, boolean isInput) {
+        // a fresh search, which DijkstrasPather can't do here since it would cross parallel wires
+        AStarPather expected = new AStarPather(grid, start, COST, isInput);
+        for (int i = 0; i < grid.getSizeX(); i++) {
+            for (int j = 0; j < grid.getSizeY(); j++) {
+                for (Direction d : Direction.values()) {
+                    Side s = new Side(i, j, d);
+                    assertEquals(actual.isPathable(s), expected.isPathable(s), s.toString());
+                    if (expected.isPathable(s.opposite())) {
+                        assertEquals(actual.distanceTo(s), expected.distanceTo(s), s.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRepair() throws Exception {
+        CellConfiguration grid = getLayout();
+        Side start = new Side(0, 0, Direction.EAST);
+        DistanceFields fields = new DistanceFields(grid);
+
+        for (boolean isInput : new boolean[]{true, false}) {
+            assertSameDistances(grid, fields.get(start, isInput, COST), start, isInput);
+        }
+
+        // lay some wire through the empty cells, and clear some wires
+        int changed = 0;
+        for (int i = 1; i < grid.getSizeX() && changed < 12; i += 3) {
+            for (int j = 1; j < grid.getSizeY() && changed < 12; j += 2) {
+                CellType type = grid.getCell(i, j).getCellType();
+                if (type == CellType.EMPTY) {
+                    grid.put(WireCell.getWire(Direction.SOUTH), i, j);
+                    changed++;
+                } else if (type == CellType.WIRE) {
+                    grid.put(EmptyCell.getInstance(), i, j);
+                    changed++;
+                }
+            }
+        }
+        assertTrue(changed > 0);
+
+        for (boolean isInput : new boolean[]{true, false}) {
+            assertSameDistances(grid, fields.get(start, isInput, COST), start, isInput);
+        }
+        fields.release();
+    }
+
+    @Test
+    public void testResize() throws Exception {
+        CellConfiguration grid = getLayout();
+        Side start = new Side(0, 0, Direction.EAST);
+        DistanceFields fields = new DistanceFields(grid);
+        fields.get(start, true, COST);
+
+        grid.expand(1, 1);
+        Side moved = new Side(1, 1, Direction.EAST);
+        assertSameDistances(grid, fields.get(moved, true, COST), moved, true);
+        fields.release();
+    }
+
+    @Test
+    public void testGetAllInPool() throws Exception {
+        CellConfiguration grid = getLayout();
+        List<Side> starts = new ArrayList<>();
+        List<Boolean> isInput = new ArrayList<>();
+        for (int i = 0; i < grid.getSizeX(); i += 4) {
+            starts.add(new Side(i, 0, Direction.SOUTH));
+            isInput.add(i % 8 == 0);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DistanceFields fields = new DistanceFields(grid, 2);
+            List<DistanceField> actual = fields.getAll(starts, isInput, COST, pool);
+            for (int i = 0; i < starts.size(); i++) {
+                assertSameDistances(grid, actual.get(i), starts.get(i), isInput.get(i));
+            }
+
+            for (int j = 1; j < grid.getSizeY(); j += 3) {
+                if (grid.getCell(2, j).getCellType() == CellType.EMPTY) {
+                    grid.put(WireCell.getWire(Direction.EAST), 2, j);
+                }
+            }
+
+            actual = fields.getAll(starts, isInput, COST, pool);
+            for (int i = 0; i < starts.size(); i++) {
+                assertSameDistances(grid, actual.get(i), starts.get(i), isInput.get(i));
+            }
+            fields.release();
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
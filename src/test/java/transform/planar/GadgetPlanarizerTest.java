@@ -0,0 +1,347 @@
+package transform.planar;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+import parser.CellConfigurationParser;
+import parser.ConfigurationParser;
+import parser.GadgetParser;
+import transform.GadgetConverter;
+import transform.GadgetUtils;
+import types.Gadget;
+import types.Location;
+import types.configuration.AtomicConfiguration;
+import types.configuration.CellConfiguration;
+import types.configuration.Configuration;
+import types.configuration.cells.Cell;
+import types.configuration.nodes.AtomicNode;
+import utils.ResourceUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.testng.Assert.*;
+
+public class GadgetPlanarizerTest {
+    private static final long SEED = 9;
+
+    // three variables feeding two layers of gates, with splits whose wires have to cross
+    private static final String CIRCUIT = "CIRCUIT\n"
+        + "input 0 0\n"
+        + "output 13 0\n"
+        + "node 1 VARIABLE 0 1\n"
+        + "node 2 VARIABLE 0 1\n"
+        + "node 3 VARIABLE 0 1\n"
+        + "node 4 SPLIT 1 2\n"
+        + "node 5 SPLIT 1 2\n"
+        + "node 6 SPLIT 1 2\n"
+        + "node 7 AND 2 1\n"
+        + "node 8 OR 2 1\n"
+        + "node 9 AND 2 1\n"
+        + "node 10 OR 2 1\n"
+        + "node 11 END 1 0\n"
+        + "node 12 END 1 0\n"
+        + "\n"
+        + "0\n"
+        + "1 (4,0)\n"
+        + "2 (5,0)\n"
+        + "3 (6,0)\n"
+        + "4 (7,0) (8,0)\n"
+        + "5 (7,1) (9,0)\n"
+        + "6 (8,1) (9,1)\n"
+        + "7 (10,0)\n"
+        + "8 (10,1)\n"
+        + "9 (11,0)\n"
+        + "10 (12,0)\n"
+        + "11\n"
+        + "12\n"
+        + "13\n";
+
+    private static Gadget parse(String name) throws Exception {
+        GadgetParser parser = new GadgetParser();
+        return parser.parse(ResourceUtils.getAbsoluteFile(GadgetPlanarizerTest.class, name));
+    }
+
+    private static AtomicConfiguration getConfiguration() {
+        Configuration circuit = new ConfigurationParser().parse(new StringReader(CIRCUIT), "circuit");
+        return new AtomicConfiguration(
+            circuit, ImmutableList.<Configuration>of(), ImmutableSet.of("VARIABLE", "SPLIT", "AND", "OR", "END")
+        );
+    }
+
+    private static GadgetSet getGadgets() throws Exception {
+        return new GadgetSet(getWires(), getTurns(), getCrossovers(), parse("transform/empty.txt"), getCircuit());
+    }
+
+    private static Set<Gadget> getWires() throws Exception {
+        return GadgetUtils.getSymmetries(ImmutableList.of(
+            parse("types/gadget/circuit/wire_2.txt"),
+            parse("types/gadget/circuit/wire_3.txt"),
+            parse("types/gadget/circuit/wire_5.txt")
+        ));
+    }
+
+    private static Set<Gadget> getTurns() throws Exception {
+        return GadgetUtils.getSymmetries(ImmutableList.of(parse("transform/turn.txt")));
+    }
+
+    private static Set<Gadget> getCrossovers() throws Exception {
+        return GadgetUtils.getRotations(ImmutableList.of(parse("transform/crossover.txt")));
+    }
+
+    private static List<Gadget> getCircuit() throws Exception {
+        return ImmutableList.of(
+            parse("types/gadget/circuit/variable.txt"),
+            parse("types/gadget/circuit/split.txt"),
+            parse("types/gadget/circuit/and.txt"),
+            parse("types/gadget/circuit/or.txt"),
+            parse("types/gadget/circuit/end.txt")
+        );
+    }
+
+    private static PlanarizerOptions getOptions() {
+        PlanarizerOptions options = new PlanarizerOptions();
+        options.setPrintProgress(false);
+        options.setSchedule(new FixedSchedule(6, 2, 5, 0.04));
+        return options;
+    }
+
+    private static GadgetPlanarizerInstance place(GadgetSet gadgets, PlanarizerOptions options) {
+        GadgetPlanarizerInstance instance = new GadgetPlanarizerInstance(getConfiguration(), gadgets, options, SEED);
+        instance.place();
+        return instance;
+    }
+
+    private static void assertPlaced(CellConfiguration grid, AtomicConfiguration config) {
+        for (AtomicNode node : config.getNodes()) {
+            assertFalse(grid.getNodeCells(node.getIntId()).isEmpty(), node.getName());
+        }
+    }
+
+    @Test
+    public void testParallelRounds() throws Exception {
+        GadgetSet gadgets = getGadgets();
+        GadgetPlanarizerInstance sequential = place(gadgets, getOptions());
+        int expected = new AbstractCostFunction(sequential.getGrid(), gadgets).getTotalCost();
+        assertEquals(sequential.getMetrics().get(PlanarizerMetrics.Counter.BATCHES), 0);
+
+        // with no tolerance, every round that the batches made worse is undone and re-placed sequentially
+        PlanarizerOptions options = getOptions();
+        options.setParallelism(4);
+        options.setParallelRounds(true);
+        options.setParallelTolerance(0);
+        AtomicConfiguration config = getConfiguration();
+        GadgetPlanarizerInstance parallel = new GadgetPlanarizerInstance(config, gadgets, options, SEED);
+        parallel.addListener(new RoundChecker());
+        parallel.place();
+
+        CellConfiguration grid = parallel.getGrid();
+        assertPlaced(grid, config);
+        int cost = new AbstractCostFunction(grid, gadgets).getTotalCost();
+        assertTrue(cost <= expected * 1.05, cost + " > " + expected);
+
+        PlanarizerMetrics metrics = parallel.getMetrics();
+        assertTrue(metrics.get(PlanarizerMetrics.Counter.BATCHES) > 0);
+        // a placement found concurrently was taken by an earlier node of its batch, and searched for again
+        assertTrue(metrics.get(PlanarizerMetrics.Counter.RESEARCHES) > 0);
+        assertTrue(metrics.get(PlanarizerMetrics.Counter.ROUNDS_UNDONE) > 0);
+
+        // the batches of the final grid are runs of nodes whose regions don't overlap, each as long as it can be
+        List<AtomicNode> nodes = ImmutableList.copyOf(config.getNodes());
+        Map<Integer, GadgetPlanarizerInstance.Region> bounds = parallel.getBounds();
+        int from = 0;
+        while (from < nodes.size()) {
+            List<AtomicNode> batch = parallel.getBatch(nodes, from, 4, bounds);
+            assertFalse(batch.isEmpty());
+            List<GadgetPlanarizerInstance.Region> regions = new ArrayList<>();
+            for (AtomicNode node : batch) {
+                regions.add(parallel.getRegion(node, bounds));
+            }
+
+            for (int i = 0; i < regions.size(); i++) {
+                for (int j = i + 1; j < regions.size(); j++) {
+                    assertFalse(regions.get(i).overlaps(regions.get(j)));
+                }
+            }
+
+            int end = from + batch.size();
+            if (batch.size() < 4 && end < nodes.size()) {
+                GadgetPlanarizerInstance.Region next = parallel.getRegion(nodes.get(end), bounds);
+                boolean overlaps = next == null;
+                for (GadgetPlanarizerInstance.Region region : regions) {
+                    overlaps = overlaps || region.overlaps(next);
+                }
+                assertTrue(overlaps);
+            }
+            from = end;
+        }
+    }
+
+    @Test
+    public void testSameSeed() throws Exception {
+        GadgetPlanarizer planarizer = new GadgetPlanarizer(
+            getWires(), getTurns(), getCrossovers(), parse("transform/empty.txt"), getCircuit()
+        );
+        PlanarizerOptions options = planarizer.getOptions();
+        options.setPrintProgress(false);
+        options.setSchedule(new FixedSchedule(3, 1, 5, 0.04));
+        options.setSeed(SEED);
+        options.setStarts(2);
+        options.setParallelism(2);
+
+        StartRecorder recorder = new StartRecorder();
+        planarizer.addListener(recorder);
+
+        String first = write(planarizer.process(getConfiguration()));
+        assertEquals(recorder.finished, ImmutableSet.of(0, 1));
+        recorder.finished.clear();
+        assertEquals(write(planarizer.process(getConfiguration())), first);
+    }
+
+    @Test
+    public void testPrunedReplacement() throws Exception {
+        GadgetSet gadgets = getGadgets();
+        AtomicConfiguration config = getConfiguration();
+        GadgetPlanarizerInstance instance = new GadgetPlanarizerInstance(config, gadgets, getOptions(), SEED);
+        instance.place();
+        CellConfiguration placed = instance.getGrid();
+        GadgetConverter converter = new GadgetConverter();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (AtomicNode node : config.getNodes()) {
+                CellConfiguration grid = new CellConfiguration(placed.getSizeX(), placed.getSizeY());
+                grid.put(placed, 0, 0);
+                PlanarUtils.deleteNode(grid, node);
+                CellConfiguration nodeGrid = converter.toGridConfiguration(
+                    gadgets.gadgets.get(node.getName()), node.getNodeId()
+                );
+                CostFunction cost = new BaseCost(grid, gadgets);
+
+                Location unpruned = PlanarUtils.findReplacement(
+                    grid, config, node, nodeGrid, new Unbounded(cost), 0, new Random(SEED)
+                );
+                assertNotNull(unpruned, node.getName());
+                Location pruned = PlanarUtils.findReplacement(
+                    grid, config, node, nodeGrid, cost, 0, new Random(SEED)
+                );
+                assertEquals(pruned, unpruned, node.getName());
+
+                DistanceFields fields = new DistanceFields(grid);
+                Location pooled = PlanarUtils.findReplacement(
+                    grid, config, node, nodeGrid, cost, 0, new Random(SEED), fields, new PlacementIndex(grid), -1,
+                    pool, false
+                );
+                fields.release();
+                assertEquals(pooled, unpruned, node.getName());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String write(CellConfiguration grid) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new CellConfigurationParser().write(grid, stream);
+        return stream.toString();
+    }
+
+    /**
+     * Claims that cells can cost far less than they do anywhere, so that no placement is ever pruned
+     */
+    private static class Unbounded implements CostFunction {
+        private final CostFunction cost;
+
+        private Unbounded(CostFunction cost) {
+            this.cost = cost;
+        }
+
+        @Override
+        public int getTotalCost() {
+            return cost.getTotalCost();
+        }
+
+        @Override
+        public int getCost(Cell c, Location loc) {
+            return cost.getCost(c, loc);
+        }
+
+        @Override
+        public int getCost(Cell c, int x, int y) {
+            return cost.getCost(c, x, y);
+        }
+
+        @Override
+        public int getMinCost(Cell c) {
+            return -(1 << 20);
+        }
+    }
+
+    /**
+     * Checks that each round either costs no more than it started with, or was undone
+     */
+    private static class RoundChecker implements PlanarizerListener {
+        private int cost;
+        private long undone;
+
+        @Override
+        public void started(long seed) {
+        }
+
+        @Override
+        public void substitutionStarted(String name) {
+        }
+
+        @Override
+        public void roundStarted(int start, int step, int cost, CellConfiguration grid, PlanarizerMetrics metrics) {
+            this.cost = cost;
+            this.undone = metrics.get(PlanarizerMetrics.Counter.ROUNDS_UNDONE);
+        }
+
+        @Override
+        public void roundFinished(int start, int step, int cost, CellConfiguration grid, PlanarizerMetrics metrics) {
+            if (metrics.get(PlanarizerMetrics.Counter.ROUNDS_UNDONE) == undone) {
+                assertTrue(cost <= this.cost, "round " + step + " costs " + cost + " > " + this.cost);
+            }
+        }
+
+        @Override
+        public void finished(int start, CellConfiguration grid, PlanarizerMetrics metrics) {
+        }
+    }
+
+    /**
+     * Records which starts finished, failing if one finishes twice
+     */
+    private static class StartRecorder implements PlanarizerListener {
+        private final Set<Integer> finished = Collections.synchronizedSet(new HashSet<Integer>());
+
+        @Override
+        public void started(long seed) {
+        }
+
+        @Override
+        public void substitutionStarted(String name) {
+        }
+
+        @Override
+        public void roundStarted(int start, int step, int cost, CellConfiguration grid, PlanarizerMetrics metrics) {
+        }
+
+        @Override
+        public void roundFinished(int start, int step, int cost, CellConfiguration grid, PlanarizerMetrics metrics) {
+        }
+
+        @Override
+        public void finished(int start, CellConfiguration grid, PlanarizerMetrics metrics) {
+            assertTrue(finished.add(start), "start " + start + " finished twice");
+        }
+    }
+}
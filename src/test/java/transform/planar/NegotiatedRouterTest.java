@@ -0,0 +1,106 @@
+package transform.planar;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+import types.Direction;
+import types.Location;
+import types.Side;
+import types.configuration.CellConfiguration;
+import types.configuration.NodeIds;
+import types.configuration.cells.Cell;
+import types.configuration.cells.CellType;
+import types.configuration.cells.NodeCell;
+
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class NegotiatedRouterTest {
+    private static final CostFunction UNIT_COST = new CostFunction() {
+        @Override
+        public int getTotalCost() {
+            return 0;
+        }
+
+        @Override
+        public int getCost(Cell c, Location loc) {
+            return 1;
+        }
+
+        @Override
+        public int getCost(Cell c, int x, int y) {
+            return 1;
+        }
+
+        @Override
+        public int getMinCost(Cell c) {
+            return 1;
+        }
+    };
+
+    private static final Direction RIGHT = Direction.getDirection(1, 0);
+    private static final Direction LEFT = Direction.getDirection(-1, 0);
+    private static final Direction DOWN = Direction.getDirection(0, 1);
+    private static final Direction UP = Direction.getDirection(0, -1);
+
+    @Test
+    public void testCrossing() throws Exception {
+        CellConfiguration grid = new CellConfiguration(7, 7);
+        // the last two wires want the same cells as each other and as the first two
+        List<Side> starts = ImmutableList.of(
+            new Side(0, 3, RIGHT), new Side(3, 0, DOWN), new Side(0, 2, RIGHT), new Side(0, 4, RIGHT)
+        );
+        List<Side> ends = ImmutableList.of(
+            new Side(6, 3, LEFT), new Side(3, 6, UP), new Side(6, 4, LEFT), new Side(6, 2, LEFT)
+        );
+
+        NegotiatedRouter router = new NegotiatedRouter(grid, UNIT_COST, 16);
+        List<List<Side>> paths = router.route(starts, ends);
+        assertEquals(router.getTotalOveruse(), 0);
+        for (int k = 0; k < paths.size(); k++) {
+            List<Side> path = paths.get(k);
+            assertNotNull(path);
+            assertEquals(path.get(0), starts.get(k));
+            assertEquals(path.get(path.size() - 1), ends.get(k));
+            // fails if a cell is shared illegally
+            PlanarUtils.putOutputPath(grid, path);
+        }
+
+        assertEquals(grid.getCell(3, 3).getCellType(), CellType.CROSSOVER);
+    }
+
+    @Test
+    public void testManyRounds() throws Exception {
+        // two wires that can only get across through the same cell, in the same direction, so they never settle
+        CellConfiguration grid = new CellConfiguration(5, 3);
+        NodeIds ids = new NodeIds();
+        grid.put(new NodeCell("NOT", ids.intern(ImmutableList.of(0))), new Location(2, 0));
+        grid.put(new NodeCell("NOT", ids.intern(ImmutableList.of(1))), new Location(2, 2));
+
+        NegotiatedRouter router = new NegotiatedRouter(grid, UNIT_COST, 100);
+        List<List<Side>> paths = router.route(
+            ImmutableList.of(new Side(0, 0, DOWN), new Side(0, 2, UP)),
+            ImmutableList.of(new Side(4, 0, DOWN), new Side(4, 2, UP))
+        );
+        assertNull(paths.get(0));
+        assertNull(paths.get(1));
+        assertTrue(router.getTotalOveruse() > 0);
+        assertTrue(router.getPresentCost() > 1 << 16);
+    }
+
+    @Test
+    public void testBlocked() throws Exception {
+        CellConfiguration grid = new CellConfiguration(5, 5);
+        for (int j = 0; j < 5; j++) {
+            grid.put(new NodeCell("NOT", new NodeIds().intern(ImmutableList.of(0))), new Location(2, j));
+        }
+
+        NegotiatedRouter router = new NegotiatedRouter(grid, UNIT_COST, 4);
+        List<List<Side>> paths = router.route(
+            ImmutableList.of(new Side(0, 1, RIGHT), new Side(0, 0, DOWN)),
+            ImmutableList.of(new Side(4, 1, LEFT), new Side(0, 4, UP))
+        );
+        assertNull(paths.get(0));
+        assertNotNull(paths.get(1));
+    }
+}
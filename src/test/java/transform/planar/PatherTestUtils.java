@@ -0,0 +1,43 @@
+package transform.planar;
+
+import parser.CellConfigurationParser;
+import types.Location;
+import types.configuration.CellConfiguration;
+import types.configuration.cells.Cell;
+import types.configuration.cells.CellType;
+import utils.ResourceUtils;
+
+public class PatherTestUtils {
+    /**
+     * Turns and crossovers are more expensive than wires, and the cost varies over the grid
+     */
+    public static final CostFunction COST = new CostFunction() {
+        @Override
+        public int getTotalCost() {
+            return 0;
+        }
+
+        @Override
+        public int getCost(Cell c, Location loc) {
+            return getCost(c, loc.getX(), loc.getY());
+        }
+
+        @Override
+        public int getCost(Cell c, int x, int y) {
+            return getMinCost(c) + (x * 7 + y * 3) % 5;
+        }
+
+        @Override
+        public int getMinCost(Cell c) {
+            return c.getCellType() == CellType.WIRE ? 1 : 3;
+        }
+    };
+
+    /**
+     * A layout of an akari reduction, with its wires already routed
+     */
+    public static CellConfiguration getLayout() throws Exception {
+        CellConfigurationParser parser = new CellConfigurationParser();
+        return parser.parse(ResourceUtils.getRelativeFile(PatherTestUtils.class, "layouts/akari-layout.txt"));
+    }
+}
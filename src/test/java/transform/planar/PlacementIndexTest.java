@@ -0,0 +1,98 @@
+package transform.planar;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+import types.Location;
+import types.configuration.CellConfiguration;
+import types.configuration.NodeIds;
+import types.configuration.cells.Cell;
+import types.configuration.cells.CellType;
+import types.configuration.cells.EmptyCell;
+import types.configuration.cells.NodeCell;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class PlacementIndexTest {
+    private static final NodeIds IDS = new NodeIds();
+
+    /**
+     * The places found by scanning tables of the whole grid
+     */
+    private static List<Location> getExpected(CellConfiguration grid, CellConfiguration node) {
+        int x = node.getSizeX() + 2;
+        int y = node.getSizeY() + 2;
+        int[][] sliceX = new int[grid.getSizeX()][grid.getSizeY()];
+        int[][] sliceY = new int[grid.getSizeX()][grid.getSizeY()];
+        for (int i = 1; i < grid.getSizeX(); i++) {
+            for (int j = 0; j < grid.getSizeY(); j++) {
+                sliceX[i][j] = grid.getCell(i, j).getCellType() == CellType.EMPTY ? sliceX[i - 1][j] + 1 : 0;
+            }
+        }
+
+        ImmutableList.Builder<Location> locs = ImmutableList.builder();
+        for (int i = 0; i < grid.getSizeX(); i++) {
+            for (int j = 1; j < grid.getSizeY(); j++) {
+                sliceY[i][j] = sliceX[i][j] >= x ? sliceY[i][j - 1] + 1 : 0;
+                if (sliceY[i][j] >= y) {
+                    locs.add(new Location(i - (x - 1) + 1, j - (y - 1) + 1));
+                }
+            }
+        }
+
+        return locs.build();
+    }
+
+    private static void assertSamePlacements(CellConfiguration grid, PlacementIndex placements) {
+        for (int size = 1; size <= 3; size++) {
+            CellConfiguration node = new CellConfiguration(new NodeCell("NOT", IDS.intern(ImmutableList.of(0))), size, 4 - size);
+            List<Location> expected = getExpected(grid, node);
+            assertEquals(ImmutableList.copyOf(placements.getPlacements(node)), expected);
+            assertEquals(placements.getFirstPlacement(node), expected.isEmpty() ? null : expected.get(0));
+        }
+    }
+
+    private static Cell getRandomCell(Random random) {
+        return random.nextInt(3) == 0 ? new NodeCell("NOT", IDS.intern(ImmutableList.of(1))) : EmptyCell.getInstance();
+    }
+
+    @Test
+    public void testListening() throws Exception {
+        CellConfiguration grid = new CellConfiguration(20, 16);
+        PlacementIndex placements = new PlacementIndex(grid);
+        grid.addListener(placements);
+        assertSamePlacements(grid, placements);
+
+        Random random = new Random(5);
+        for (int k = 0; k < 200; k++) {
+            // mostly nodes at first, then mostly empty cells, so that places open up again
+            Cell cell = k < 40 || random.nextInt(4) == 0 ? getRandomCell(random) : EmptyCell.getInstance();
+            grid.put(cell, random.nextInt(grid.getSizeX()), random.nextInt(grid.getSizeY()));
+            if (k % 20 == 0) {
+                assertSamePlacements(grid, placements);
+            }
+        }
+        assertSamePlacements(grid, placements);
+
+        List<Cell> column = Collections.nCopies(grid.getSizeY(), (Cell) EmptyCell.getInstance());
+        grid.insertSlices(true, new int[] {-1, 6, 6, 19}, ImmutableList.of(column, column, column, column));
+        assertSamePlacements(grid, placements);
+
+        List<Cell> row = Collections.nCopies(grid.getSizeX(), getRandomCell(random));
+        grid.insertSlices(false, new int[] {2, 10}, ImmutableList.of(row, row));
+        assertSamePlacements(grid, placements);
+
+        boolean[] delete = new boolean[grid.getSizeX()];
+        delete[3] = true;
+        delete[10] = true;
+        grid.deleteSlices(true, delete);
+        assertSamePlacements(grid, placements);
+
+        grid.expand(2, 3);
+        assertSamePlacements(grid, placements);
+        grid.removeListener(placements);
+    }
+}
@@ -8,6 +8,7 @@ import types.Direction;
 import types.Gadget;
 import types.Side;
 import types.configuration.CellConfiguration;
+import types.configuration.NodeIds;
 import types.configuration.nodes.AtomicNode;
 import types.configuration.nodes.Node;
 import types.configuration.nodes.NodeType;
@@ -20,11 +21,13 @@ import static org.testng.Assert.*;
 public class PlanarUtilsTest {
     @Test
     public void testDeleteNode() throws Exception {
-        CellConfigurationParser parser = new CellConfigurationParser();
+        NodeIds ids = new NodeIds();
+        CellConfigurationParser parser = new CellConfigurationParser(ids);
         CellConfiguration grid = parser.parse(ResourceUtils.getRelativeFile(getClass(), "layouts/akari-layout.txt"));
         List<Side> sides = PlanarUtils.deleteNode(
             grid,
             new AtomicNode(
+                ids,
                 ImmutableList.<Integer>of(),
                 new Node(NodeType.LABELLED, "NOT", 4, 1, 1)
             )
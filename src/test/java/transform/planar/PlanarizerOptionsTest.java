@@ -0,0 +1,36 @@
+package transform.planar;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class PlanarizerOptionsTest {
+    @Test
+    public void testSet() throws Exception {
+        PlanarizerOptions options = new PlanarizerOptions();
+        options.set("seed", " 42 ");
+        options.set("starts", "3");
+        options.set("parallelRounds", "true");
+        options.set("schedule", "annealing");
+        options.set("replacementWindow", "12");
+        options.set("printGrid", "true");
+
+        assertEquals(options.getSeed(), Long.valueOf(42));
+        assertEquals(options.getStarts(), 3);
+        assertTrue(options.isParallelRounds());
+        assertTrue(options.getSchedule() instanceof AnnealingSchedule);
+        assertEquals(options.getReplacementWindow(), 12);
+        assertTrue(options.isPrintProgress());
+        assertTrue(options.isPrintGrid());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testSetUnknown() throws Exception {
+        new PlanarizerOptions().set("speed", "fast");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testSetBadValue() throws Exception {
+        new PlanarizerOptions().set("starts", "many");
+    }
+}
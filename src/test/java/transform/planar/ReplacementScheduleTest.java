@@ -0,0 +1,85 @@
+package transform.planar;
+
+import org.testng.annotations.Test;
+import types.configuration.CellConfiguration;
+
+import static org.testng.Assert.*;
+
+public class ReplacementScheduleTest {
+    @Test
+    public void testFixedSchedule() throws Exception {
+        CellConfiguration grid = new CellConfiguration(10, 10);
+        FixedSchedule fixed = new FixedSchedule();
+        for (int k = 0; k < 2; k++) {
+            ReplacementSchedule.Run schedule = fixed.start();
+            for (int i = 15; i >= 0; i--) {
+                ReplacementRound round = schedule.next(grid, 100);
+                assertNotNull(round);
+                assertEquals(round.getStep(), i);
+                assertEquals(round.getExpandX(), 5);
+                assertEquals(round.getExpandY(), 5);
+                assertEquals(round.getProbIgnore(), i * 0.04);
+                assertEquals(round.isIncremental(), i < 4);
+            }
+            assertNull(schedule.next(grid, 100));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNoExpansion() throws Exception {
+        new FixedSchedule(16, 4, 0, 0.04);
+    }
+
+    @Test
+    public void testAnnealingConverges() throws Exception {
+        CellConfiguration grid = new CellConfiguration(100, 20);
+        AnnealingSchedule annealing = new AnnealingSchedule();
+        annealing.setPatience(2);
+        annealing.setIncrementalRounds(3);
+        ReplacementSchedule.Run schedule = annealing.start();
+
+        // the cost never improves, so 2 base rounds run, then incremental rounds until they stall too
+        int rounds = 0;
+        int incremental = 0;
+        double lastProb = 1;
+        for (ReplacementRound round = schedule.next(grid, 50); round != null; round = schedule.next(grid, 50)) {
+            rounds++;
+            assertEquals(round.getExpandX(), 10);
+            assertEquals(round.getExpandY(), 2);
+            assertTrue(round.getProbIgnore() <= lastProb);
+            lastProb = round.getProbIgnore();
+            if (round.isIncremental()) {
+                incremental++;
+            }
+        }
+        assertEquals(rounds, 4);
+        assertEquals(incremental, 2);
+    }
+
+    @Test
+    public void testAnnealingBudget() throws Exception {
+        CellConfiguration grid = new CellConfiguration(10, 10);
+        AnnealingSchedule annealing = new AnnealingSchedule();
+        annealing.setMaxRounds(6);
+        annealing.setIncrementalRounds(2);
+        ReplacementSchedule.Run schedule = annealing.start();
+
+        // the cost keeps improving, so the whole budget is used, ending with 2 incremental rounds
+        int cost = 1000;
+        ReplacementRound last = null;
+        int rounds = 0;
+        for (ReplacementRound round = schedule.next(grid, cost); round != null; round = schedule.next(grid, cost)) {
+            assertEquals(round.isIncremental(), rounds >= 4);
+            cost /= 2;
+            rounds++;
+            last = round;
+        }
+        assertEquals(rounds, 6);
+        assertNotNull(last);
+        assertEquals(last.getStep(), 0);
+        assertEquals(last.getProbIgnore(), 0.0);
+
+        // a new run starts from the beginning
+        assertNotNull(annealing.start().next(grid, 1000));
+    }
+}
@@ -0,0 +1,109 @@
+package types;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class MutableGridTest {
+    private static void assertSameCells(MutableGrid<Integer> actual, MutableGrid<Integer> expected) {
+        assertEquals(actual.getSizeX(), expected.getSizeX());
+        assertEquals(actual.getSizeY(), expected.getSizeY());
+        for (int i = 0; i < expected.getSizeX(); i++) {
+            for (int j = 0; j < expected.getSizeY(); j++) {
+                assertEquals(actual.getCell(i, j), expected.getCell(i, j), i + ", " + j);
+            }
+        }
+    }
+
+    @Test
+    public void testTiled() throws Exception {
+        Integer background = 0;
+        MutableGrid<Integer> dense = new MutableGrid<>(background, 5, 70);
+        MutableGrid<Integer> tiled = new MutableGrid<>(background, 5, 70, true);
+
+        Random random = new Random(5);
+        for (int k = 0; k < 400; k++) {
+            int x = random.nextInt(dense.getSizeX());
+            int y = random.nextInt(dense.getSizeY());
+            Integer cell = random.nextInt(3);
+            dense.put(cell, x, y);
+            tiled.put(cell, x, y);
+
+            if (k % 50 == 10) {
+                dense.expand(k % 7 + 1, 3);
+                tiled.expand(k % 7 + 1, 3);
+                assertSameCells(tiled, dense);
+            } else if (k % 50 == 30) {
+                Integer fill = k % 100 == 30 ? background : Integer.valueOf(7);
+                dense.resize(fill, dense.getSizeX() + 40, dense.getSizeY() + 1);
+                tiled.resize(fill, tiled.getSizeX() + 40, tiled.getSizeY() + 1);
+                assertSameCells(tiled, dense);
+            }
+        }
+        assertSameCells(tiled, dense);
+
+        Integer[][] cells = new Integer[3][4];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 4; j++) {
+                cells[i][j] = i * j;
+            }
+        }
+        tiled.set(cells, 3, 4);
+        assertEquals(tiled.getSizeX(), 3);
+        assertEquals(tiled.getCell(2, 3), Integer.valueOf(6));
+        assertFalse(tiled.isValid(3, 0));
+    }
+
+    @Test
+    public void testSlices() throws Exception {
+        for (boolean tiled : new boolean[] {false, true}) {
+            MutableGrid<Integer> grid = new MutableGrid<>(0, 3, 2, tiled);
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 2; j++) {
+                    grid.put(10 * i + j + 1, i, j);
+                }
+            }
+
+            List<List<Integer>> columns = ImmutableList.<List<Integer>>of(
+                ImmutableList.of(-1, -2), ImmutableList.of(-3, -4), ImmutableList.of(-5, -6)
+            );
+            grid.insertSlices(true, new int[] {-1, 1, 1}, columns);
+            assertEquals(grid.getSizeX(), 6);
+            assertEquals(grid.getCell(0, 1), Integer.valueOf(-2));
+            assertEquals(grid.getCell(1, 0), Integer.valueOf(1));
+            assertEquals(grid.getCell(3, 0), Integer.valueOf(-3));
+            assertEquals(grid.getCell(4, 1), Integer.valueOf(-6));
+            assertEquals(grid.getCell(5, 1), Integer.valueOf(22));
+
+            grid.insertSlices(false, new int[] {1}, ImmutableList.of(ImmutableList.of(7, 7, 7, 7, 7, 7)));
+            assertEquals(grid.getSizeY(), 3);
+            assertEquals(grid.getCell(5, 1), Integer.valueOf(22));
+            assertEquals(grid.getCell(5, 2), Integer.valueOf(7));
+
+            grid.deleteSlices(true, new boolean[] {true, false, false, true, true, false});
+            grid.deleteSlices(false, new boolean[] {false, false, true});
+            assertEquals(grid.getSizeX(), 3);
+            assertEquals(grid.getSizeY(), 2);
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 2; j++) {
+                    assertEquals(grid.getCell(i, j), Integer.valueOf(10 * i + j + 1));
+                }
+            }
+
+            // cells that were set keep their own arrays
+            grid.set(new Integer[][] {{1, 2}, {11, 12}, {21, 22}}, 3, 2);
+            grid.insertSlices(false, new int[] {0}, ImmutableList.of(ImmutableList.of(7, 7, 7)));
+            assertEquals(grid.getCell(2, 1), Integer.valueOf(7));
+            assertEquals(grid.getCell(2, 2), Integer.valueOf(22));
+        }
+    }
+
+    @Test(expectedExceptions = ArrayIndexOutOfBoundsException.class)
+    public void testTiledOutside() throws Exception {
+        new MutableGrid<>(0, 10, 10, true).getCell(10, 3);
+    }
+}
@@ -0,0 +1,86 @@
+package types.configuration;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+import parser.ConfigurationParser;
+import types.configuration.nodes.AtomicNode;
+import types.configuration.nodes.AtomicPort;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class AtomicConfigurationTest {
+    private static final String TOP = "TOP\n"
+        + "input 0 0\n"
+        + "output 4 0\n"
+        + "node 1 SRC 0 2\n"
+        + "node 2 AND 2 1\n"
+        + "node 3 END 1 0\n"
+        + "\n"
+        + "0\n"
+        + "1 (2,0) (2,1)\n"
+        + "2 (3,0)\n"
+        + "3\n"
+        + "4\n";
+
+    private static final String AND = "AND\n"
+        + "input 0 2\n"
+        + "output 4 1\n"
+        + "node 1 NOT 1 1\n"
+        + "node 2 NOT 1 1\n"
+        + "node 3 NOR 2 1\n"
+        + "\n"
+        + "0 (1,0) (2,0)\n"
+        + "1 (3,0)\n"
+        + "2 (3,1)\n"
+        + "3 (4,0)\n";
+
+    private static AtomicConfiguration getConfiguration() {
+        ConfigurationParser parser = new ConfigurationParser();
+        Configuration top = parser.parse(new StringReader(TOP), "top");
+        Configuration and = parser.parse(new StringReader(AND), "and");
+        return new AtomicConfiguration(top, ImmutableList.of(and), ImmutableSet.of("SRC", "NOT", "NOR", "END"));
+    }
+
+    private static List<String> getNames(AtomicConfiguration config) {
+        List<String> names = new ArrayList<>();
+        for (AtomicNode node : config.getNodes()) {
+            names.add(node.getName());
+        }
+
+        return names;
+    }
+
+    @Test
+    public void testSubstitutions() throws Exception {
+        AtomicConfiguration config = getConfiguration();
+        assertEquals(config.getTopSubstitutions(), ImmutableSet.of("AND"));
+        assertEquals(getNames(config), ImmutableList.of("SRC", "NOT", "NOT", "NOR", "END"));
+
+        // the substitution kept whole
+        AtomicConfiguration top = config.withAtoms(ImmutableSet.of("AND"));
+        assertEquals(top.getTopSubstitutions(), ImmutableSet.of());
+        assertEquals(getNames(top), ImmutableList.of("SRC", "AND", "END"));
+        AtomicNode end = top.getNode(ImmutableList.<Integer>of(), 3);
+        AtomicPort conn = top.getConnectingPort(end.getInputPort(0));
+        assertEquals(conn.getId(), ImmutableList.of(2));
+        assertTrue(top.isLabelled(conn));
+
+        // the substitution by itself, whose input and output aren't labelled
+        AtomicConfiguration sub = config.getSubstitution("AND");
+        assertEquals(getNames(sub), ImmutableList.of("NOT", "NOT", "NOR"));
+        AtomicNode not = sub.getNode(ImmutableList.<Integer>of(), 1);
+        assertFalse(sub.isLabelled(sub.getConnectingPort(not.getInputPort(0))));
+        assertTrue(sub.isLabelled(sub.getConnectingPort(not.getOutputPort(0))));
+
+        // the same nodes in the whole configuration
+        AtomicNode flatNot = config.getNode(ImmutableList.of(2), 1);
+        AtomicPort flatConn = config.getConnectingPort(flatNot.getInputPort(0));
+        assertEquals(flatConn.getId(), ImmutableList.of(1));
+        assertTrue(config.isLabelled(flatConn));
+    }
+}
@@ -0,0 +1,104 @@
+package types.configuration;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+import org.testng.annotations.Test;
+import parser.CellConfigurationParser;
+import transform.planar.PlanarUtils;
+import types.Location;
+import types.configuration.cells.Cell;
+import types.configuration.cells.CellType;
+import types.configuration.cells.EmptyCell;
+import types.configuration.cells.NodeCell;
+import utils.ResourceUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class CellConfigurationTest {
+    private static void assertIndexed(CellConfiguration grid) {
+        SetMultimap<Integer, Location> nodes = HashMultimap.create();
+        SetMultimap<Integer, Location> ports = HashMultimap.create();
+        for (int i = 0; i < grid.getSizeX(); i++) {
+            for (int j = 0; j < grid.getSizeY(); j++) {
+                Cell c = grid.getCell(i, j);
+                if (c.getCellType() == CellType.NODE || c.getCellType() == CellType.PORT) {
+                    nodes.put(c.getIntId(), new Location(i, j));
+                }
+                if (c.getCellType() == CellType.PORT) {
+                    ports.put(c.getIntId(), new Location(i, j));
+                }
+            }
+        }
+
+        assertEquals(grid.getNodeIds(), nodes.keySet());
+        for (int id : nodes.keySet()) {
+            assertEquals(grid.getNodeCells(id), nodes.get(id));
+            assertEquals(grid.getPortCells(id), ports.get(id));
+        }
+    }
+
+    @Test
+    public void testIndex() throws Exception {
+        CellConfigurationParser parser = new CellConfigurationParser();
+        CellConfiguration grid = parser.parse(
+            ResourceUtils.getAbsoluteFile(getClass(), "transform/planar/layouts/akari-layout.txt")
+        );
+        assertIndexed(grid);
+        assertFalse(grid.getNodeIds().isEmpty());
+
+        grid.expand(2, 3);
+        assertIndexed(grid);
+
+        PlanarUtils.deleteSlices(grid);
+        assertIndexed(grid);
+
+        List<Cell> empty = Collections.<Cell>nCopies(grid.getSizeX(), EmptyCell.getInstance());
+        grid.insertSlices(false, new int[] {0, 4}, ImmutableList.of(empty, empty));
+        assertIndexed(grid);
+
+        int id = grid.getNodeIds().iterator().next();
+        Location first = grid.getNodeCells(id).first();
+
+        // widening a node inserts slices with its cells
+        List<Cell> column = new ArrayList<>();
+        for (int j = 0; j < grid.getSizeY(); j++) {
+            column.add(grid.getCell(first.getX(), j));
+        }
+        grid.insertSlices(true, new int[] {first.getX()}, ImmutableList.of(column));
+        assertIndexed(grid);
+
+        grid.put(EmptyCell.getInstance(), first);
+        assertIndexed(grid);
+
+        CellConfiguration copy = new CellConfiguration(grid.getSizeX(), grid.getSizeY());
+        copy.put(grid, 0, 0);
+        assertIndexed(copy);
+        assertEquals(copy.getNodeIds(), grid.getNodeIds());
+    }
+
+    @Test
+    public void testNodeIds() throws Exception {
+        NodeIds ids = new NodeIds();
+        NodeId id = ids.intern(ImmutableList.of(3, 1, 4));
+        assertSame(ids.intern(Lists.newArrayList(3, 1, 4)), id);
+        assertEquals(id.getPath(), ImmutableList.of(3, 1, 4));
+        assertNotEquals(ids.intern(ImmutableList.of(3, 1)).getIndex(), id.getIndex());
+
+        NodeCell cell = new NodeCell("NOT", ids.intern(ImmutableList.of(3, 1, 4)));
+        assertEquals(cell.getIntId(), id.getIndex());
+        assertEquals(cell.getId(), ImmutableList.of(3, 1, 4));
+
+        // each table gives out its own ints, starting from 0
+        NodeIds other = new NodeIds();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(other.intern(ImmutableList.of(-1, i)).getIndex(), i);
+        }
+        assertEquals(ids.intern(ImmutableList.of(3, 1, 4)).getIndex(), id.getIndex());
+    }
+}